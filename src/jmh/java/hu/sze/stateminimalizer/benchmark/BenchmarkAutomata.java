@@ -0,0 +1,38 @@
+package hu.sze.stateminimalizer.benchmark;
+
+import hu.sze.stateminimalizer.dfa.CSVToDFAProcessor;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Shared benchmark input: the generated automaton in every representation the benchmarks need.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkAutomata {
+
+    public static final long SEED = 20200101L;
+    public static final int SYMBOL_COUNT = 4;
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int stateCount;
+
+    @Param({"RANDOM", "PARTIAL", "REDUNDANT", "CHAIN"})
+    public RandomDFAGenerator.Shape shape;
+
+    public CompactDFA compactDfa;
+    public byte[] csv;
+
+    @Setup
+    public void setup() throws IOException {
+        compactDfa = new RandomDFAGenerator(SEED).generate(shape, stateCount, SYMBOL_COUNT);
+        try (InputStream inputStream = new CSVToDFAProcessor().writeCSV(compactDfa)) {
+            csv = inputStream.readAllBytes();
+        }
+    }
+}
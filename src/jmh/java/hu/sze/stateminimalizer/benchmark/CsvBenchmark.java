@@ -0,0 +1,37 @@
+package hu.sze.stateminimalizer.benchmark;
+
+import hu.sze.stateminimalizer.dfa.CSVToDFAProcessor;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CsvBenchmark {
+
+    @Benchmark
+    public CompactDFA parse(BenchmarkAutomata automata) throws IOException {
+        return new CSVToDFAProcessor().readCSVToCompactDfa(Channels.newChannel(new ByteArrayInputStream(automata.csv)));
+    }
+
+    @Benchmark
+    public int write(BenchmarkAutomata automata) throws IOException {
+        try (InputStream inputStream = new CSVToDFAProcessor().writeCSV(automata.compactDfa)) {
+            return inputStream.available();
+        }
+    }
+}
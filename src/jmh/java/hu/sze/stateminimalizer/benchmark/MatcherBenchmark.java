@@ -0,0 +1,154 @@
+package hu.sze.stateminimalizer.benchmark;
+
+import hu.sze.stateminimalizer.dfa.DfaMatcher;
+import hu.sze.stateminimalizer.dfa.MatcherCompiler;
+import hu.sze.stateminimalizer.dfa.Minimizer;
+import hu.sze.stateminimalizer.dfa.TableMatcher;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import hu.sze.stateminimalizer.dfa.model.State;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Words of {@link #WORD_LENGTH} characters per second, read along the transitions of the minimized automaton:
+ * the object model as the UI walks it, the table matcher and the compiled matcher on strings and on bytes.
+ * The compiled matcher is generated without a state limit, automata whose code does not fit a method are matched
+ * by the table in both.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class MatcherBenchmark {
+
+    public static final int WORD_COUNT = 10_000;
+    public static final int WORD_LENGTH = 64;
+
+    private DFA minimalDfa;
+    private TableMatcher tableMatcher;
+    private DfaMatcher compiledMatcher;
+    private String[] words;
+    private byte[][] wordBytes;
+    private boolean[] results;
+
+    @Setup
+    public void setup(BenchmarkAutomata automata) {
+        minimalDfa = new Minimizer(Minimizer.Engine.HOPCROFT).minimize(withCharacterSymbols(automata.compactDfa).toDFA());
+        tableMatcher = TableMatcher.of(minimalDfa);
+        compiledMatcher = new MatcherCompiler(Integer.MAX_VALUE).compile(minimalDfa);
+        CompactDFA compactDfa = CompactDFA.fromDFA(minimalDfa);
+        Random random = new Random(BenchmarkAutomata.SEED);
+        words = new String[WORD_COUNT];
+        wordBytes = new byte[WORD_COUNT][];
+        results = new boolean[WORD_COUNT];
+        for (int word = 0; word < WORD_COUNT; word++) {
+            words[word] = createWord(compactDfa, random);
+            wordBytes[word] = words[word].getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * Random walk from the initial state, choosing only existing transitions while there are any.
+     */
+    private static String createWord(CompactDFA dfa, Random random) {
+        StringBuilder word = new StringBuilder(WORD_LENGTH);
+        int state = dfa.getInitialState();
+        while (word.length() < WORD_LENGTH) {
+            int symbol = random.nextInt(dfa.getSymbolCount());
+            for (int tries = 0; tries < dfa.getSymbolCount() && dfa.getTarget(state, symbol) == CompactDFA.NO_TRANSITION; tries++) {
+                symbol = (symbol + 1) % dfa.getSymbolCount();
+            }
+            word.append(dfa.getSymbol(symbol));
+            if (dfa.getTarget(state, symbol) != CompactDFA.NO_TRANSITION) {
+                state = dfa.getTarget(state, symbol);
+            }
+        }
+        return word.toString();
+    }
+
+    /**
+     * The generated symbols s0, s1, ... renamed to a, b, ...
+     */
+    private static CompactDFA withCharacterSymbols(CompactDFA dfa) {
+        String[] symbols = new String[dfa.getSymbolCount()];
+        String[] stateNames = new String[dfa.getStateCount()];
+        int[] stateIds = new int[dfa.getStateCount()];
+        int[] transitions = new int[dfa.getStateCount() * symbols.length];
+        for (int symbol = 0; symbol < symbols.length; symbol++) {
+            symbols[symbol] = String.valueOf((char) ('a' + symbol));
+        }
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            stateNames[state] = dfa.getStateName(state);
+            stateIds[state] = dfa.getStateId(state);
+            for (int symbol = 0; symbol < symbols.length; symbol++) {
+                transitions[state * symbols.length + symbol] = dfa.getTarget(state, symbol);
+            }
+        }
+        return new CompactDFA(symbols, stateNames, stateIds, transitions, dfa.getFinalStates(), dfa.getInitialState());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORD_COUNT)
+    public int objectModel() {
+        int accepted = 0;
+        for (String word : words) {
+            State state = minimalDfa.getStates().get(0);
+            for (int i = 0; i < word.length() && state != null; i++) {
+                state = state.getTransitions().get(String.valueOf(word.charAt(i)));
+            }
+            if (state != null && minimalDfa.getFinalStateIds().contains(state.getId())) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORD_COUNT)
+    public int tableStrings() {
+        return tableMatcher.matchAll(words, results);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORD_COUNT)
+    public int tableBytes() {
+        return matchBytes(tableMatcher);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORD_COUNT)
+    public int compiledStrings() {
+        return compiledMatcher.matchAll(words, results);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORD_COUNT)
+    public int compiledBytes() {
+        return matchBytes(compiledMatcher);
+    }
+
+    private int matchBytes(DfaMatcher matcher) {
+        int accepted = 0;
+        for (byte[] word : wordBytes) {
+            if (matcher.matches(word)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+}
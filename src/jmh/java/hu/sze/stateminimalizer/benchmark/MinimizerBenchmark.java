@@ -0,0 +1,50 @@
+package hu.sze.stateminimalizer.benchmark;
+
+import hu.sze.stateminimalizer.dfa.Minimizer;
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reachability pruning and full Hopcroft and partial-DFA minimization on the object model, as the UI runs them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class MinimizerBenchmark {
+
+    private DFA dfa;
+
+    @Setup
+    public void setup(BenchmarkAutomata automata) {
+        dfa = automata.compactDfa.toDFA();
+    }
+
+    @Benchmark
+    public DFA removeUnreachableStates() {
+        return new Minimizer().removeUnreachableStates(dfa);
+    }
+
+    @Benchmark
+    public DFA minimize() {
+        return new Minimizer(Minimizer.Engine.HOPCROFT).minimize(dfa);
+    }
+
+    @Benchmark
+    public DFA minimizePartial() {
+        return new Minimizer(Minimizer.Engine.PARTIAL).minimize(dfa);
+    }
+}
@@ -0,0 +1,48 @@
+package hu.sze.stateminimalizer.benchmark;
+
+import hu.sze.stateminimalizer.dfa.Minimizer;
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full minimization with the pair table engine.
+ * Its mark tables need n²/2 bits each, so it only runs up to 10⁴ states.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class TableFillingBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int stateCount;
+
+    @Param({"RANDOM", "PARTIAL", "REDUNDANT", "CHAIN"})
+    public RandomDFAGenerator.Shape shape;
+
+    private DFA dfa;
+
+    @Setup
+    public void setup() {
+        dfa = new RandomDFAGenerator(BenchmarkAutomata.SEED).generate(shape, stateCount, BenchmarkAutomata.SYMBOL_COUNT).toDFA();
+    }
+
+    @Benchmark
+    public DFA minimize() {
+        return new Minimizer(Minimizer.Engine.TABLE_FILLING).minimize(dfa);
+    }
+}
@@ -0,0 +1,51 @@
+package hu.sze.stateminimalizer.batch;
+
+/**
+ * One automaton of a batch, or the reason why a line or part of the batch could not be turned into one.
+ */
+public final class BatchJob {
+
+    public enum Format {
+        CSV,
+        BINARY
+    }
+
+    private final String id;
+    private final Format format;
+    private final byte[] content;
+    private final String error;
+
+    private BatchJob(String id, Format format, byte[] content, String error) {
+        this.id = id;
+        this.format = format;
+        this.content = content;
+        this.error = error;
+    }
+
+    public static BatchJob of(String id, Format format, byte[] content) {
+        return new BatchJob(id, format, content, null);
+    }
+
+    public static BatchJob invalid(String id, String error) {
+        return new BatchJob(id, null, null, error);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    /**
+     * @return null if the job can be run
+     */
+    public String getError() {
+        return error;
+    }
+}
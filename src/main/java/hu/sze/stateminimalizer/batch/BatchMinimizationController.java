@@ -0,0 +1,156 @@
+package hu.sze.stateminimalizer.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hu.sze.stateminimalizer.dfa.BinaryDFAProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Batch minimization over HTTP. The automata are posted either as multipart files (CSV or binary, told apart by the
+ * magic number) or as NDJSON lines of {@code {"id": ..., "format": "csv"|"binary", "content": ...}} with Base64 binary
+ * content. The response is NDJSON as well, one {@link BatchResult} per line, flushed as soon as the job finishes.
+ */
+@RestController
+@RequestMapping("/api/minimize")
+public class BatchMinimizationController {
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+
+    private static final Logger log = LoggerFactory.getLogger(BatchMinimizationController.class);
+
+    private final BatchMinimizationService batchMinimizationService;
+    private final ObjectMapper objectMapper;
+
+    public BatchMinimizationController(BatchMinimizationService batchMinimizationService, ObjectMapper objectMapper) {
+        this.batchMinimizationService = batchMinimizationService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> minimizeFiles(@RequestParam("files") List<MultipartFile> files) {
+        Iterator<BatchJob> jobs = files.stream().map(this::toJob).iterator();
+        return stream(jobs);
+    }
+
+    /**
+     * The body is read while the results are written, so the batch can be longer than what fits in memory.
+     */
+    @PostMapping(consumes = APPLICATION_NDJSON_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> minimizeLines(InputStream body) {
+        return stream(new NdjsonJobIterator(body));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(Iterator<BatchJob> jobs) {
+        StreamingResponseBody responseBody = outputStream -> {
+            try {
+                batchMinimizationService.minimizeAll(jobs, result -> writeLine(outputStream, result));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (UncheckedIOException e) {
+                // the client went away, the running jobs are already cancelled
+                log.debug("Batch response aborted", e);
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(responseBody);
+    }
+
+    private void writeLine(OutputStream outputStream, BatchResult result) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(result));
+            outputStream.write('\n');
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private BatchJob toJob(MultipartFile file) {
+        String id = file.getOriginalFilename() != null ? file.getOriginalFilename() : file.getName();
+        try {
+            byte[] content = file.getBytes();
+            return BatchJob.of(id, BinaryDFAProcessor.isBinary(content) ? BatchJob.Format.BINARY : BatchJob.Format.CSV, content);
+        } catch (IOException e) {
+            return BatchJob.invalid(id, "Could not read the file: " + e.getMessage());
+        }
+    }
+
+    private class NdjsonJobIterator implements Iterator<BatchJob> {
+        private final BufferedReader reader;
+        private String nextLine;
+        private int lineNumber;
+
+        private NdjsonJobIterator(InputStream body) {
+            this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (nextLine == null) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    lineNumber++;
+                    if (!line.isBlank()) {
+                        nextLine = line;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public BatchJob next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String line = nextLine;
+            nextLine = null;
+            String id = "line-" + lineNumber;
+            try {
+                JsonNode node = objectMapper.readTree(line);
+                id = node.path("id").asText(id);
+                String format = node.path("format").asText("csv").toUpperCase(Locale.ROOT);
+                JsonNode content = node.get("content");
+                if (content == null || !content.isTextual()) {
+                    return BatchJob.invalid(id, "Missing content");
+                }
+                if (BatchJob.Format.BINARY.name().equals(format)) {
+                    return BatchJob.of(id, BatchJob.Format.BINARY, Base64.getDecoder().decode(content.asText()));
+                }
+                if (BatchJob.Format.CSV.name().equals(format)) {
+                    return BatchJob.of(id, BatchJob.Format.CSV, content.asText().getBytes(StandardCharsets.UTF_8));
+                }
+                return BatchJob.invalid(id, "Unknown format: " + format);
+            } catch (IOException | IllegalArgumentException e) {
+                return BatchJob.invalid(id, "Invalid line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+    }
+}
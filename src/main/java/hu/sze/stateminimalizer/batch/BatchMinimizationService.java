@@ -0,0 +1,245 @@
+package hu.sze.stateminimalizer.batch;
+
+import hu.sze.stateminimalizer.dfa.BinaryDFAProcessor;
+import hu.sze.stateminimalizer.dfa.CSVToDFAProcessor;
+import hu.sze.stateminimalizer.dfa.MinimizationMetrics;
+import hu.sze.stateminimalizer.dfa.MinimizationService;
+import hu.sze.stateminimalizer.dfa.MinimizerProperties;
+import hu.sze.stateminimalizer.dfa.SymbolClasses;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Minimizes batches of automata in parallel. The executor and the permits are shared by all running batches: a batch
+ * only takes its next job when fewer than {@code batchThreads + batchQueueCapacity} jobs are in flight, so a large
+ * request is read at the pace the minimization keeps up with. On virtual threads every admitted job runs at once.
+ * Results are passed on in the order the jobs finish.
+ */
+@Service
+public class BatchMinimizationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchMinimizationService.class);
+    private static final long POLL_INTERVAL_MILLIS = 50;
+
+    private final MinimizerProperties properties;
+    private final MinimizationService minimizationService;
+    private final MinimizationMetrics metrics;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long timeoutNanos;
+
+    public BatchMinimizationService(MinimizerProperties properties, MinimizationService minimizationService,
+                                    MinimizationMetrics metrics) {
+        this.properties = properties;
+        this.minimizationService = minimizationService;
+        this.metrics = metrics;
+        int threads = Math.max(1, properties.getBatchThreads());
+        this.executor = createExecutor(properties.isBatchVirtualThreads(), threads);
+        this.permits = new Semaphore(threads + Math.max(0, properties.getBatchQueueCapacity()));
+        this.timeoutNanos = properties.getBatchTimeout().toNanos();
+    }
+
+    /**
+     * Runs the jobs and passes every result to the consumer on the calling thread. Jobs that are still running when the
+     * consumer or the iterator throws are cancelled.
+     */
+    public void minimizeAll(Iterator<BatchJob> jobs, Consumer<BatchResult> results) throws InterruptedException {
+        CompletionService<BatchResult> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<BatchResult>, RunningJob> running = new HashMap<>();
+        try {
+            while (jobs.hasNext()) {
+                BatchJob job = jobs.next();
+                if (job.getError() != null) {
+                    results.accept(BatchResult.error(job.getId(), 0, job.getError()));
+                    continue;
+                }
+                // backpressure: the next job is only read when there is room for it
+                while (!permits.tryAcquire(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    drain(completionService, running, results, false);
+                }
+                submit(completionService, running, job);
+                drain(completionService, running, results, false);
+            }
+            while (!running.isEmpty()) {
+                drain(completionService, running, results, true);
+            }
+        } finally {
+            for (Map.Entry<Future<BatchResult>, RunningJob> entry : running.entrySet()) {
+                cancel(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void submit(CompletionService<BatchResult> completionService, Map<Future<BatchResult>, RunningJob> running,
+                        BatchJob job) {
+        RunningJob runningJob = new RunningJob(job.getId());
+        try {
+            Future<BatchResult> future = completionService.submit(() -> {
+                // a job cancelled before it started has its permit released by the canceller
+                if (runningJob.started.getAndSet(true)) {
+                    return null;
+                }
+                runningJob.startNanos = System.nanoTime();
+                try {
+                    return minimize(job);
+                } finally {
+                    permits.release();
+                }
+            });
+            running.put(future, runningJob);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Passes on the finished results and the timed out jobs, when blocking it waits at most until the next deadline.
+     * The timeout of a job counts from its start, not from the time it waited for a thread.
+     */
+    private void drain(CompletionService<BatchResult> completionService, Map<Future<BatchResult>, RunningJob> running,
+                       Consumer<BatchResult> results, boolean block) throws InterruptedException {
+        Future<BatchResult> future;
+        if (block) {
+            long now = System.nanoTime();
+            long waitNanos = TimeUnit.MILLISECONDS.toNanos(POLL_INTERVAL_MILLIS);
+            for (RunningJob runningJob : running.values()) {
+                if (runningJob.startNanos != 0) {
+                    waitNanos = Math.min(waitNanos, runningJob.startNanos + timeoutNanos - now);
+                }
+            }
+            future = completionService.poll(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+        } else {
+            future = completionService.poll();
+        }
+        for (; future != null; future = completionService.poll()) {
+            // cancelled jobs are queued as well, they were already reported
+            RunningJob runningJob = running.remove(future);
+            if (runningJob != null) {
+                results.accept(getResult(future, runningJob));
+            }
+        }
+
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Future<BatchResult>, RunningJob>> iterator = running.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Future<BatchResult>, RunningJob> entry = iterator.next();
+            RunningJob runningJob = entry.getValue();
+            if (runningJob.startNanos != 0 && now - runningJob.startNanos >= timeoutNanos) {
+                iterator.remove();
+                cancel(entry.getKey(), runningJob);
+                log.warn("Batch job {} timed out", runningJob.id);
+                results.accept(BatchResult.timeout(runningJob.id, TimeUnit.NANOSECONDS.toMillis(timeoutNanos)));
+            }
+        }
+    }
+
+    private void cancel(Future<BatchResult> future, RunningJob runningJob) {
+        future.cancel(true);
+        if (!runningJob.started.getAndSet(true)) {
+            permits.release();
+        }
+    }
+
+    private BatchResult getResult(Future<BatchResult> future, RunningJob runningJob) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            log.debug("Batch job {} failed", runningJob.id, cause);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runningJob.startNanos);
+            return BatchResult.error(runningJob.id, millis, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+        }
+    }
+
+    private BatchResult minimize(BatchJob job) throws IOException {
+        long start = System.nanoTime();
+        CompactDFA input;
+        if (job.getFormat() == BatchJob.Format.BINARY) {
+            input = new BinaryDFAProcessor().readBinaryToCompactDfa(ByteBuffer.wrap(job.getContent()));
+        } else {
+            input = new CSVToDFAProcessor(metrics).readCSVToCompactDfa(Channels.newChannel(new ByteArrayInputStream(job.getContent())));
+        }
+        if (properties.isCompressAlphabet()) {
+            SymbolClasses symbolClasses = SymbolClasses.of(input);
+            if (symbolClasses.isCompressing()) {
+                input = symbolClasses.compress(input);
+            }
+        }
+        DFA minimalDfa = minimizationService.minimize(input.toDFA()).getMinimalDfa();
+        CompactDFA minimal = CompactDFA.fromDFA(minimalDfa);
+
+        String content;
+        if (job.getFormat() == BatchJob.Format.BINARY) {
+            content = Base64.getEncoder().encodeToString(new BinaryDFAProcessor().writeBinary(minimal));
+        } else {
+            content = new String(new CSVToDFAProcessor().writeCSV(minimal).readAllBytes());
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return BatchResult.ok(job.getId(), job.getFormat(), input.getStateCount(), minimal.getStateCount(), millis, content);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Virtual threads are looked up reflectively, the application still targets Java 11.
+     */
+    private static ExecutorService createExecutor(boolean virtualThreads, int threads) {
+        if (virtualThreads) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (NoSuchMethodException e) {
+                log.debug("No virtual threads on Java {}, using {} platform threads", System.getProperty("java.version"), threads);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Could not create the virtual thread executor, using {} platform threads", threads, e);
+            }
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "batch-minimizer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, threadFactory);
+    }
+
+    private static class RunningJob {
+        private final String id;
+        private final AtomicBoolean started = new AtomicBoolean();
+        // 0 until a thread picks the job up
+        private volatile long startNanos;
+
+        private RunningJob(String id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package hu.sze.stateminimalizer.batch;
+
+/**
+ * Outcome of one batch job, written as one line of the streamed response. The minimal automaton is returned in the
+ * format of the input, binary content is Base64 encoded.
+ */
+public final class BatchResult {
+
+    public enum Status {
+        OK,
+        ERROR,
+        TIMEOUT
+    }
+
+    private final String id;
+    private final Status status;
+    private final BatchJob.Format format;
+    private final int stateCount;
+    private final int minimalStateCount;
+    private final long millis;
+    private final String content;
+    private final String message;
+
+    private BatchResult(String id, Status status, BatchJob.Format format, int stateCount, int minimalStateCount,
+                        long millis, String content, String message) {
+        this.id = id;
+        this.status = status;
+        this.format = format;
+        this.stateCount = stateCount;
+        this.minimalStateCount = minimalStateCount;
+        this.millis = millis;
+        this.content = content;
+        this.message = message;
+    }
+
+    public static BatchResult ok(String id, BatchJob.Format format, int stateCount, int minimalStateCount, long millis,
+                                 String content) {
+        return new BatchResult(id, Status.OK, format, stateCount, minimalStateCount, millis, content, null);
+    }
+
+    public static BatchResult error(String id, long millis, String message) {
+        return new BatchResult(id, Status.ERROR, null, 0, 0, millis, null, message);
+    }
+
+    public static BatchResult timeout(String id, long millis) {
+        return new BatchResult(id, Status.TIMEOUT, null, 0, 0, millis, null, "Minimization did not finish in time");
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public BatchJob.Format getFormat() {
+        return format;
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public int getMinimalStateCount() {
+        return minimalStateCount;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,239 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * Versioned little-endian binary format of a {@link CompactDFA}:
+ * <pre>
+ * int magic "DFAB", int version, int stateCount, int symbolCount, int initialState,
+ * symbols and state names as (int byteLength, UTF-8 bytes), -1 length for a missing name,
+ * int[stateCount] state ids, int wordCount + long[wordCount] final state bitset,
+ * int[stateCount * symbolCount] transition table
+ * </pre>
+ * Files are read and written through memory mappings, the int and long sections are bulk copied.
+ * The content may come from a client, so every count and length is checked against the remaining bytes before it is
+ * allocated, and the initial state, the targets and the state ids are checked before they are used as indexes.
+ */
+public class BinaryDFAProcessor {
+
+    public static final int MAGIC = 0x44464142; //DFAB
+    public static final int VERSION = 1;
+
+    /**
+     * @return whether the content starts with the magic number of the binary format
+     */
+    public static boolean isBinary(byte[] content) {
+        return content.length >= Integer.BYTES
+                && ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN).getInt(0) == MAGIC;
+    }
+
+    public CompactDFA readBinaryToCompactDfa(Path path) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (fileChannel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary DFA file is larger than 2 GB: " + path);
+            }
+            return readBinaryToCompactDfa(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()));
+        }
+    }
+
+    public CompactDFA readBinaryToCompactDfa(InputStream inputStream) throws IOException {
+        return readBinaryToCompactDfa(ByteBuffer.wrap(inputStream.readAllBytes()));
+    }
+
+    /**
+     * @throws IOException if the content is not a complete and consistent binary DFA
+     */
+    public CompactDFA readBinaryToCompactDfa(ByteBuffer content) throws IOException {
+        ByteBuffer buffer = content.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 20 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary DFA file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary DFA version: " + version);
+        }
+        int stateCount = buffer.getInt();
+        int symbolCount = buffer.getInt();
+        int initialState = buffer.getInt();
+        //a symbol takes at least its length, a state its name length and its id
+        checkCount(buffer, symbolCount, Integer.BYTES, "symbol count");
+        checkCount(buffer, stateCount, 2 * Integer.BYTES, "state count");
+        checkState(initialState, stateCount, "initial state");
+        String[] symbols = readStrings(buffer, symbolCount);
+        for (String symbol : symbols) {
+            if (symbol == null) {
+                throw new IOException("Missing input symbol");
+            }
+        }
+        String[] stateNames = readStrings(buffer, stateCount);
+        int[] stateIds = readInts(buffer, stateCount);
+        for (int stateId : stateIds) {
+            if (stateId < 0) {
+                throw new IOException("Negative state id: " + stateId);
+            }
+        }
+        int wordCount = readInt(buffer, "final state word count");
+        checkCount(buffer, wordCount, Long.BYTES, "final state word count");
+        long[] finalStateWords = new long[wordCount];
+        buffer.asLongBuffer().get(finalStateWords);
+        buffer.position(buffer.position() + wordCount * Long.BYTES);
+        BitSet finalStates = BitSet.valueOf(finalStateWords);
+        if (finalStates.length() > stateCount) {
+            throw new IOException("Final state " + (finalStates.length() - 1) + " is out of the " + stateCount + " states");
+        }
+        int[] transitions = readInts(buffer, (long) stateCount * symbolCount);
+        for (int target : transitions) {
+            checkState(target, stateCount, "transition target");
+        }
+        return new CompactDFA(symbols, stateNames, stateIds, transitions, finalStates, initialState);
+    }
+
+    public void writeBinary(CompactDFA dfa, Path path) throws IOException {
+        long size = getBinarySize(dfa);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Binary DFA would be larger than 2 GB");
+        }
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            writeBinary(dfa, buffer);
+            buffer.force();
+        }
+    }
+
+    public byte[] writeBinary(CompactDFA dfa) {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(getBinarySize(dfa)));
+        writeBinary(dfa, buffer);
+        return buffer.array();
+    }
+
+    private void writeBinary(CompactDFA dfa, ByteBuffer target) {
+        ByteBuffer buffer = target.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(dfa.getStateCount());
+        buffer.putInt(dfa.getSymbolCount());
+        buffer.putInt(dfa.getInitialState());
+        for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+            writeString(buffer, dfa.getSymbol(symbol));
+        }
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            writeString(buffer, dfa.getStateName(state));
+        }
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            buffer.putInt(dfa.getStateId(state));
+        }
+        long[] finalStateWords = dfa.getFinalStates().toLongArray();
+        buffer.putInt(finalStateWords.length);
+        buffer.asLongBuffer().put(finalStateWords);
+        buffer.position(buffer.position() + finalStateWords.length * Long.BYTES);
+        IntBuffer transitions = buffer.asIntBuffer();
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+                transitions.put(dfa.getTarget(state, symbol));
+            }
+        }
+        buffer.position(buffer.position() + transitions.position() * Integer.BYTES);
+    }
+
+    private long getBinarySize(CompactDFA dfa) {
+        long size = 5L * Integer.BYTES;
+        for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+            size += Integer.BYTES + dfa.getSymbol(symbol).getBytes(StandardCharsets.UTF_8).length;
+        }
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            String stateName = dfa.getStateName(state);
+            size += Integer.BYTES + (stateName != null ? stateName.getBytes(StandardCharsets.UTF_8).length : 0);
+        }
+        size += (long) dfa.getStateCount() * Integer.BYTES;
+        size += Integer.BYTES + (long) dfa.getFinalStates().toLongArray().length * Long.BYTES;
+        size += (long) dfa.getStateCount() * dfa.getSymbolCount() * Integer.BYTES;
+        return size;
+    }
+
+    private void writeString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * The whole string section is copied out of the (possibly mapped) buffer at once and decoded from that copy.
+     */
+    private String[] readStrings(ByteBuffer buffer, int count) throws IOException {
+        int sectionStart = buffer.position();
+        long position = sectionStart;
+        for (int i = 0; i < count; i++) {
+            if (position + Integer.BYTES > buffer.limit()) {
+                throw new IOException("Truncated binary DFA file: string " + i + " of " + count + " is missing");
+            }
+            int length = buffer.getInt((int) position);
+            if (length < -1 || position + Integer.BYTES + Math.max(0, length) > buffer.limit()) {
+                throw new IOException("Invalid length of string " + i + ": " + length);
+            }
+            position += Integer.BYTES + Math.max(0, length);
+        }
+        byte[] section = new byte[(int) (position - sectionStart)];
+        buffer.get(section);
+        ByteBuffer sectionBuffer = ByteBuffer.wrap(section).order(ByteOrder.LITTLE_ENDIAN);
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = sectionBuffer.getInt();
+            if (length >= 0) {
+                values[i] = new String(section, sectionBuffer.position(), length, StandardCharsets.UTF_8);
+                sectionBuffer.position(sectionBuffer.position() + length);
+            }
+        }
+        return values;
+    }
+
+    private int[] readInts(ByteBuffer buffer, long count) throws IOException {
+        checkCount(buffer, count, Integer.BYTES, "int section length");
+        int[] values = new int[(int) count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    private int readInt(ByteBuffer buffer, String name) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            throw new IOException("Truncated binary DFA file: " + name + " is missing");
+        }
+        return buffer.getInt();
+    }
+
+    /**
+     * Checks a count read from the content before anything of that size is allocated.
+     */
+    private static void checkCount(ByteBuffer buffer, long count, int minBytesEach, String name) throws IOException {
+        if (count < 0) {
+            throw new IOException("Negative " + name + ": " + count);
+        }
+        if (count > buffer.remaining() / minBytesEach) {
+            throw new IOException("Truncated binary DFA file: " + name + " " + count + " needs more than the "
+                    + buffer.remaining() + " bytes left");
+        }
+    }
+
+    private static void checkState(int state, int stateCount, String name) throws IOException {
+        if (state < CompactDFA.NO_TRANSITION || state >= stateCount) {
+            throw new IOException("Invalid " + name + " " + state + " of " + stateCount + " states");
+        }
+    }
+}
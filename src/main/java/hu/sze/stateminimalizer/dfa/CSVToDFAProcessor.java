@@ -1,30 +1,116 @@
 package hu.sze.stateminimalizer.dfa;
 
-import com.opencsv.CSVReader;
 import com.opencsv.CSVWriter;
+import hu.sze.stateminimalizer.dfa.MinimizationMetrics.Phase;
+import hu.sze.stateminimalizer.dfa.MinimizationMetrics.PhaseScope;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import hu.sze.stateminimalizer.dfa.model.CompactNFA;
 import hu.sze.stateminimalizer.dfa.model.DFA;
-import hu.sze.stateminimalizer.dfa.model.State;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 public class CSVToDFAProcessor {
 
+    private static final char SEPARATOR = ';';
+    private static final char QUOTE = '"';
+    private static final String HEADER_FIRST_CELL = "States\\Input symbols";
+    private static final String HEADER_LAST_CELL = "Final state?";
+    private static final String FINAL_STATE_MARK = "t";
+    /** header of the column listing the ε-targets of a nondeterministic automaton */
+    public static final String EPSILON_SYMBOL = "ε";
+    /**
+     * separates the targets of a nondeterministic cell; a cell with a comma is still a single target if a row has exactly
+     * that name, like the merged state {q1,q3} of a minimal automaton, and a list of targets otherwise
+     */
+    private static final char TARGET_SEPARATOR = ',';
+    private static final Logger log = LoggerFactory.getLogger(CSVToDFAProcessor.class);
+
+    private final MinimizationMetrics metrics;
+    private boolean minimizeNfa;
+    private boolean compressAlphabet;
+
+    public CSVToDFAProcessor() {
+        this(MinimizationMetrics.disabled());
+    }
+
+    public CSVToDFAProcessor(MinimizationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param minimizeNfa minimize a nondeterministic input right after its determinization, on the transition table
+     *                    of the subset automaton; the pair table of {@link Minimizer} is then the one of the minimal
+     *                    automaton
+     */
+    public void setMinimizeNfa(boolean minimizeNfa) {
+        this.minimizeNfa = minimizeNfa;
+    }
+
+    /**
+     * @param compressAlphabet replace the input symbols by their {@link SymbolClasses}, the automaton then has one
+     *                         range or {@code |} labelled symbol per class
+     */
+    public void setCompressAlphabet(boolean compressAlphabet) {
+        this.compressAlphabet = compressAlphabet;
+    }
+
     public DFA readCSVToDfa(InputStream inputStream) throws IOException {
-        CSVReader csvReader = new CSVReader(new InputStreamReader(inputStream), ';', '"');
-        return processCSVInputData(csvReader.readAll());
+        return readCSVToCompactDfa(Channels.newChannel(inputStream)).toDFA();
+    }
+
+    public CompactDFA readCSVToCompactDfa(ReadableByteChannel channel) throws IOException {
+        return processCSVInputData(new CsvRowReader(channel, SEPARATOR, QUOTE));
+    }
+
+    /**
+     * Reads the file through a memory mapping, files over 2 GB are streamed through the channel instead.
+     */
+    public CompactDFA readCSVToCompactDfa(Path path) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (fileChannel.size() > Integer.MAX_VALUE) {
+                return readCSVToCompactDfa(fileChannel);
+            }
+            return processCSVInputData(new CsvRowReader(fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size()), SEPARATOR, QUOTE));
+        }
     }
+
+    /**
+     * Reads an uploaded file without loading it on the heap: an uncompressed file through the memory mapping,
+     * a gzip or zstd compressed one streamed through the decompressor.
+     * @param maxBytes limit of the uncompressed content
+     */
+    public CompactDFA readCSVFile(Path path, long maxBytes) throws IOException {
+        if (!CompressedInputs.isCompressed(path)) {
+            if (Files.size(path) > maxBytes) {
+                throw new IOException("The input is larger than " + maxBytes + " bytes");
+            }
+            return readCSVToCompactDfa(path);
+        }
+        try (InputStream inputStream = CompressedInputs.decompress(Files.newInputStream(path), maxBytes)) {
+            return readCSVToCompactDfa(Channels.newChannel(inputStream));
+        }
+    }
+
     public InputStream writeCSV(List<String[]> data) {
 
         try {
@@ -36,55 +122,234 @@ public class CSVToDFAProcessor {
             return new ByteArrayInputStream(outputStream.toByteArray());
 
         } catch (IOException e) {
-            e.printStackTrace();
+            log.error("Could not write the CSV", e);
         }
         return null;
     }
-    private DFA processCSVInputData(List<String[]> allRows) {
-        Map<String, State> stateNameMap = new LinkedHashMap<>(); //order matters
 
-        String[] headerContent = allRows.get(0);
+    /**
+     * Writes the automaton in the same layout that {@link #readCSVToDfa(InputStream)} reads: header with the input symbols,
+     * one row per state with the target names and a final state mark in the last column.
+     */
+    public InputStream writeCSV(CompactDFA dfa) {
+        List<String[]> rows = new ArrayList<>(dfa.getStateCount() + 1);
+        String[] header = new String[dfa.getSymbolCount() + 2];
+        header[0] = HEADER_FIRST_CELL;
+        for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+            header[symbol + 1] = dfa.getSymbol(symbol);
+        }
+        header[header.length - 1] = HEADER_LAST_CELL;
+        rows.add(header);
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            String[] row = new String[header.length];
+            row[0] = dfa.getStateName(state);
+            for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+                int target = dfa.getTarget(state, symbol);
+                row[symbol + 1] = target != CompactDFA.NO_TRANSITION ? dfa.getStateName(target) : "";
+            }
+            row[row.length - 1] = dfa.isFinal(state) ? FINAL_STATE_MARK : "";
+            rows.add(row);
+        }
+        return writeCSV(rows);
+    }
+
+    private CompactDFA processCSVInputData(CsvRowReader csvReader) throws IOException {
+        try (PhaseScope scope = metrics.start(Phase.PARSE, 0)) {
+            CompactDFA dfa = parseRows(csvReader);
+            if (compressAlphabet) {
+                SymbolClasses symbolClasses = SymbolClasses.of(dfa);
+                if (symbolClasses.isCompressing()) {
+                    log.debug("Alphabet compressed from {} symbols to {} classes", dfa.getSymbolCount(), symbolClasses.getClassCount());
+                    dfa = symbolClasses.compress(dfa);
+                }
+            }
+            scope.setStateCount(dfa.getStateCount());
+            return dfa;
+        }
+    }
+
+    /**
+     * Single pass over the rows. State names get an index when they are first seen, as a row or as a target,
+     * and the transitions are stored with these indexes. After the last row the indexes are replaced
+     * by the row numbers, targets without a row become missing transitions.
+     * A cell may list several targets separated by commas and an {@link #EPSILON_SYMBOL} column may hold ε-targets,
+     * these are collected as (row, symbol, target) triples and the automaton is determinized at the end.
+     * A cell with commas is a single target if a row has that name, e.g. a merged state {q1,q2} of a minimal automaton,
+     * so these cells are resolved after the last row.
+     */
+    private CompactDFA parseRows(CsvRowReader csvReader) throws IOException {
+        List<String> row = new ArrayList<>();
+        if (!csvReader.readRow(row)) {
+            throw new IOException("Missing header row");
+        }
         //input symbols are between the 1st and tha last column
-        List<String> inputSymbolList = Arrays.asList(headerContent).subList(1, headerContent.length-1);
-        Set<String> inputSymbols = new LinkedHashSet<>(inputSymbolList); //filter out duplicates
-
-        for (int i = 1; i <allRows.size(); i++) {
-            stateNameMap.put(allRows.get(i)[0], new State(i-1));
-        }
-        System.out.println(stateNameMap);
-        State[] states = new State[stateNameMap.size()];
-        Set<Integer> finalStatesIds = new LinkedHashSet<>();
-        processStateFromCSV(allRows, stateNameMap, inputSymbolList, states, finalStatesIds);
-        System.out.println(stateNameMap);
-        System.out.println(finalStatesIds);
-
-        DFA dfa = new DFA();
-        dfa.getStates().addAll(Arrays.asList(states));
-        dfa.getInputSymbols().addAll(inputSymbols);
-        dfa.getFinalStateIds().addAll(finalStatesIds);
-        return dfa;
+        Map<String, Integer> symbolIndexes = new LinkedHashMap<>(); //order matters, filters out duplicates
+        int[] symbolsByColumn = new int[Math.max(0, row.size() - 2)];
+        boolean hasEpsilonColumn = false;
+        for (int column = 0; column < symbolsByColumn.length; column++) {
+            if (EPSILON_SYMBOL.equals(row.get(column + 1))) {
+                symbolsByColumn[column] = NondeterministicTransitions.EPSILON;
+                hasEpsilonColumn = true;
+            } else {
+                symbolsByColumn[column] = symbolIndexes.computeIfAbsent(row.get(column + 1), symbol -> symbolIndexes.size());
+            }
+        }
+        int symbolCount = symbolIndexes.size();
+        NondeterministicTransitions nondeterministicTransitions = new NondeterministicTransitions();
+
+        Map<String, Integer> nameIndexes = new HashMap<>();
+        IntList rowsByNameIndex = new IntList(1024);
+        IntList transitions = new IntList(1024 * Math.max(symbolCount, 1));
+        List<String> stateNames = new ArrayList<>();
+        BitSet finalStates = new BitSet();
+        IntList listCells = new IntList(16); //row and symbol of the cells with commas
+        List<String> listCellTargets = new ArrayList<>();
+        while (csvReader.readRow(row)) {
+            if (row.size() == 1 && row.get(0).isEmpty()) { //blank line
+                continue;
+            }
+            int rowIndex = stateNames.size();
+            stateNames.add(row.get(0));
+            rowsByNameIndex.set(getNameIndex(row.get(0), nameIndexes, rowsByNameIndex), rowIndex);
+            transitions.addRepeated(CompactDFA.NO_TRANSITION, symbolCount);
+            for (int column = 0; column < symbolsByColumn.length && column < row.size() - 1; column++) {
+                String targetStateName = row.get(column + 1);
+                if (targetStateName.isEmpty()) { //no transition
+                    continue;
+                }
+                if (symbolsByColumn[column] == NondeterministicTransitions.EPSILON) {
+                    addTargets(nondeterministicTransitions, rowIndex, symbolsByColumn[column], targetStateName, nameIndexes, rowsByNameIndex);
+                } else if (targetStateName.indexOf(TARGET_SEPARATOR) >= 0) {
+                    listCells.add(rowIndex);
+                    listCells.add(symbolsByColumn[column]);
+                    listCellTargets.add(targetStateName);
+                } else {
+                    transitions.set(rowIndex * symbolCount + symbolsByColumn[column], getNameIndex(targetStateName, nameIndexes, rowsByNameIndex));
+                }
+            }
+            if (!StringUtils.isEmpty(row.get(row.size() - 1))) { //last column has content
+                finalStates.set(rowIndex);
+            }
+        }
+
+        for (int i = 0; i < listCellTargets.size(); i++) {
+            int rowIndex = listCells.get(2 * i);
+            int symbol = listCells.get(2 * i + 1);
+            Integer nameIndex = nameIndexes.get(listCellTargets.get(i));
+            if (nameIndex != null && rowsByNameIndex.get(nameIndex) != CompactDFA.NO_TRANSITION) {
+                transitions.set(rowIndex * symbolCount + symbol, nameIndex);
+            } else {
+                addTargets(nondeterministicTransitions, rowIndex, symbol, listCellTargets.get(i), nameIndexes, rowsByNameIndex);
+            }
+        }
+
+        int[] transitionTable = transitions.toArray();
+        for (int i = 0; i < transitionTable.length; i++) {
+            if (transitionTable[i] != CompactDFA.NO_TRANSITION) {
+                transitionTable[i] = rowsByNameIndex.get(transitionTable[i]);
+            }
+        }
+        if (hasEpsilonColumn || nondeterministicTransitions.size() > 0) {
+            CompactNFA nfa = nondeterministicTransitions.toNfa(symbolIndexes.keySet().toArray(new String[0]),
+                    stateNames.toArray(new String[0]), transitionTable, rowsByNameIndex, finalStates);
+            return minimizeNfa ? new NfaDeterminizer().determinizeAndMinimize(nfa) : new NfaDeterminizer().determinize(nfa);
+        }
+        int[] stateIds = new int[stateNames.size()];
+        for (int stateIndex = 0; stateIndex < stateIds.length; stateIndex++) {
+            stateIds[stateIndex] = stateIndex;
+        }
+        return new CompactDFA(symbolIndexes.keySet().toArray(new String[0]), stateNames.toArray(new String[0]), stateIds,
+                transitionTable, finalStates, stateIds.length > 0 ? DFA.INITIAL_STATE_ID : CompactDFA.NO_TRANSITION);
     }
 
-    private void processStateFromCSV(List<String[]> allRows, Map<String, State> stateNameMap, List<String> inputSymbolList, State[] states, Set<Integer> finalStates) {
-        for (int rowIndex = 1; rowIndex < allRows.size(); rowIndex++) { //skip header
-            String[] row = allRows.get(rowIndex);
-            State state = stateNameMap.get(row[0]);
-            state.setName(row[0]);
-            fillStateTransitions(stateNameMap, inputSymbolList, row, state);
-            states[rowIndex-1] = state;
-            if(!StringUtils.isEmpty(row[row.length-1])){ //last column has content
-                finalStates.add(state.getId());
+    private void addTargets(NondeterministicTransitions nondeterministicTransitions, int rowIndex, int symbol,
+                            String targetStateNames, Map<String, Integer> nameIndexes, IntList rowsByNameIndex) {
+        for (String targetName : StringUtils.split(targetStateNames, TARGET_SEPARATOR)) {
+            if (!targetName.trim().isEmpty()) {
+                nondeterministicTransitions.add(rowIndex, symbol, getNameIndex(targetName.trim(), nameIndexes, rowsByNameIndex));
             }
         }
     }
 
-    private void fillStateTransitions(Map<String, State> stateNameMap, List<String> inputSymbolList, String[] row, State state) {
-        for(int inputSymbolIndex = 0; inputSymbolIndex < inputSymbolList.size(); inputSymbolIndex++){
-            String targetStateId = inputSymbolIndex < row.length-1  ? row[inputSymbolIndex+1] : null;
-            State targetState = stateNameMap.get(targetStateId);
-            if (targetState != null) { //has transition
-                state.getTransitions().put(inputSymbolList.get(inputSymbolIndex), targetState);
+    private int getNameIndex(String stateName, Map<String, Integer> nameIndexes, IntList rowsByNameIndex) {
+        Integer nameIndex = nameIndexes.get(stateName);
+        if (nameIndex == null) {
+            nameIndex = rowsByNameIndex.size();
+            nameIndexes.put(stateName, nameIndex);
+            rowsByNameIndex.add(CompactDFA.NO_TRANSITION); //no row yet
+        }
+        return nameIndex;
+    }
+
+    /**
+     * Transitions of the cells with several targets and of the ε column, as (row, symbol, name index) triples.
+     */
+    private static final class NondeterministicTransitions {
+        private static final int EPSILON = -1;
+
+        private final IntList triples = new IntList(64);
+
+        void add(int rowIndex, int symbol, int nameIndex) {
+            triples.add(rowIndex);
+            triples.add(symbol);
+            triples.add(nameIndex);
+        }
+
+        int size() {
+            return triples.size() / 3;
+        }
+
+        /**
+         * Merges the triples with the single targets of the table, both counted into offset arrays by (row, symbol).
+         */
+        CompactNFA toNfa(String[] symbols, String[] stateNames, int[] transitionTable, IntList rowsByNameIndex, BitSet finalStates) {
+            int stateCount = stateNames.length;
+            int symbolCount = symbols.length;
+            int[] transitionOffsets = new int[stateCount * symbolCount + 1];
+            int[] epsilonOffsets = new int[stateCount + 1];
+            for (int i = 0; i < transitionTable.length; i++) {
+                if (transitionTable[i] != CompactDFA.NO_TRANSITION) {
+                    transitionOffsets[i + 1]++;
+                }
+            }
+            for (int i = 0; i < triples.size(); i += 3) {
+                if (rowsByNameIndex.get(triples.get(i + 2)) == CompactDFA.NO_TRANSITION) {
+                    continue; //target without a row
+                }
+                if (triples.get(i + 1) == EPSILON) {
+                    epsilonOffsets[triples.get(i) + 1]++;
+                } else {
+                    transitionOffsets[triples.get(i) * symbolCount + triples.get(i + 1) + 1]++;
+                }
+            }
+            for (int i = 1; i < transitionOffsets.length; i++) {
+                transitionOffsets[i] += transitionOffsets[i - 1];
+            }
+            for (int i = 1; i < epsilonOffsets.length; i++) {
+                epsilonOffsets[i] += epsilonOffsets[i - 1];
+            }
+            int[] targets = new int[transitionOffsets[transitionOffsets.length - 1]];
+            int[] epsilonTargets = new int[epsilonOffsets[stateCount]];
+            int[] nextTarget = Arrays.copyOf(transitionOffsets, transitionOffsets.length - 1);
+            int[] nextEpsilonTarget = Arrays.copyOf(epsilonOffsets, stateCount);
+            for (int i = 0; i < transitionTable.length; i++) {
+                if (transitionTable[i] != CompactDFA.NO_TRANSITION) {
+                    targets[nextTarget[i]++] = transitionTable[i];
+                }
+            }
+            for (int i = 0; i < triples.size(); i += 3) {
+                int target = rowsByNameIndex.get(triples.get(i + 2));
+                if (target == CompactDFA.NO_TRANSITION) {
+                    continue;
+                }
+                if (triples.get(i + 1) == EPSILON) {
+                    epsilonTargets[nextEpsilonTarget[triples.get(i)]++] = target;
+                } else {
+                    targets[nextTarget[triples.get(i) * symbolCount + triples.get(i + 1)]++] = target;
+                }
             }
+            return new CompactNFA(symbols, stateNames, transitionOffsets, targets, epsilonOffsets, epsilonTargets,
+                    finalStates, stateCount > 0 ? DFA.INITIAL_STATE_ID : CompactDFA.NO_TRANSITION);
         }
     }
 }
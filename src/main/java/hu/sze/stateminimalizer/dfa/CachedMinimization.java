@@ -0,0 +1,46 @@
+package hu.sze.stateminimalizer.dfa;
+
+/**
+ * Minimization result stored in the {@link MinimizationCache}, indexed by {@link CanonicalForm} state numbers.
+ * The mark tables are only present for the table filling engine. Instances are never modified after creation.
+ */
+final class CachedMinimization {
+
+    private static final long OBJECT_OVERHEAD_BYTES = 64;
+
+    private final int[] blocks;
+    private final MarkTable redMarked;
+    private final MarkTable blueMarked;
+    private final MarkTable marked;
+
+    CachedMinimization(int[] blocks, MarkTable redMarked, MarkTable blueMarked, MarkTable marked) {
+        this.blocks = blocks;
+        this.redMarked = redMarked;
+        this.blueMarked = blueMarked;
+        this.marked = marked;
+    }
+
+    int getBlock(int canonicalIndex) {
+        return blocks[canonicalIndex];
+    }
+
+    MarkTable getRedMarked() {
+        return redMarked;
+    }
+
+    MarkTable getBlueMarked() {
+        return blueMarked;
+    }
+
+    MarkTable getMarked() {
+        return marked;
+    }
+
+    long getSizeInBytes() {
+        long size = OBJECT_OVERHEAD_BYTES + (long) blocks.length * Integer.BYTES;
+        if (marked != null) {
+            size += 3 * (OBJECT_OVERHEAD_BYTES + (MarkTable.pairCount(blocks.length) + 63) / 64 * Long.BYTES);
+        }
+        return size;
+    }
+}
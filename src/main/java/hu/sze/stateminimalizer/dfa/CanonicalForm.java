@@ -0,0 +1,126 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Numbering of the states that does not depend on state names or row order:
+ * breadth-first search from the initial state, visiting the symbols in alphabetical order.
+ * Two automata that differ only in names and order get the same SHA-256 hash of the renumbered table.
+ * States not reachable from the initial state are left out, so it is meant for reduced automata.
+ */
+public final class CanonicalForm {
+
+    private static final int DIGEST_BUFFER_SIZE = 1 << 13;
+
+    private final String hash;
+    private final int[] canonicalIndexes; //state index -> canonical index, -1 if unreachable
+    private final int[] states; //canonical index -> state index
+
+    private CanonicalForm(String hash, int[] canonicalIndexes, int[] states) {
+        this.hash = hash;
+        this.canonicalIndexes = canonicalIndexes;
+        this.states = states;
+    }
+
+    public static CanonicalForm of(CompactDFA dfa) {
+        int stateCount = dfa.getStateCount();
+        Integer[] sortedSymbols = new Integer[dfa.getSymbolCount()];
+        for (int symbol = 0; symbol < sortedSymbols.length; symbol++) {
+            sortedSymbols[symbol] = symbol;
+        }
+        Arrays.sort(sortedSymbols, Comparator.comparing(dfa::getSymbol));
+
+        int[] canonicalIndexes = new int[stateCount];
+        Arrays.fill(canonicalIndexes, -1);
+        int[] states = new int[stateCount];
+        int reachedCount = 0;
+        if (dfa.getInitialState() != CompactDFA.NO_TRANSITION) {
+            canonicalIndexes[dfa.getInitialState()] = reachedCount;
+            states[reachedCount++] = dfa.getInitialState();
+        }
+        for (int head = 0; head < reachedCount; head++) { //states doubles as the BFS queue
+            for (int symbol : sortedSymbols) {
+                int target = dfa.getTarget(states[head], symbol);
+                if (target != CompactDFA.NO_TRANSITION && canonicalIndexes[target] == -1) {
+                    canonicalIndexes[target] = reachedCount;
+                    states[reachedCount++] = target;
+                }
+            }
+        }
+        int[] reachedStates = Arrays.copyOf(states, reachedCount);
+        return new CanonicalForm(hash(dfa, sortedSymbols, canonicalIndexes, reachedStates), canonicalIndexes, reachedStates);
+    }
+
+    private static String hash(CompactDFA dfa, Integer[] sortedSymbols, int[] canonicalIndexes, int[] states) {
+        MessageDigest digest = createDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(DIGEST_BUFFER_SIZE);
+        putInt(digest, buffer, sortedSymbols.length);
+        for (int symbol : sortedSymbols) {
+            byte[] bytes = dfa.getSymbol(symbol).getBytes(StandardCharsets.UTF_8);
+            putInt(digest, buffer, bytes.length);
+            flush(digest, buffer);
+            digest.update(bytes);
+        }
+        putInt(digest, buffer, states.length);
+        for (int state : states) {
+            putInt(digest, buffer, dfa.isFinal(state) ? 1 : 0);
+            for (int symbol : sortedSymbols) {
+                int target = dfa.getTarget(state, symbol);
+                putInt(digest, buffer, target != CompactDFA.NO_TRANSITION ? canonicalIndexes[target] : -1);
+            }
+        }
+        flush(digest, buffer);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static void putInt(MessageDigest digest, ByteBuffer buffer, int value) {
+        if (buffer.remaining() < Integer.BYTES) {
+            flush(digest, buffer);
+        }
+        buffer.putInt(value);
+    }
+
+    private static void flush(MessageDigest digest, ByteBuffer buffer) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public int size() {
+        return states.length;
+    }
+
+    /**
+     * @return canonical index of the state or -1 if it is not reachable from the initial state
+     */
+    public int getCanonicalIndex(int state) {
+        return canonicalIndexes[state];
+    }
+
+    public int getState(int canonicalIndex) {
+        return states[canonicalIndex];
+    }
+}
@@ -0,0 +1,31 @@
+package hu.sze.stateminimalizer.dfa;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Base class of the matchers generated by {@link MatcherCompiler}, the generated class implements the state loops.
+ * It is public because on Java 11 the generated classes are defined in class loaders of their own.
+ */
+public abstract class CompiledMatcher implements DfaMatcher {
+
+    protected final int[] charClasses;
+    protected final int[] byteClasses;
+
+    protected CompiledMatcher(int[] charClasses, int[] byteClasses) {
+        this.charClasses = charClasses;
+        this.byteClasses = byteClasses;
+    }
+
+    @Override
+    public boolean matches(ByteBuffer input) {
+        if (input.hasArray()) {
+            return matches(input.array(), input.arrayOffset() + input.position(), input.remaining());
+        }
+        return matchesDirect(input, input.position(), input.limit());
+    }
+
+    /**
+     * Reads the bytes {@code [from, to)} of a buffer without an array.
+     */
+    protected abstract boolean matchesDirect(ByteBuffer input, int from, int to);
+}
@@ -0,0 +1,112 @@
+package hu.sze.stateminimalizer.dfa;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Transparent decompression of uploaded automata: gzip and zstd input is recognized by its magic number.
+ */
+public final class CompressedInputs {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1F, (byte) 0x8B};
+    private static final byte[] ZSTD_MAGIC = {(byte) 0x28, (byte) 0xB5, (byte) 0x2F, (byte) 0xFD};
+
+    private CompressedInputs() {
+    }
+
+    public static boolean isCompressed(byte[] header) {
+        return startsWith(header, GZIP_MAGIC) || startsWith(header, ZSTD_MAGIC);
+    }
+
+    public static boolean isCompressed(Path path) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            return isCompressed(inputStream.readNBytes(ZSTD_MAGIC.length));
+        }
+    }
+
+    /**
+     * @param maxBytes the returned stream throws an IOException after this many (decompressed) bytes,
+     *                 so a small compressed upload cannot expand without limit
+     * @return the decompressed content, or the content itself if it is not compressed
+     */
+    public static InputStream decompress(InputStream inputStream, long maxBytes) throws IOException {
+        BufferedInputStream bufferedStream = new BufferedInputStream(inputStream, BUFFER_SIZE);
+        bufferedStream.mark(ZSTD_MAGIC.length);
+        byte[] header = bufferedStream.readNBytes(ZSTD_MAGIC.length);
+        bufferedStream.reset();
+        InputStream content = bufferedStream;
+        if (startsWith(header, GZIP_MAGIC)) {
+            content = new GZIPInputStream(bufferedStream, BUFFER_SIZE);
+        } else if (startsWith(header, ZSTD_MAGIC)) {
+            content = new BufferedInputStream(new ZstdInputStream(bufferedStream), BUFFER_SIZE);
+        }
+        return new LimitedInputStream(content, maxBytes);
+    }
+
+    private static boolean startsWith(byte[] header, byte[] magic) {
+        if (header.length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (header[i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long readBytes;
+
+        private LimitedInputStream(InputStream inputStream, long maxBytes) {
+            super(inputStream);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value != -1) {
+                count(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                count(count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void count(long bytes) throws IOException {
+            readBytes += bytes;
+            if (readBytes > maxBytes) {
+                throw new IOException("The input is larger than " + maxBytes + " bytes");
+            }
+        }
+    }
+}
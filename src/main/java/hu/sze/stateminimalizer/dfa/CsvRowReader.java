@@ -0,0 +1,104 @@
+package hu.sze.stateminimalizer.dfa;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads delimited UTF-8 rows one by one, either from a channel through a fixed size buffer
+ * or from a buffer holding the whole content (e.g. a memory-mapped file).
+ * Quoted fields may contain the separator, line breaks and doubled quote characters.
+ */
+final class CsvRowReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte separator;
+    private final byte quote;
+    private byte[] field = new byte[64];
+    private int fieldLength;
+
+    CsvRowReader(ReadableByteChannel channel, char separator, char quote) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip();
+        this.separator = (byte) separator;
+        this.quote = (byte) quote;
+    }
+
+    CsvRowReader(ByteBuffer content, char separator, char quote) {
+        this.channel = null;
+        this.buffer = content;
+        this.separator = (byte) separator;
+        this.quote = (byte) quote;
+    }
+
+    /**
+     * @param fields cleared and filled with the fields of the next row
+     * @return false if there are no more rows
+     */
+    boolean readRow(List<String> fields) throws IOException {
+        fields.clear();
+        if (!ensureAvailable()) {
+            return false;
+        }
+        fieldLength = 0;
+        boolean quoted = false;
+        while (ensureAvailable()) {
+            byte b = buffer.get();
+            if (quoted) {
+                if (b != quote) {
+                    append(b);
+                } else if (ensureAvailable() && buffer.get(buffer.position()) == quote) { //escaped quote
+                    append(buffer.get());
+                } else {
+                    quoted = false;
+                }
+            } else if (b == quote) {
+                quoted = true;
+            } else if (b == separator) {
+                fields.add(takeField());
+            } else if (b == '\n') {
+                break;
+            } else if (b != '\r') {
+                append(b);
+            }
+        }
+        fields.add(takeField());
+        return true;
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        if (buffer.hasRemaining()) {
+            return true;
+        }
+        if (channel == null) {
+            return false;
+        }
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        return read > 0;
+    }
+
+    private void append(byte b) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = b;
+    }
+
+    private String takeField() {
+        String value = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+        fieldLength = 0;
+        return value;
+    }
+}
@@ -0,0 +1,84 @@
+package hu.sze.stateminimalizer.dfa;
+
+/**
+ * One change of an automaton for {@link IncrementalMinimizer}, states are referred by their index.
+ */
+public final class DfaEdit {
+
+    public enum Type {
+        ADD_TRANSITION,
+        REMOVE_TRANSITION,
+        TOGGLE_FINAL,
+        ADD_STATE
+    }
+
+    private final Type type;
+    private final int state;
+    private final String symbol;
+    private final int target;
+    private final String name;
+
+    private DfaEdit(Type type, int state, String symbol, int target, String name) {
+        this.type = type;
+        this.state = state;
+        this.symbol = symbol;
+        this.target = target;
+        this.name = name;
+    }
+
+    /**
+     * Adds the transition or redirects the existing one of the symbol.
+     */
+    public static DfaEdit addTransition(int source, String symbol, int target) {
+        return new DfaEdit(Type.ADD_TRANSITION, source, symbol, target, null);
+    }
+
+    public static DfaEdit removeTransition(int source, String symbol) {
+        return new DfaEdit(Type.REMOVE_TRANSITION, source, symbol, -1, null);
+    }
+
+    public static DfaEdit toggleFinal(int state) {
+        return new DfaEdit(Type.TOGGLE_FINAL, state, null, -1, null);
+    }
+
+    /**
+     * Adds a non-final state without transitions, its index is the next free one.
+     */
+    public static DfaEdit addState(String name) {
+        return new DfaEdit(Type.ADD_STATE, -1, null, -1, name);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int getTarget() {
+        return target;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case ADD_TRANSITION:
+                return state + " -" + symbol + "-> " + target;
+            case REMOVE_TRANSITION:
+                return state + " -" + symbol + "-> none";
+            case TOGGLE_FINAL:
+                return "toggle final " + state;
+            default:
+                return "add state " + name;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package hu.sze.stateminimalizer.dfa;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs an automaton over whole words, every character (or byte, read as ISO-8859-1) is one input symbol.
+ * A word is accepted if it ends in a final state; an unknown character or a missing transition rejects it.
+ * Implementations are immutable and can be shared between threads.
+ */
+public interface DfaMatcher {
+
+    /** inputs matched sequentially by one task of {@link #matchAllParallel(CharSequence[], boolean[], ForkJoinPool)} */
+    int PARALLEL_CHUNK_SIZE = 4096;
+
+    boolean matches(CharSequence input);
+
+    boolean matches(byte[] input, int offset, int length);
+
+    /**
+     * Reads the remaining bytes without moving the position.
+     */
+    boolean matches(ByteBuffer input);
+
+    default boolean matches(byte[] input) {
+        return matches(input, 0, input.length);
+    }
+
+    /**
+     * @param results the result of {@code inputs[i]} is written to {@code results[i]}
+     * @return the number of accepted inputs in the range
+     */
+    default int matchAll(CharSequence[] inputs, int from, int to, boolean[] results) {
+        int accepted = 0;
+        for (int i = from; i < to; i++) {
+            results[i] = matches(inputs[i]);
+            if (results[i]) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    default int matchAll(CharSequence[] inputs, boolean[] results) {
+        return matchAll(inputs, 0, inputs.length, results);
+    }
+
+    /**
+     * Splits the inputs into chunks of {@link #PARALLEL_CHUNK_SIZE} matched on the pool.
+     * @return the number of accepted inputs
+     */
+    default int matchAllParallel(CharSequence[] inputs, boolean[] results, ForkJoinPool pool) {
+        return pool.invoke(new MatchAllTask(this, inputs, 0, inputs.length, results));
+    }
+
+    final class MatchAllTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final DfaMatcher matcher;
+        private final CharSequence[] inputs;
+        private final int from;
+        private final int to;
+        private final boolean[] results;
+
+        private MatchAllTask(DfaMatcher matcher, CharSequence[] inputs, int from, int to, boolean[] results) {
+            this.matcher = matcher;
+            this.inputs = inputs;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= PARALLEL_CHUNK_SIZE) {
+                return matcher.matchAll(inputs, from, to, results);
+            }
+            int middle = (from + to) >>> 1;
+            MatchAllTask left = new MatchAllTask(matcher, inputs, from, middle, results);
+            left.fork();
+            int right = new MatchAllTask(matcher, inputs, middle, to, results).compute();
+            return left.join() + right;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import hu.sze.stateminimalizer.dfa.model.DFA;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Language equivalence of two automata by Hopcroft and Karp's union-find, without minimizing either of them.
+ * Starting from the pair of initial states, the states reached by the same word are merged; a merged pair with
+ * different final flags proves the difference, the word leading to it is the counterexample. Every merge joins two
+ * classes, so at most n1 + n2 pairs are processed: O((n1 + n2)·k·α) for the k symbols of the joint alphabet.
+ * Missing transitions and symbols lead to a common rejecting sink, this is language equivalence, event sets are
+ * not compared.
+ */
+public class EquivalenceChecker {
+
+    public Result check(DFA first, DFA second) {
+        return check(CompactDFA.fromDFA(first), CompactDFA.fromDFA(second));
+    }
+
+    public Result check(CompactDFA first, CompactDFA second) {
+        Set<String> jointSymbols = new LinkedHashSet<>();
+        for (int symbol = 0; symbol < first.getSymbolCount(); symbol++) {
+            jointSymbols.add(first.getSymbol(symbol));
+        }
+        for (int symbol = 0; symbol < second.getSymbolCount(); symbol++) {
+            jointSymbols.add(second.getSymbol(symbol));
+        }
+        String[] symbols = jointSymbols.toArray(new String[0]);
+        int[] firstSymbols = new int[symbols.length];
+        int[] secondSymbols = new int[symbols.length];
+        for (int symbol = 0; symbol < symbols.length; symbol++) {
+            firstSymbols[symbol] = first.getSymbolIndex(symbols[symbol]);
+            secondSymbols[symbol] = second.getSymbolIndex(symbols[symbol]);
+        }
+
+        //nodes: states of the first automaton, then of the second one, then the sink
+        int firstCount = first.getStateCount();
+        int sink = firstCount + second.getStateCount();
+        int[] parents = new int[sink + 1];
+        int[] sizes = new int[sink + 1];
+        for (int node = 0; node <= sink; node++) {
+            parents[node] = node;
+            sizes[node] = 1;
+        }
+        //pairs in the order they were merged, with the pair and symbol they were reached from
+        int[] pairFirst = new int[sink + 1];
+        int[] pairSecond = new int[sink + 1];
+        int[] reachedFrom = new int[sink + 1];
+        int[] reachedBy = new int[sink + 1];
+
+        int firstInitial = toNode(first.getInitialState(), 0, sink);
+        int secondInitial = toNode(second.getInitialState(), firstCount, sink);
+        pairFirst[0] = firstInitial;
+        pairSecond[0] = secondInitial;
+        reachedFrom[0] = -1;
+        int pairCount = 1;
+        union(parents, sizes, firstInitial, secondInitial);
+        for (int pair = 0; pair < pairCount; pair++) {
+            int firstState = pairFirst[pair];
+            int secondState = pairSecond[pair];
+            boolean firstAccepts = firstState != sink && first.isFinal(firstState);
+            boolean secondAccepts = secondState != sink && second.isFinal(secondState - firstCount);
+            if (firstAccepts != secondAccepts) {
+                return Result.different(createWord(pair, reachedFrom, reachedBy, symbols), firstAccepts);
+            }
+            for (int symbol = 0; symbol < symbols.length; symbol++) {
+                int firstTarget = firstState == sink || firstSymbols[symbol] < 0 ? sink
+                        : toNode(first.getTarget(firstState, firstSymbols[symbol]), 0, sink);
+                int secondTarget = secondState == sink || secondSymbols[symbol] < 0 ? sink
+                        : toNode(second.getTarget(secondState - firstCount, secondSymbols[symbol]), firstCount, sink);
+                if (union(parents, sizes, firstTarget, secondTarget)) {
+                    pairFirst[pairCount] = firstTarget;
+                    pairSecond[pairCount] = secondTarget;
+                    reachedFrom[pairCount] = pair;
+                    reachedBy[pairCount] = symbol;
+                    pairCount++;
+                }
+            }
+        }
+        return Result.EQUIVALENT;
+    }
+
+    private static int toNode(int state, int offset, int sink) {
+        return state == CompactDFA.NO_TRANSITION ? sink : state + offset;
+    }
+
+    private static List<String> createWord(int pair, int[] reachedFrom, int[] reachedBy, String[] symbols) {
+        List<String> word = new ArrayList<>();
+        for (; reachedFrom[pair] != -1; pair = reachedFrom[pair]) {
+            word.add(symbols[reachedBy[pair]]);
+        }
+        Collections.reverse(word);
+        return word;
+    }
+
+    /**
+     * Union by size with path halving.
+     * @return false if the nodes were already in the same class
+     */
+    private static boolean union(int[] parents, int[] sizes, int nodeA, int nodeB) {
+        int rootA = find(parents, nodeA);
+        int rootB = find(parents, nodeB);
+        if (rootA == rootB) {
+            return false;
+        }
+        if (sizes[rootA] < sizes[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parents[rootB] = rootA;
+        sizes[rootA] += sizes[rootB];
+        return true;
+    }
+
+    private static int find(int[] parents, int node) {
+        while (parents[node] != node) {
+            parents[node] = parents[parents[node]];
+            node = parents[node];
+        }
+        return node;
+    }
+
+    public static final class Result {
+        private static final Result EQUIVALENT = new Result(true, null, false);
+
+        private final boolean equivalent;
+        private final List<String> counterexample;
+        private final boolean acceptedByFirst;
+
+        private Result(boolean equivalent, List<String> counterexample, boolean acceptedByFirst) {
+            this.equivalent = equivalent;
+            this.counterexample = counterexample;
+            this.acceptedByFirst = acceptedByFirst;
+        }
+
+        private static Result different(List<String> counterexample, boolean acceptedByFirst) {
+            return new Result(false, Collections.unmodifiableList(counterexample), acceptedByFirst);
+        }
+
+        public boolean isEquivalent() {
+            return equivalent;
+        }
+
+        /**
+         * @return symbols of a word accepted by exactly one of the automata, null if they are equivalent
+         */
+        public List<String> getCounterexample() {
+            return counterexample;
+        }
+
+        /**
+         * @return whether the counterexample is accepted by the first automaton (and rejected by the second one)
+         */
+        public boolean isAcceptedByFirst() {
+            return acceptedByFirst;
+        }
+
+        @Override
+        public String toString() {
+            return equivalent ? "equivalent" : "different on " + counterexample + ", accepted by the "
+                    + (acceptedByFirst ? "first" : "second");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+
+import java.util.BitSet;
+
+/**
+ * Hopcroft's O(k·n·log n) partition refinement.
+ * The initial blocks are split by the final flag and by the event set (defined input symbols) of the states,
+ * the same way the pair table of {@link Minimizer} marks red and blue pairs, so both engines give the same groups.
+ */
+class HopcroftMinimizer {
+
+    /**
+     * @param dfa automaton without unreachable states
+     * @return block id of every state index
+     */
+    int[] computeBlocks(CompactDFA dfa) {
+        int stateCount = dfa.getStateCount();
+        int symbolCount = dfa.getSymbolCount();
+
+        RefinablePartition partition = new RefinablePartition(stateCount);
+        BitSet finalStates = dfa.getFinalStates();
+        for (int state = finalStates.nextSetBit(0); state >= 0; state = finalStates.nextSetBit(state + 1)) {
+            partition.mark(state);
+        }
+        partition.split(null);
+        for (int symbol = 0; symbol < symbolCount; symbol++) { //split by event sets
+            for (int state = 0; state < stateCount; state++) {
+                if (dfa.getTarget(state, symbol) != CompactDFA.NO_TRANSITION) {
+                    partition.mark(state);
+                }
+            }
+            partition.split(null);
+        }
+
+        InverseTransitions inverseTransitions = new InverseTransitions(dfa);
+
+        Worklist worklist = new Worklist(Math.max(16, partition.setCount() * symbolCount));
+        int largestBlock = 0;
+        for (int block = 1; block < partition.setCount(); block++) {
+            if (partition.size(block) > partition.size(largestBlock)) {
+                largestBlock = block;
+            }
+        }
+        for (int block = 0; block < partition.setCount(); block++) {
+            if (block != largestBlock) {
+                worklist.pushAllSymbols(block, symbolCount);
+            }
+        }
+
+        int[] splitterStates = IntArrayPool.get().borrow(stateCount);
+        while (!worklist.isEmpty()) {
+            Minimizer.checkInterrupted();
+            int symbol = worklist.popSymbol();
+            int block = worklist.popBlock();
+            int splitterSize = 0;
+            for (int position = partition.first(block); position < partition.end(block); position++) {
+                splitterStates[splitterSize++] = partition.element(position);
+            }
+            for (int i = 0; i < splitterSize; i++) {
+                int end = inverseTransitions.end(symbol, splitterStates[i]);
+                for (int j = inverseTransitions.first(symbol, splitterStates[i]); j < end; j++) {
+                    partition.mark(inverseTransitions.source(j));
+                }
+            }
+            partition.split(newBlock -> worklist.pushAllSymbols(newBlock, symbolCount));
+        }
+        int[] blocks = partition.toSetArray();
+        IntArrayPool.get().release(splitterStates);
+        worklist.release();
+        inverseTransitions.release();
+        partition.release();
+        return blocks;
+    }
+
+    /**
+     * Stack of (block, symbol) splitters.
+     */
+    private static final class Worklist {
+        private int[] items;
+        private int size;
+
+        Worklist(int capacity) {
+            items = IntArrayPool.get().borrow(capacity * 2);
+        }
+
+        void pushAllSymbols(int block, int symbolCount) {
+            if (items.length < size + symbolCount * 2) {
+                int[] grown = IntArrayPool.get().borrow(Math.max(items.length * 2, size + symbolCount * 2));
+                System.arraycopy(items, 0, grown, 0, size);
+                IntArrayPool.get().release(items);
+                items = grown;
+            }
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                items[size++] = block;
+                items[size++] = symbol;
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int popSymbol() {
+            return items[--size];
+        }
+
+        int popBlock() {
+            return items[--size];
+        }
+
+        void release() {
+            IntArrayPool.get().release(items);
+        }
+    }
+}
@@ -0,0 +1,596 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the minimal partition of an automaton up to date while it is edited.
+ * <p>
+ * The language of a state only depends on the states it can reach, so after a batch of edits only the edited states
+ * and the states reaching them (the affected states) can change their block; the other blocks stay as they are.
+ * The affected states are taken out of their blocks and placed again in reverse topological order: a state whose
+ * targets already have blocks joins the block with the same signature (final flag and target blocks), found in a
+ * register of all blocks, or opens a new one. If the affected states contain a cycle, the current blocks are collapsed
+ * into single states and this quotient is refined together with the affected states by {@link PartialDfaMinimizer}.
+ * <p>
+ * Reachability is kept with a BFS tree: removing a transition only triggers a new search when it was a tree edge,
+ * added transitions extend the reachable set from their targets.
+ * Missing transitions have the same semantics as in {@link Minimizer}, states with different event sets are different.
+ */
+public class IncrementalMinimizer {
+
+    private static final int UNASSIGNED = -1;
+    private static final int NOT_REACHED = -2;
+
+    private final String[] symbols;
+    private final Map<String, Integer> symbolIndexes = new HashMap<>();
+    private final int symbolCount;
+    private final int initialState;
+    private int stateCount;
+    private int nextStateId;
+    private String[] stateNames;
+    private int[] stateIds;
+    private int[] transitions;
+    private final BitSet finalStates;
+
+    //incoming transitions of every state as a doubly linked list of transition slots (state * symbolCount + symbol)
+    private int[] incomingHead;
+    private int[] incomingNext;
+    private int[] incomingPrevious;
+
+    private final BitSet reachable = new BitSet();
+    private int[] parentSlots; //slot of the BFS tree edge entering the state
+
+    private int[] blockOf;
+    private final IntList blockSizes = new IntList(16);
+    private final List<BlockSignature> blockSignatures = new ArrayList<>(); //null for removed blocks
+    private final IntList freeBlocks = new IntList(16); //ids of the removed blocks, reused by new ones
+    private final Map<BlockSignature, Integer> register = new HashMap<>();
+    private int blockCount;
+
+    //scratch space of one batch, reset after use
+    private final BitSet affected = new BitSet();
+    private final BitSet onStack = new BitSet();
+    private int[] stateScratch;
+    private int[] lowLinks;
+    private int lastAffectedCount;
+    private boolean lastBatchRefined;
+
+    public IncrementalMinimizer(CompactDFA dfa) {
+        symbolCount = dfa.getSymbolCount();
+        symbols = new String[symbolCount];
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            symbols[symbol] = dfa.getSymbol(symbol);
+            symbolIndexes.put(symbols[symbol], symbol);
+        }
+        stateCount = dfa.getStateCount();
+        initialState = dfa.getInitialState();
+        finalStates = dfa.getFinalStates();
+        allocateStates(Math.max(stateCount, 16));
+        for (int state = 0; state < stateCount; state++) {
+            stateNames[state] = dfa.getStateName(state);
+            stateIds[state] = dfa.getStateId(state);
+            nextStateId = Math.max(nextStateId, stateIds[state] + 1);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int target = dfa.getTarget(state, symbol);
+                transitions[state * symbolCount + symbol] = target;
+                if (target != CompactDFA.NO_TRANSITION) {
+                    linkIncoming(state * symbolCount + symbol, target);
+                }
+            }
+        }
+        computeReachability();
+        IntList pendingStates = new IntList(stateCount);
+        for (int state = reachable.nextSetBit(0); state >= 0; state = reachable.nextSetBit(state + 1)) {
+            pendingStates.add(state);
+        }
+        refineQuotient(pendingStates);
+    }
+
+    /**
+     * Applies the edits in order, then updates the reachable states and the blocks once.
+     * @throws IllegalArgumentException if an edit refers to an unknown state or symbol, no edit is applied then
+     */
+    public void apply(List<DfaEdit> edits) {
+        validate(edits);
+        IntList dirtyStates = new IntList(edits.size());
+        boolean treeEdgeRemoved = false;
+        for (DfaEdit edit : edits) {
+            switch (edit.getType()) {
+                case ADD_STATE:
+                    addState(edit.getName());
+                    break;
+                case ADD_TRANSITION:
+                    treeEdgeRemoved |= setTransition(edit.getState(), findSymbolIndex(edit.getSymbol()), edit.getTarget());
+                    dirtyStates.add(edit.getState());
+                    break;
+                case REMOVE_TRANSITION:
+                    treeEdgeRemoved |= setTransition(edit.getState(), findSymbolIndex(edit.getSymbol()), CompactDFA.NO_TRANSITION);
+                    dirtyStates.add(edit.getState());
+                    break;
+                case TOGGLE_FINAL:
+                    finalStates.flip(edit.getState());
+                    dirtyStates.add(edit.getState());
+                    break;
+            }
+        }
+        updateReachability(dirtyStates, treeEdgeRemoved);
+
+        IntList affectedStates = collectAffectedStates(dirtyStates);
+        for (int i = 0; i < affectedStates.size(); i++) {
+            unassign(affectedStates.get(i));
+        }
+        lastAffectedCount = affectedStates.size();
+        lastBatchRefined = !assignBottomUp(affectedStates);
+        if (lastBatchRefined) {
+            IntList pendingStates = new IntList(affectedStates.size());
+            for (int i = 0; i < affectedStates.size(); i++) {
+                if (blockOf[affectedStates.get(i)] == UNASSIGNED) {
+                    pendingStates.add(affectedStates.get(i));
+                }
+            }
+            refineQuotient(pendingStates);
+        }
+        for (int i = 0; i < affectedStates.size(); i++) {
+            affected.clear(affectedStates.get(i));
+        }
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    public boolean isReachable(int state) {
+        return reachable.get(state);
+    }
+
+    /**
+     * @return block of a reachable state, -1 for unreachable states; block ids are not contiguous,
+     *         the ids of removed blocks are given to new ones
+     */
+    public int getBlock(int state) {
+        return blockOf[state];
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public boolean isEquivalent(int stateA, int stateB) {
+        return blockOf[stateA] != UNASSIGNED && blockOf[stateA] == blockOf[stateB];
+    }
+
+    /**
+     * @return number of states re-placed by the last {@link #apply(List)}
+     */
+    public int getLastAffectedCount() {
+        return lastAffectedCount;
+    }
+
+    /**
+     * @return whether the last {@link #apply(List)} had to refine the quotient because of a cycle
+     */
+    public boolean isLastBatchRefined() {
+        return lastBatchRefined;
+    }
+
+    /**
+     * @return copy of the current automaton, unreachable states included
+     */
+    public CompactDFA toCompactDfa() {
+        BitSet finalStatesCopy = new BitSet(stateCount);
+        finalStatesCopy.or(finalStates);
+        return new CompactDFA(symbols.clone(), Arrays.copyOf(stateNames, stateCount), Arrays.copyOf(stateIds, stateCount),
+                Arrays.copyOf(transitions, stateCount * symbolCount), finalStatesCopy, initialState);
+    }
+
+    private void allocateStates(int capacity) {
+        stateNames = stateNames == null ? new String[capacity] : Arrays.copyOf(stateNames, capacity);
+        stateIds = stateIds == null ? new int[capacity] : Arrays.copyOf(stateIds, capacity);
+        transitions = grow(transitions, capacity * symbolCount, CompactDFA.NO_TRANSITION);
+        incomingHead = grow(incomingHead, capacity, -1);
+        incomingNext = grow(incomingNext, capacity * symbolCount, -1);
+        incomingPrevious = grow(incomingPrevious, capacity * symbolCount, -1);
+        parentSlots = grow(parentSlots, capacity, NOT_REACHED);
+        blockOf = grow(blockOf, capacity, UNASSIGNED);
+        stateScratch = grow(stateScratch, capacity, -1);
+        lowLinks = grow(lowLinks, capacity, 0);
+    }
+
+    private static int[] grow(int[] array, int length, int fill) {
+        int oldLength = array == null ? 0 : array.length;
+        int[] grown = array == null ? new int[length] : Arrays.copyOf(array, length);
+        Arrays.fill(grown, oldLength, length, fill);
+        return grown;
+    }
+
+    private void addState(String name) {
+        if (stateCount == blockOf.length) {
+            allocateStates(stateCount * 2);
+        }
+        stateNames[stateCount] = name;
+        stateIds[stateCount] = nextStateId++;
+        stateCount++;
+    }
+
+    /**
+     * Checks every edit against the state count it will see, so a batch is applied either whole or not at all.
+     */
+    private void validate(List<DfaEdit> edits) {
+        int newStateCount = stateCount;
+        for (DfaEdit edit : edits) {
+            switch (edit.getType()) {
+                case ADD_STATE:
+                    newStateCount++;
+                    break;
+                case ADD_TRANSITION:
+                    checkState(edit.getState(), newStateCount);
+                    checkState(edit.getTarget(), newStateCount);
+                    findSymbolIndex(edit.getSymbol());
+                    break;
+                case REMOVE_TRANSITION:
+                    checkState(edit.getState(), newStateCount);
+                    findSymbolIndex(edit.getSymbol());
+                    break;
+                case TOGGLE_FINAL:
+                    checkState(edit.getState(), newStateCount);
+                    break;
+            }
+        }
+    }
+
+    private static void checkState(int state, int stateCount) {
+        if (state < 0 || state >= stateCount) {
+            throw new IllegalArgumentException("Unknown state index: " + state);
+        }
+    }
+
+    private int findSymbolIndex(String symbol) {
+        Integer symbolIndex = symbolIndexes.get(symbol);
+        if (symbolIndex == null) {
+            throw new IllegalArgumentException("Unknown input symbol: " + symbol);
+        }
+        return symbolIndex;
+    }
+
+    /**
+     * @return whether a BFS tree edge was removed
+     */
+    private boolean setTransition(int source, int symbol, int target) {
+        int slot = source * symbolCount + symbol;
+        int oldTarget = transitions[slot];
+        if (oldTarget == target) {
+            return false;
+        }
+        boolean treeEdgeRemoved = false;
+        if (oldTarget != CompactDFA.NO_TRANSITION) {
+            unlinkIncoming(slot, oldTarget);
+            treeEdgeRemoved = parentSlots[oldTarget] == slot;
+        }
+        transitions[slot] = target;
+        if (target != CompactDFA.NO_TRANSITION) {
+            linkIncoming(slot, target);
+        }
+        return treeEdgeRemoved;
+    }
+
+    private void linkIncoming(int slot, int target) {
+        int head = incomingHead[target];
+        incomingNext[slot] = head;
+        incomingPrevious[slot] = -1;
+        if (head != -1) {
+            incomingPrevious[head] = slot;
+        }
+        incomingHead[target] = slot;
+    }
+
+    private void unlinkIncoming(int slot, int target) {
+        int next = incomingNext[slot];
+        int previous = incomingPrevious[slot];
+        if (previous == -1) {
+            incomingHead[target] = next;
+        } else {
+            incomingNext[previous] = next;
+        }
+        if (next != -1) {
+            incomingPrevious[next] = previous;
+        }
+    }
+
+    private void computeReachability() {
+        for (int state = reachable.nextSetBit(0); state >= 0; state = reachable.nextSetBit(state + 1)) {
+            parentSlots[state] = NOT_REACHED;
+        }
+        reachable.clear();
+        if (initialState < 0 || initialState >= stateCount) {
+            return;
+        }
+        IntList queue = new IntList(stateCount);
+        reachable.set(initialState);
+        parentSlots[initialState] = -1;
+        queue.add(initialState);
+        extendReachability(queue, 0);
+    }
+
+    /**
+     * BFS from the queued states, which are already marked as reachable; newly reached states are appended to the queue.
+     */
+    private void extendReachability(IntList queue, int from) {
+        for (int i = from; i < queue.size(); i++) {
+            int state = queue.get(i);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int target = transitions[state * symbolCount + symbol];
+                if (target != CompactDFA.NO_TRANSITION && !reachable.get(target)) {
+                    reachable.set(target);
+                    parentSlots[target] = state * symbolCount + symbol;
+                    queue.add(target);
+                }
+            }
+        }
+    }
+
+    private void updateReachability(IntList dirtyStates, boolean treeEdgeRemoved) {
+        if (treeEdgeRemoved) {
+            BitSet previouslyReachable = (BitSet) reachable.clone();
+            computeReachability();
+            BitSet lost = (BitSet) previouslyReachable.clone();
+            lost.andNot(reachable);
+            for (int state = lost.nextSetBit(0); state >= 0; state = lost.nextSetBit(state + 1)) {
+                unassign(state);
+            }
+            BitSet gained = (BitSet) reachable.clone();
+            gained.andNot(previouslyReachable);
+            for (int state = gained.nextSetBit(0); state >= 0; state = gained.nextSetBit(state + 1)) {
+                dirtyStates.add(state);
+            }
+            return;
+        }
+        int dirtyCount = dirtyStates.size();
+        for (int i = 0; i < dirtyCount; i++) {
+            int state = dirtyStates.get(i);
+            if (reachable.get(state)) {
+                int from = dirtyStates.size();
+                dirtyStates.add(state);
+                extendReachability(dirtyStates, from);
+            }
+        }
+    }
+
+    /**
+     * @return the reachable dirty states and every reachable state that can reach one of them
+     */
+    private IntList collectAffectedStates(IntList dirtyStates) {
+        IntList affectedStates = new IntList(dirtyStates.size());
+        for (int i = 0; i < dirtyStates.size(); i++) {
+            int state = dirtyStates.get(i);
+            if (reachable.get(state) && !affected.get(state)) {
+                affected.set(state);
+                affectedStates.add(state);
+            }
+        }
+        for (int i = 0; i < affectedStates.size(); i++) {
+            for (int slot = incomingHead[affectedStates.get(i)]; slot != -1; slot = incomingNext[slot]) {
+                int source = slot / symbolCount;
+                if (reachable.get(source) && !affected.get(source)) {
+                    affected.set(source);
+                    affectedStates.add(source);
+                }
+            }
+        }
+        return affectedStates;
+    }
+
+    /**
+     * Places the affected states with the register, in the order Tarjan's algorithm completes their components.
+     * @return false if a component with a cycle was found, the states from there on are left unassigned
+     */
+    private boolean assignBottomUp(IntList affectedStates) {
+        int size = affectedStates.size();
+        int[] stack = new int[size];
+        int[] callStack = new int[size];
+        int[] nextSymbols = new int[size];
+        int stackSize = 0;
+        int counter = 0;
+        boolean acyclic = true;
+        for (int root = 0; root < size && acyclic; root++) {
+            if (stateScratch[affectedStates.get(root)] != -1) {
+                continue;
+            }
+            int callDepth = 0;
+            callStack[callDepth] = affectedStates.get(root);
+            nextSymbols[callDepth++] = 0;
+            stateScratch[affectedStates.get(root)] = lowLinks[affectedStates.get(root)] = counter++;
+            stack[stackSize++] = affectedStates.get(root);
+            onStack.set(affectedStates.get(root));
+            while (callDepth > 0 && acyclic) {
+                int state = callStack[callDepth - 1];
+                if (nextSymbols[callDepth - 1] < symbolCount) {
+                    int target = transitions[state * symbolCount + nextSymbols[callDepth - 1]++];
+                    if (target == CompactDFA.NO_TRANSITION || !affected.get(target)) {
+                        continue;
+                    }
+                    if (stateScratch[target] == -1) {
+                        stateScratch[target] = lowLinks[target] = counter++;
+                        stack[stackSize++] = target;
+                        onStack.set(target);
+                        callStack[callDepth] = target;
+                        nextSymbols[callDepth++] = 0;
+                    } else if (onStack.get(target)) {
+                        lowLinks[state] = Math.min(lowLinks[state], stateScratch[target]);
+                    }
+                    continue;
+                }
+                callDepth--;
+                if (callDepth > 0) {
+                    int parent = callStack[callDepth - 1];
+                    lowLinks[parent] = Math.min(lowLinks[parent], lowLinks[state]);
+                }
+                if (lowLinks[state] == stateScratch[state]) {
+                    int member = stack[--stackSize];
+                    onStack.clear(member);
+                    if (member != state || hasSelfLoop(state)) {
+                        acyclic = false;
+                    } else {
+                        assign(state);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            stateScratch[affectedStates.get(i)] = -1;
+        }
+        onStack.clear();
+        return acyclic;
+    }
+
+    private boolean hasSelfLoop(int state) {
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            if (transitions[state * symbolCount + symbol] == state) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BlockSignature signatureOf(int state) {
+        int[] targetBlocks = new int[symbolCount];
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            int target = transitions[state * symbolCount + symbol];
+            targetBlocks[symbol] = target == CompactDFA.NO_TRANSITION ? -1 : blockOf[target];
+        }
+        return new BlockSignature(finalStates.get(state), targetBlocks);
+    }
+
+    private void assign(int state) {
+        BlockSignature signature = signatureOf(state);
+        Integer block = register.get(signature);
+        if (block == null) {
+            if (freeBlocks.size() > 0) {
+                block = freeBlocks.removeLast();
+                blockSignatures.set(block, signature);
+            } else {
+                block = blockSignatures.size();
+                blockSignatures.add(signature);
+                blockSizes.add(0);
+            }
+            register.put(signature, block);
+            blockCount++;
+        }
+        blockOf[state] = block;
+        blockSizes.set(block, blockSizes.get(block) + 1);
+    }
+
+    private void unassign(int state) {
+        int block = blockOf[state];
+        if (block == UNASSIGNED) {
+            return;
+        }
+        blockOf[state] = UNASSIGNED;
+        blockSizes.set(block, blockSizes.get(block) - 1);
+        if (blockSizes.get(block) == 0) {
+            register.remove(blockSignatures.get(block));
+            blockSignatures.set(block, null);
+            freeBlocks.add(block);
+            blockCount--;
+        }
+    }
+
+    /**
+     * Refines the automaton of the current blocks (one state each) and the pending states, then renumbers all blocks.
+     * The blocks stay different from each other, pending states may join them or form new ones.
+     */
+    private void refineQuotient(IntList pendingStates) {
+        int[] blockNodes = new int[blockSignatures.size()];
+        int[] nodeBlocks = new int[blockCount];
+        int blockNodeCount = 0;
+        for (int block = 0; block < blockSignatures.size(); block++) {
+            if (blockSignatures.get(block) != null) {
+                nodeBlocks[blockNodeCount] = block;
+                blockNodes[block] = blockNodeCount++;
+            }
+        }
+        int nodeOffset = blockNodeCount;
+        for (int i = 0; i < pendingStates.size(); i++) {
+            stateScratch[pendingStates.get(i)] = nodeOffset + i;
+        }
+        int[] nodeClasses = new PartialDfaMinimizer().computeBlocks(nodeOffset + pendingStates.size(), symbolCount,
+                (node, symbol) -> {
+                    if (node < nodeOffset) {
+                        int targetBlock = blockSignatures.get(nodeBlocks[node]).targetBlocks[symbol];
+                        return targetBlock == -1 ? CompactDFA.NO_TRANSITION : blockNodes[targetBlock];
+                    }
+                    int target = transitions[pendingStates.get(node - nodeOffset) * symbolCount + symbol];
+                    if (target == CompactDFA.NO_TRANSITION) {
+                        return CompactDFA.NO_TRANSITION;
+                    }
+                    return blockOf[target] != UNASSIGNED ? blockNodes[blockOf[target]] : stateScratch[target];
+                },
+                node -> node < nodeOffset ? blockSignatures.get(nodeBlocks[node]).isFinal
+                        : finalStates.get(pendingStates.get(node - nodeOffset)));
+
+        for (int state = reachable.nextSetBit(0); state >= 0; state = reachable.nextSetBit(state + 1)) {
+            blockOf[state] = blockOf[state] != UNASSIGNED ? nodeClasses[blockNodes[blockOf[state]]] : nodeClasses[stateScratch[state]];
+        }
+        for (int i = 0; i < pendingStates.size(); i++) {
+            stateScratch[pendingStates.get(i)] = -1;
+        }
+        blockCount = 0;
+        for (int nodeClass : nodeClasses) {
+            blockCount = Math.max(blockCount, nodeClass + 1);
+        }
+        blockSizes.clear();
+        blockSizes.addRepeated(0, blockCount);
+        blockSignatures.clear();
+        blockSignatures.addAll(Collections.nCopies(blockCount, null));
+        freeBlocks.clear();
+        register.clear();
+        for (int state = reachable.nextSetBit(0); state >= 0; state = reachable.nextSetBit(state + 1)) {
+            int block = blockOf[state];
+            blockSizes.set(block, blockSizes.get(block) + 1);
+            if (blockSignatures.get(block) == null) {
+                BlockSignature signature = signatureOf(state);
+                blockSignatures.set(block, signature);
+                register.put(signature, block);
+            }
+        }
+    }
+
+    /**
+     * Final flag and target blocks shared by all states of a block.
+     */
+    private static final class BlockSignature {
+        private final boolean isFinal;
+        private final int[] targetBlocks;
+        private final int hash;
+
+        BlockSignature(boolean isFinal, int[] targetBlocks) {
+            this.isFinal = isFinal;
+            this.targetBlocks = targetBlocks;
+            this.hash = 31 * Arrays.hashCode(targetBlocks) + (isFinal ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BlockSignature)) {
+                return false;
+            }
+            BlockSignature that = (BlockSignature) o;
+            return isFinal == that.isFinal && Arrays.equals(targetBlocks, that.targetBlocks);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package hu.sze.stateminimalizer.dfa;
+
+import java.util.Arrays;
+
+/**
+ * Free lists of the int arrays the engines use as scratch tables, shared by all threads, so the minimizations of many
+ * small and medium automata allocate them only once. Lengths are rounded up to a power of two, a borrowed array may be
+ * longer than asked for and must not be used after it is given back. An array that is not given back (e.g. after a
+ * cancellation) is simply collected. At most {@link #MAX_RETAINED_INTS} ints (32 MB) are kept in all, however many
+ * threads minimize, longer arrays than {@link #MAX_POOLED_LENGTH} are never kept. Borrowing and giving back are
+ * synchronized, the engines do both a few times per minimization and not in their loops.
+ */
+final class IntArrayPool {
+
+    static final int MAX_POOLED_LENGTH = 1 << 22;
+    static final long MAX_RETAINED_INTS = 1 << 23;
+    private static final int ARRAYS_PER_LENGTH = 8;
+    private static final IntArrayPool SHARED = new IntArrayPool(MAX_RETAINED_INTS);
+
+    private final int[][][] freeArrays = new int[Integer.numberOfTrailingZeros(MAX_POOLED_LENGTH) + 1][ARRAYS_PER_LENGTH][];
+    private final int[] freeCounts = new int[freeArrays.length];
+    private final long maxRetainedInts;
+    private long retainedInts;
+
+    IntArrayPool(long maxRetainedInts) {
+        this.maxRetainedInts = maxRetainedInts;
+    }
+
+    static IntArrayPool get() {
+        return SHARED;
+    }
+
+    /**
+     * @return array of at least the given length with undefined content
+     */
+    synchronized int[] borrow(int length) {
+        if (length > MAX_POOLED_LENGTH) {
+            return new int[length];
+        }
+        int bucket = length <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(length - 1);
+        if (freeCounts[bucket] == 0) {
+            return new int[1 << bucket];
+        }
+        int[] array = freeArrays[bucket][--freeCounts[bucket]];
+        freeArrays[bucket][freeCounts[bucket]] = null;
+        retainedInts -= array.length;
+        return array;
+    }
+
+    /**
+     * @return array of at least the given length, zero up to that length
+     */
+    int[] borrowZeroed(int length) {
+        int[] array = borrow(length);
+        Arrays.fill(array, 0, length, 0);
+        return array;
+    }
+
+    /**
+     * Gives the array back to the pool, null is ignored.
+     */
+    synchronized void release(int[] array) {
+        if (array == null || array.length > MAX_POOLED_LENGTH || Integer.bitCount(array.length) != 1
+                || retainedInts + array.length > maxRetainedInts) {
+            return;
+        }
+        int bucket = Integer.numberOfTrailingZeros(array.length);
+        if (freeCounts[bucket] < ARRAYS_PER_LENGTH) {
+            freeArrays[bucket][freeCounts[bucket]++] = array;
+            retainedInts += array.length;
+        }
+    }
+
+    synchronized long retainedInts() {
+        return retainedInts;
+    }
+}
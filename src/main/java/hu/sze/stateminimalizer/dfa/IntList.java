@@ -0,0 +1,58 @@
+package hu.sze.stateminimalizer.dfa;
+
+import java.util.Arrays;
+
+/**
+ * Growable int array, used where the final size is not known up front.
+ */
+final class IntList {
+
+    private int[] items;
+    private int size;
+
+    IntList(int capacity) {
+        items = new int[Math.max(capacity, 4)];
+    }
+
+    void add(int value) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, items.length * 2);
+        }
+        items[size++] = value;
+    }
+
+    /**
+     * Appends the value count times.
+     */
+    void addRepeated(int value, int count) {
+        if (size + count > items.length) {
+            items = Arrays.copyOf(items, Math.max(items.length * 2, size + count));
+        }
+        Arrays.fill(items, size, size + count, value);
+        size += count;
+    }
+
+    int get(int index) {
+        return items[index];
+    }
+
+    void set(int index, int value) {
+        items[index] = value;
+    }
+
+    int removeLast() {
+        return items[--size];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+}
@@ -0,0 +1,64 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+
+/**
+ * Incoming transitions of a {@link CompactDFA} grouped by (symbol, target), built with a counting sort.
+ * The sources entering state q on symbol a are at {@code sources[offsets[a*n+q] .. offsets[a*n+q+1])}.
+ * The arrays are borrowed from the {@link IntArrayPool}, {@link #release()} gives them back.
+ */
+final class InverseTransitions {
+
+    private final int stateCount;
+    private final int[] offsets;
+    private final int[] sources;
+
+    InverseTransitions(CompactDFA dfa) {
+        IntArrayPool pool = IntArrayPool.get();
+        stateCount = dfa.getStateCount();
+        int symbolCount = dfa.getSymbolCount();
+        int offsetCount = symbolCount * stateCount + 1;
+        offsets = pool.borrowZeroed(offsetCount);
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int target = dfa.getTarget(state, symbol);
+                if (target != CompactDFA.NO_TRANSITION) {
+                    offsets[symbol * stateCount + target + 1]++;
+                }
+            }
+        }
+        for (int i = 1; i < offsetCount; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        sources = pool.borrow(offsets[offsetCount - 1]);
+        int[] next = pool.borrow(offsetCount - 1);
+        System.arraycopy(offsets, 0, next, 0, offsetCount - 1);
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int target = dfa.getTarget(state, symbol);
+                if (target != CompactDFA.NO_TRANSITION) {
+                    sources[next[symbol * stateCount + target]++] = state;
+                }
+            }
+        }
+        pool.release(next);
+    }
+
+    int first(int symbol, int target) {
+        return offsets[symbol * stateCount + target];
+    }
+
+    int end(int symbol, int target) {
+        return offsets[symbol * stateCount + target + 1];
+    }
+
+    int source(int position) {
+        return sources[position];
+    }
+
+    void release() {
+        IntArrayPool pool = IntArrayPool.get();
+        pool.release(offsets);
+        pool.release(sources);
+    }
+}
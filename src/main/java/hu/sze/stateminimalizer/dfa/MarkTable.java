@@ -0,0 +1,72 @@
+package hu.sze.stateminimalizer.dfa;
+
+/**
+ * Lower triangle of the state pair table packed into a bitset, one bit per unordered pair of state indexes.
+ * The pair (a, b) with a &gt; b is stored at bit a*(a-1)/2 + b.
+ */
+final class MarkTable {
+
+    /** the longest array most JVMs allocate, it holds the pairs of about 2^19 states */
+    static final long MAX_WORD_COUNT = Integer.MAX_VALUE - 8;
+
+    private final int size;
+    private final long[] words;
+
+    /**
+     * @throws IllegalArgumentException if the table of this many states does not fit an array
+     */
+    MarkTable(int size) {
+        long wordCount = (pairCount(size) + 63) >>> 6;
+        if (wordCount > MAX_WORD_COUNT) {
+            throw new IllegalArgumentException("The pair table of " + size + " states does not fit in memory,"
+                    + " use the HOPCROFT or PARTIAL engine");
+        }
+        this.size = size;
+        this.words = new long[(int) wordCount];
+    }
+
+    static long pairCount(int size) {
+        return (long) size * (size - 1) / 2;
+    }
+
+    static long pairIndex(int stateA, int stateB) {
+        return stateA > stateB ? (long) stateA * (stateA - 1) / 2 + stateB : (long) stateB * (stateB - 1) / 2 + stateA;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long markedCount() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    boolean isMarked(int stateA, int stateB) {
+        return stateA != stateB && isMarked(pairIndex(stateA, stateB));
+    }
+
+    boolean isMarked(long pairIndex) {
+        return (words[(int) (pairIndex >>> 6)] & (1L << pairIndex)) != 0;
+    }
+
+    /**
+     * @return true if the pair was not marked before
+     */
+    boolean mark(int stateA, int stateB) {
+        return stateA != stateB && mark(pairIndex(stateA, stateB));
+    }
+
+    boolean mark(long pairIndex) {
+        int word = (int) (pairIndex >>> 6);
+        long bit = 1L << pairIndex;
+        if ((words[word] & bit) != 0) {
+            return false;
+        }
+        words[word] |= bit;
+        return true;
+    }
+}
@@ -0,0 +1,375 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates a {@link DfaMatcher} class for an automaton. Every state is a block of code: at the end of the input it
+ * returns whether the state is final, otherwise it reads the symbol class of the next character and jumps to the block
+ * of the target with a tableswitch. A state with one successor compares the class instead, and its successor's block
+ * is placed right after it, so runs of such states are straight-line code without jumps.
+ * The class is defined as a hidden class on Java 15+, before that in a class loader of its own; either way it is
+ * unloaded with the matcher. Automata over {@code maxStates} states, or whose code does not fit a method, get a {@link TableMatcher}.
+ * <p>
+ * The gain comes from the predictable branches: literal-like automata and inputs that mostly follow the same paths run
+ * about twice as fast as on the table. With many successors per state and random input the tableswitch mispredicts on
+ * most characters and the table is faster, {@code MatcherBenchmark} compares the two on the automata in question.
+ */
+@Component
+public class MatcherCompiler {
+
+    private static final Logger log = LoggerFactory.getLogger(MatcherCompiler.class);
+    private static final String SUPER_NAME = Type.getInternalName(CompiledMatcher.class);
+    private static final String CLASS_NAME = SUPER_NAME + "$Generated";
+    private static final AtomicLong CLASS_COUNTER = new AtomicLong();
+
+    //local variables of the generated methods, the parameters come before them
+    private static final int INDEX = 4;
+    private static final int END = 5;
+    private static final int CLASSES = 6;
+    private static final int SYMBOL_CLASS = 7;
+    private static final int CHARACTER = 8;
+
+    private enum InputKind {CHARS, BYTES, BUFFER}
+
+    private final int maxStates;
+    private final boolean hiddenClasses;
+
+    /**
+     * Uses {@code minimizer.compiled-matcher-max-states} as the state limit.
+     */
+    @Autowired
+    public MatcherCompiler(MinimizerProperties properties) {
+        this(properties.getCompiledMatcherMaxStates());
+    }
+
+    /**
+     * @param maxStates automata over this many states get a {@link TableMatcher}
+     */
+    public MatcherCompiler(int maxStates) {
+        this(maxStates, true);
+    }
+
+    /**
+     * @param hiddenClasses false to use the class loaders of Java 11 even where hidden classes are available
+     */
+    MatcherCompiler(int maxStates, boolean hiddenClasses) {
+        this.maxStates = maxStates;
+        this.hiddenClasses = hiddenClasses;
+    }
+
+    public DfaMatcher compile(DFA dfa) {
+        return compile(CompactDFA.fromDFA(dfa));
+    }
+
+    /**
+     * @throws IllegalArgumentException if a symbol is not a single character, see {@link TableMatcher#of(CompactDFA)}
+     */
+    public DfaMatcher compile(CompactDFA dfa) {
+        TableMatcher tableMatcher = TableMatcher.of(dfa);
+        if (tableMatcher.getStateCount() > maxStates) {
+            log.debug("{} states, using the table matcher", tableMatcher.getStateCount());
+            return tableMatcher;
+        }
+        try {
+            Class<?> matcherClass = defineClass(generate(tableMatcher));
+            return (DfaMatcher) matcherClass.getDeclaredConstructor(int[].class, int[].class)
+                    .newInstance(tableMatcher.getCharClasses(), tableMatcher.getByteClasses());
+        } catch (RuntimeException | ReflectiveOperationException e) {
+            //MethodTooLargeException of ASM included
+            log.debug("Could not compile the matcher of {} states, using the table matcher", tableMatcher.getStateCount(), e);
+            return tableMatcher;
+        }
+    }
+
+    private byte[] generate(TableMatcher tableMatcher) {
+        ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                return "java/lang/Object";
+            }
+        };
+        //public for the constructor call from another class loader
+        classWriter.visit(Opcodes.V11, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+                CLASS_NAME + CLASS_COUNTER.incrementAndGet(), null, SUPER_NAME, null);
+
+        MethodVisitor constructor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "([I[I)V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitVarInsn(Opcodes.ALOAD, 1);
+        constructor.visitVarInsn(Opcodes.ALOAD, 2);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, SUPER_NAME, "<init>", "([I[I)V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+
+        int[] layout = createLayout(tableMatcher);
+        generateMatches(classWriter.visitMethod(Opcodes.ACC_PUBLIC, "matches", "(Ljava/lang/CharSequence;)Z", null, null),
+                tableMatcher, layout, InputKind.CHARS);
+        generateMatches(classWriter.visitMethod(Opcodes.ACC_PUBLIC, "matches", "([BII)Z", null, null),
+                tableMatcher, layout, InputKind.BYTES);
+        generateMatches(classWriter.visitMethod(Opcodes.ACC_PROTECTED, "matchesDirect", "(Ljava/nio/ByteBuffer;II)Z", null, null),
+                tableMatcher, layout, InputKind.BUFFER);
+        classWriter.visitEnd();
+        return classWriter.toByteArray();
+    }
+
+    /**
+     * Order of the state blocks: the initial state first, every state followed by its only successor while there is one
+     * that is not placed yet.
+     */
+    private int[] createLayout(TableMatcher tableMatcher) {
+        int stateCount = tableMatcher.getStateCount();
+        int stride = tableMatcher.getStride();
+        boolean[] placed = new boolean[stateCount + 1];
+        placed[0] = true;
+        int[] layout = new int[stateCount];
+        int size = 0;
+        int initialRow = tableMatcher.getInitialState() / stride;
+        for (int start = 0; start <= stateCount; start++) {
+            int row = start == 0 ? initialRow : start;
+            while (row != -1 && !placed[row]) {
+                placed[row] = true;
+                layout[size++] = row;
+                int successor = getSingleSuccessor(tableMatcher, row);
+                row = successor > 0 ? successor : -1;
+            }
+        }
+        return Arrays.copyOf(layout, size);
+    }
+
+    /**
+     * @return the row of the only live target, 0 if there are none, -1 if there are more
+     */
+    private static int getSingleSuccessor(TableMatcher tableMatcher, int row) {
+        int stride = tableMatcher.getStride();
+        int successor = 0;
+        for (int symbolClass = 0; symbolClass < tableMatcher.getSymbolClassCount(); symbolClass++) {
+            int target = tableMatcher.getTransitions()[row * stride + symbolClass] / stride;
+            if (target != 0 && successor != 0 && target != successor) {
+                return -1;
+            }
+            if (target != 0) {
+                successor = target;
+            }
+        }
+        return successor;
+    }
+
+    private void generateMatches(MethodVisitor method, TableMatcher tableMatcher, int[] layout, InputKind inputKind) {
+        int stride = tableMatcher.getStride();
+        int classCount = tableMatcher.getSymbolClassCount();
+        int[] transitions = tableMatcher.getTransitions();
+        Label[] stateLabels = new Label[tableMatcher.getStateCount() + 1];
+        for (int row : layout) {
+            stateLabels[row] = new Label();
+        }
+        Label reject = new Label();
+        stateLabels[0] = reject;
+
+        method.visitCode();
+        generatePrologue(method, inputKind);
+        int initialRow = tableMatcher.getInitialState() / stride;
+        if (initialRow == 0) {
+            method.visitJumpInsn(Opcodes.GOTO, reject);
+        }
+        for (int i = 0; i < layout.length; i++) {
+            int row = layout[i];
+            Label next = i + 1 < layout.length ? stateLabels[layout[i + 1]] : null;
+            method.visitLabel(stateLabels[row]);
+
+            Label hasInput = new Label();
+            method.visitVarInsn(Opcodes.ILOAD, INDEX);
+            method.visitVarInsn(Opcodes.ILOAD, END);
+            method.visitJumpInsn(Opcodes.IF_ICMPLT, hasInput);
+            method.visitInsn(tableMatcher.isAccepting(row * stride) ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+            method.visitInsn(Opcodes.IRETURN);
+            method.visitLabel(hasInput);
+
+            int successor = getSingleSuccessor(tableMatcher, row);
+            if (successor == 0) {
+                method.visitJumpInsn(Opcodes.GOTO, reject);
+                continue;
+            }
+            generateReadSymbolClass(method, inputKind, reject);
+            if (successor > 0) {
+                int liveClass = -1;
+                int liveClassCount = 0;
+                for (int symbolClass = 0; symbolClass < classCount; symbolClass++) {
+                    if (transitions[row * stride + symbolClass] != 0) {
+                        liveClass = symbolClass;
+                        liveClassCount++;
+                    }
+                }
+                method.visitVarInsn(Opcodes.ILOAD, SYMBOL_CLASS);
+                if (liveClassCount == classCount) {
+                    //every known character leads to the successor
+                    pushInt(method, classCount);
+                    method.visitJumpInsn(Opcodes.IF_ICMPEQ, reject);
+                } else if (liveClassCount == 1) {
+                    pushInt(method, liveClass);
+                    method.visitJumpInsn(Opcodes.IF_ICMPNE, reject);
+                } else {
+                    generateSwitch(method, transitions, row, stride, classCount, stateLabels, reject);
+                    continue;
+                }
+                if (stateLabels[successor] != next) {
+                    method.visitJumpInsn(Opcodes.GOTO, stateLabels[successor]);
+                }
+            } else {
+                method.visitVarInsn(Opcodes.ILOAD, SYMBOL_CLASS);
+                generateSwitch(method, transitions, row, stride, classCount, stateLabels, reject);
+            }
+        }
+        method.visitLabel(reject);
+        method.visitInsn(Opcodes.ICONST_0);
+        method.visitInsn(Opcodes.IRETURN);
+        method.visitMaxs(0, 0);
+        method.visitEnd();
+    }
+
+    private static void generateSwitch(MethodVisitor method, int[] transitions, int row, int stride, int classCount,
+                                       Label[] stateLabels, Label reject) {
+        Label[] targets = new Label[classCount];
+        for (int symbolClass = 0; symbolClass < classCount; symbolClass++) {
+            targets[symbolClass] = stateLabels[transitions[row * stride + symbolClass] / stride];
+        }
+        method.visitTableSwitchInsn(0, classCount - 1, reject, targets);
+    }
+
+    /**
+     * Sets the index, the end and the class array locals.
+     */
+    private static void generatePrologue(MethodVisitor method, InputKind inputKind) {
+        switch (inputKind) {
+            case CHARS:
+                method.visitInsn(Opcodes.ICONST_0);
+                method.visitVarInsn(Opcodes.ISTORE, INDEX);
+                method.visitVarInsn(Opcodes.ALOAD, 1);
+                method.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/lang/CharSequence", "length", "()I", true);
+                method.visitVarInsn(Opcodes.ISTORE, END);
+                break;
+            case BYTES:
+                method.visitVarInsn(Opcodes.ILOAD, 2);
+                method.visitVarInsn(Opcodes.ISTORE, INDEX);
+                method.visitVarInsn(Opcodes.ILOAD, 2);
+                method.visitVarInsn(Opcodes.ILOAD, 3);
+                method.visitInsn(Opcodes.IADD);
+                method.visitVarInsn(Opcodes.ISTORE, END);
+                break;
+            case BUFFER:
+                method.visitVarInsn(Opcodes.ILOAD, 2);
+                method.visitVarInsn(Opcodes.ISTORE, INDEX);
+                method.visitVarInsn(Opcodes.ILOAD, 3);
+                method.visitVarInsn(Opcodes.ISTORE, END);
+                break;
+        }
+        method.visitVarInsn(Opcodes.ALOAD, 0);
+        method.visitFieldInsn(Opcodes.GETFIELD, SUPER_NAME, inputKind == InputKind.CHARS ? "charClasses" : "byteClasses", "[I");
+        method.visitVarInsn(Opcodes.ASTORE, CLASSES);
+    }
+
+    /**
+     * symbolClass = classes[input[index++]], a character without a class rejects.
+     */
+    private static void generateReadSymbolClass(MethodVisitor method, InputKind inputKind, Label reject) {
+        method.visitVarInsn(Opcodes.ALOAD, 1);
+        method.visitVarInsn(Opcodes.ILOAD, INDEX);
+        switch (inputKind) {
+            case CHARS:
+                method.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/lang/CharSequence", "charAt", "(I)C", true);
+                method.visitVarInsn(Opcodes.ISTORE, CHARACTER);
+                method.visitVarInsn(Opcodes.ILOAD, CHARACTER);
+                method.visitVarInsn(Opcodes.ALOAD, CLASSES);
+                method.visitInsn(Opcodes.ARRAYLENGTH);
+                method.visitJumpInsn(Opcodes.IF_ICMPGE, reject);
+                method.visitVarInsn(Opcodes.ALOAD, CLASSES);
+                method.visitVarInsn(Opcodes.ILOAD, CHARACTER);
+                break;
+            case BYTES:
+                method.visitInsn(Opcodes.BALOAD);
+                method.visitIntInsn(Opcodes.SIPUSH, 0xFF);
+                method.visitInsn(Opcodes.IAND);
+                method.visitVarInsn(Opcodes.ISTORE, CHARACTER);
+                method.visitVarInsn(Opcodes.ALOAD, CLASSES);
+                method.visitVarInsn(Opcodes.ILOAD, CHARACTER);
+                break;
+            case BUFFER:
+                method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/nio/ByteBuffer", "get", "(I)B", false);
+                method.visitIntInsn(Opcodes.SIPUSH, 0xFF);
+                method.visitInsn(Opcodes.IAND);
+                method.visitVarInsn(Opcodes.ISTORE, CHARACTER);
+                method.visitVarInsn(Opcodes.ALOAD, CLASSES);
+                method.visitVarInsn(Opcodes.ILOAD, CHARACTER);
+                break;
+        }
+        method.visitInsn(Opcodes.IALOAD);
+        method.visitVarInsn(Opcodes.ISTORE, SYMBOL_CLASS);
+        method.visitIincInsn(INDEX, 1);
+    }
+
+    private static void pushInt(MethodVisitor method, int value) {
+        if (value <= 5) {
+            method.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value <= Short.MAX_VALUE) {
+            method.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            method.visitLdcInsn(value);
+        }
+    }
+
+    /**
+     * Hidden classes are looked up reflectively, the application still targets Java 11. Without them every class gets
+     * a new {@link MatcherClassLoader}: a class defined through a lookup would belong to the application class loader
+     * and stay in Metaspace until the application stops.
+     */
+    private Class<?> defineClass(byte[] classBytes) throws ReflectiveOperationException {
+        if (hiddenClasses) {
+            try {
+                Class<?> classOptionType = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+                Method defineHiddenClass = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class,
+                        boolean.class, Array.newInstance(classOptionType, 0).getClass());
+                MethodHandles.Lookup hiddenClassLookup = (MethodHandles.Lookup) defineHiddenClass.invoke(
+                        MethodHandles.lookup(), classBytes, true, Array.newInstance(classOptionType, 0));
+                return hiddenClassLookup.lookupClass();
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                //before Java 15
+            }
+        }
+        return new MatcherClassLoader(MatcherCompiler.class.getClassLoader()).define(classBytes);
+    }
+
+    static boolean isCompiled(DfaMatcher matcher) {
+        return matcher instanceof CompiledMatcher;
+    }
+
+    /**
+     * Defines one generated class. The class is in another runtime package than {@link CompiledMatcher}, which is
+     * public for this reason.
+     */
+    private static final class MatcherClassLoader extends ClassLoader {
+
+        MatcherClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(byte[] classBytes) {
+            return defineClass(null, classBytes, 0, classBytes.length);
+        }
+    }
+}
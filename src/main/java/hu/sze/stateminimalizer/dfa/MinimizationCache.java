@@ -0,0 +1,121 @@
+package hu.sze.stateminimalizer.dfa;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of minimization results keyed by the {@link CanonicalForm} hash.
+ * Entries are evicted when their estimated size exceeds the memory budget, entries larger than the budget are not stored.
+ */
+@Component
+public class MinimizationCache {
+
+    private final long maxSizeInBytes;
+    private final LinkedHashMap<String, CachedMinimization> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeInBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    @Autowired
+    public MinimizationCache(MinimizerProperties properties) {
+        this(properties.getCacheSizeBytes());
+    }
+
+    MinimizationCache(long maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    synchronized CachedMinimization get(String key) {
+        CachedMinimization entry = entries.get(key);
+        if (entry != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return entry;
+    }
+
+    synchronized void put(String key, CachedMinimization entry) {
+        long entrySize = entry.getSizeInBytes();
+        if (entrySize > maxSizeInBytes) {
+            return;
+        }
+        CachedMinimization previous = entries.put(key, entry);
+        if (previous != null) {
+            sizeInBytes -= previous.getSizeInBytes();
+        }
+        sizeInBytes += entrySize;
+        Iterator<Map.Entry<String, CachedMinimization>> leastRecentlyUsed = entries.entrySet().iterator();
+        while (sizeInBytes > maxSizeInBytes && leastRecentlyUsed.hasNext()) {
+            sizeInBytes -= leastRecentlyUsed.next().getValue().getSizeInBytes();
+            leastRecentlyUsed.remove();
+            evictionCount++;
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSizeInBytes > 0;
+    }
+
+    public synchronized Statistics getStatistics() {
+        return new Statistics(hitCount, missCount, evictionCount, entries.size(), sizeInBytes, maxSizeInBytes);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        sizeInBytes = 0;
+    }
+
+    public static final class Statistics {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final int entryCount;
+        private final long sizeInBytes;
+        private final long maxSizeInBytes;
+
+        Statistics(long hitCount, long missCount, long evictionCount, int entryCount, long sizeInBytes, long maxSizeInBytes) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.entryCount = entryCount;
+            this.sizeInBytes = sizeInBytes;
+            this.maxSizeInBytes = maxSizeInBytes;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        public int getEntryCount() {
+            return entryCount;
+        }
+
+        public long getSizeInBytes() {
+            return sizeInBytes;
+        }
+
+        public long getMaxSizeInBytes() {
+            return maxSizeInBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "hits: " + hitCount + ", misses: " + missCount + ", evictions: " + evictionCount
+                    + ", entries: " + entryCount + ", size: " + sizeInBytes + "/" + maxSizeInBytes + " bytes";
+        }
+    }
+}
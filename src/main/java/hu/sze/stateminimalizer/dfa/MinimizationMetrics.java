@@ -0,0 +1,167 @@
+package hu.sze.stateminimalizer.dfa;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-phase timers and allocation summaries in Micrometer (exposed by Actuator under {@code /actuator/metrics}),
+ * plus a {@link MinimizationPhaseEvent} for Flight Recorder and a debug log line for every phase.
+ * Without a registry only the events and the log remain; when none of them is enabled a phase only allocates an
+ * event that is never begun.
+ */
+@Component
+public class MinimizationMetrics {
+
+    public enum Phase {
+        PARSE,
+        PRUNE,
+        RED_MARKING,
+        EVENT_SET_SPLITTING,
+        PROPAGATION,
+        REFINEMENT,
+        GROUPING,
+        QUOTIENT;
+
+        private final String tag = name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(MinimizationMetrics.class);
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final MinimizationMetrics DISABLED = new MinimizationMetrics(null);
+
+    private final MeterRegistry registry;
+    private final Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+    private final Map<Phase, DistributionSummary> allocations = new EnumMap<>(Phase.class);
+
+    public MinimizationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        if (registry != null) {
+            for (Phase phase : Phase.values()) {
+                timers.put(phase, Timer.builder("minimizer.phase")
+                        .description("Duration of a phase of reading or minimizing an automaton")
+                        .tag("phase", phase.tag)
+                        .register(registry));
+                allocations.put(phase, DistributionSummary.builder("minimizer.phase.allocated")
+                        .description("Bytes allocated by the thread running the phase")
+                        .baseUnit("bytes")
+                        .tag("phase", phase.tag)
+                        .register(registry));
+            }
+        }
+    }
+
+    /**
+     * @return metrics that only emit the Flight Recorder events and the debug log
+     */
+    public static MinimizationMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return scope to close at the end of the phase, e.g. with try-with-resources
+     */
+    public PhaseScope start(Phase phase, int stateCount) {
+        MinimizationPhaseEvent event = new MinimizationPhaseEvent();
+        if (registry == null && !event.isEnabled() && !log.isDebugEnabled()) {
+            return PhaseScope.NOOP;
+        }
+        event.begin();
+        return new PhaseScope(this, phase, stateCount, event);
+    }
+
+    /**
+     * @param kind e.g. input, unreachable, dead, minimal
+     */
+    public void recordStates(String kind, long count) {
+        log.debug("States {}: {}", kind, count);
+        if (registry != null) {
+            DistributionSummary.builder("minimizer.states").tag("kind", kind).register(registry).record(count);
+        }
+    }
+
+    /**
+     * @param kind e.g. total, red, blue, marked
+     */
+    public void recordPairs(String kind, long count) {
+        log.debug("Pairs {}: {}", kind, count);
+        if (registry != null) {
+            Counter.builder("minimizer.pairs").tag("kind", kind).register(registry).increment(count);
+        }
+    }
+
+    private void record(Phase phase, int stateCount, long nanos, long allocatedBytes, MinimizationPhaseEvent event) {
+        if (registry != null) {
+            timers.get(phase).record(nanos, TimeUnit.NANOSECONDS);
+            if (allocatedBytes >= 0) {
+                allocations.get(phase).record(allocatedBytes);
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase.tag;
+            event.stateCount = stateCount;
+            event.allocatedBytes = allocatedBytes;
+            event.commit();
+        }
+        log.debug("Phase {} on {} states: {} µs, {} bytes allocated", phase.tag, stateCount, nanos / 1000, allocatedBytes);
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, -1 if the JVM cannot tell
+     */
+    private static long currentThreadAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    public static class PhaseScope implements AutoCloseable {
+        private static final PhaseScope NOOP = new PhaseScope(null, null, 0, null);
+
+        private final MinimizationMetrics metrics;
+        private final Phase phase;
+        private int stateCount;
+        private final MinimizationPhaseEvent event;
+        private final long startNanos;
+        private final long startAllocatedBytes;
+
+        private PhaseScope(MinimizationMetrics metrics, Phase phase, int stateCount, MinimizationPhaseEvent event) {
+            this.metrics = metrics;
+            this.phase = phase;
+            this.stateCount = stateCount;
+            this.event = event;
+            this.startNanos = metrics == null ? 0 : System.nanoTime();
+            this.startAllocatedBytes = metrics == null ? -1 : currentThreadAllocatedBytes();
+        }
+
+        /**
+         * For phases that only learn the size of their input while running, like parsing.
+         */
+        public void setStateCount(int stateCount) {
+            this.stateCount = stateCount;
+        }
+
+        @Override
+        public void close() {
+            if (metrics == null) {
+                return;
+            }
+            long nanos = System.nanoTime() - startNanos;
+            long allocatedBytes = startAllocatedBytes < 0 ? -1 : currentThreadAllocatedBytes() - startAllocatedBytes;
+            metrics.record(phase, stateCount, nanos, allocatedBytes, event);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package hu.sze.stateminimalizer.dfa;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of one phase of reading or minimizing an automaton, the duration is the event's own.
+ */
+@Name("hu.sze.stateminimalizer.MinimizationPhase")
+@Label("Minimization Phase")
+@Category("State Minimalizer")
+@Description("One phase of reading or minimizing an automaton")
+public class MinimizationPhaseEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("States")
+    @Description("Number of states the phase worked on, 0 if not known yet")
+    int stateCount;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,19 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.MinimizationMetrics.Phase;
+
+/**
+ * Progress of {@link Minimizer#minimize}, called on the minimizing thread at the start of every phase and about a
+ * hundred times during the pair table phases, so it should only hand the values over.
+ */
+@FunctionalInterface
+public interface MinimizationProgressListener {
+
+    MinimizationProgressListener NONE = (phase, processedPairs, totalPairs) -> { };
+
+    /**
+     * @param processedPairs pairs of the table the phase is done with
+     * @param totalPairs pairs of the table, 0 for the phases that do not work on the table
+     */
+    void onProgress(Phase phase, long processedPairs, long totalPairs);
+}
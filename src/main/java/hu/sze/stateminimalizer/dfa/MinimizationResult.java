@@ -0,0 +1,116 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import hu.sze.stateminimalizer.dfa.model.State;
+import hu.sze.stateminimalizer.dfa.model.StateGroup;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of one minimization: the minimal automaton, the reduced input it was computed from and the pair table
+ * queries of the grid. Nothing changes it after {@link Minimizer#minimize} returns, so it can be read from any thread.
+ * The automata and the groups are not copied, they must not be modified either.
+ */
+public final class MinimizationResult {
+
+    private final DFA minimalDfa;
+    private final DFA reducedDfa;
+    private final BitSet finalStates; //by state index
+    private final List<StateGroup> minimalizedGroups;
+    private final int removedUnreachableCount;
+    private final int removedDeadCount;
+    private final int[] stateIndexesById;
+    private final int[] blocks;
+    private final int[] eventSetGroupIds;
+    private final String[] eventSetKeys;
+    private final MarkTable redMarked; //the mark tables are null if a partition refinement engine was used
+    private final MarkTable blueMarked;
+    private final MarkTable marked;
+    private final int[] markIndexes; //state index -> index in the mark tables, null if they are the same
+
+    MinimizationResult(DFA minimalDfa, DFA reducedDfa, BitSet finalStates, List<StateGroup> minimalizedGroups,
+                       int removedUnreachableCount, int removedDeadCount, int[] stateIndexesById, int[] blocks,
+                       int[] eventSetGroupIds, String[] eventSetKeys, MarkTable redMarked, MarkTable blueMarked,
+                       MarkTable marked, int[] markIndexes) {
+        this.minimalDfa = minimalDfa;
+        this.reducedDfa = reducedDfa;
+        this.finalStates = finalStates;
+        this.minimalizedGroups = Collections.unmodifiableList(minimalizedGroups);
+        this.removedUnreachableCount = removedUnreachableCount;
+        this.removedDeadCount = removedDeadCount;
+        this.stateIndexesById = stateIndexesById;
+        this.blocks = blocks;
+        this.eventSetGroupIds = eventSetGroupIds;
+        this.eventSetKeys = eventSetKeys;
+        this.redMarked = redMarked;
+        this.blueMarked = blueMarked;
+        this.marked = marked;
+        this.markIndexes = markIndexes;
+    }
+
+    public DFA getMinimalDfa() {
+        return minimalDfa;
+    }
+
+    /**
+     * @return the input automaton without its unreachable states, the rows and columns of the pair table
+     */
+    public DFA getReducedDfa() {
+        return reducedDfa;
+    }
+
+    public List<StateGroup> getMinimalizedGroups() {
+        return minimalizedGroups;
+    }
+
+    public int getRemovedUnreachableCount() {
+        return removedUnreachableCount;
+    }
+
+    public int getRemovedDeadCount() {
+        return removedDeadCount;
+    }
+
+    public boolean isMarkedAsRed(State stateA, State stateB) {
+        if (marked != null) {
+            return redMarked.isMarked(findMarkIndex(stateA), findMarkIndex(stateB));
+        }
+        return finalStates.get(findStateIndex(stateA)) != finalStates.get(findStateIndex(stateB));
+    }
+
+    public boolean isMarkedAsBlue(State stateA, State stateB) {
+        if (marked != null) {
+            return blueMarked.isMarked(findMarkIndex(stateA), findMarkIndex(stateB));
+        }
+        return !isMarkedAsRed(stateA, stateB) && eventSetGroupIds[findStateIndex(stateA)] != eventSetGroupIds[findStateIndex(stateB)];
+    }
+
+    public boolean isMarked(State stateA, State stateB) {
+        if (marked != null) {
+            return marked.isMarked(findMarkIndex(stateA), findMarkIndex(stateB));
+        }
+        return blocks[findStateIndex(stateA)] != blocks[findStateIndex(stateB)];
+    }
+
+    /**
+     * @return id of the state of the minimal automaton that the state of the reduced automaton was merged into
+     */
+    public int getBlock(State state) {
+        return blocks[findStateIndex(state)];
+    }
+
+    public String getActiveEventSet(State state) {
+        return eventSetKeys[findStateIndex(state)];
+    }
+
+    private int findStateIndex(State state) {
+        return stateIndexesById[state.getId()];
+    }
+
+    private int findMarkIndex(State state) {
+        int stateIndex = findStateIndex(state);
+        return markIndexes != null ? markIndexes[stateIndex] : stateIndex;
+    }
+}
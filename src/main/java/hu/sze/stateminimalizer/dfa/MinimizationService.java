@@ -0,0 +1,52 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Minimization for concurrent callers: the service holds only the shared configuration, cache and metrics, every
+ * call runs a new {@link Minimizer} on the calling thread and returns its immutable {@link MinimizationResult}.
+ * The large scratch tables come from the shared {@link IntArrayPool}, so the calls on many small or medium automata
+ * keep reusing them. The fork-join pools of the parallel refinement are shut down with the service.
+ */
+@Service
+public class MinimizationService {
+
+    private final MinimizerProperties properties;
+    private final MinimizationCache cache;
+    private final MinimizationMetrics metrics;
+
+    /**
+     * @param cache results of earlier minimizations, may be null
+     */
+    public MinimizationService(MinimizerProperties properties, MinimizationCache cache, MinimizationMetrics metrics) {
+        this.properties = properties;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @throws CancellationException if the thread is interrupted, the interrupt status stays set
+     */
+    public MinimizationResult minimize(DFA dfa) {
+        return minimize(dfa, MinimizationProgressListener.NONE);
+    }
+
+    /**
+     * @throws CancellationException if the thread is interrupted, the interrupt status stays set
+     */
+    public MinimizationResult minimize(DFA dfa, MinimizationProgressListener progressListener) {
+        Minimizer minimizer = new Minimizer(properties, cache, metrics);
+        minimizer.setProgressListener(progressListener);
+        minimizer.minimize(dfa);
+        return minimizer.getResult();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ParallelMooreMinimizer.shutdownPools();
+    }
+}
@@ -1,290 +1,642 @@
 package hu.sze.stateminimalizer.dfa;
 
+import hu.sze.stateminimalizer.dfa.MinimizationMetrics.Phase;
+import hu.sze.stateminimalizer.dfa.MinimizationMetrics.PhaseScope;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
 import hu.sze.stateminimalizer.dfa.model.DFA;
 import hu.sze.stateminimalizer.dfa.model.State;
 import hu.sze.stateminimalizer.dfa.model.StateGroup;
-import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.Set;
 import java.util.StringJoiner;
-import java.util.function.Function;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Runs one minimization at a time and keeps its working state in fields until the next one, the scratch tables of the
+ * engines are borrowed from the shared {@link IntArrayPool}. Concurrent callers use
+ * {@link MinimizationService}, which runs a new minimizer for every call.
+ */
 public class Minimizer {
 
-    private ArrayList<Pair<Integer, Integer>> redMarked = new ArrayList<>();
-    private ArrayList<Pair<Integer, Integer>> blueMarked = new ArrayList<>();
+    public enum Engine {
+        /** pair table with red/blue marks and dependent pairs */
+        TABLE_FILLING,
+        /** Hopcroft partition refinement, O(k·n·log n) */
+        HOPCROFT,
+        /** Valmari's refinement of blocks and transition cords, O(m·log n) for m existing transitions */
+        PARTIAL
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(Minimizer.class);
+    private static final int PAIR_QUEUE_CAPACITY = 1 << 16;
+    private static final int PROGRESS_REPORTS_PER_PHASE = 100;
+    private static final int INTERRUPT_CHECK_INTERVAL = 1 << 12;
+
+    private final MinimizerProperties properties;
+    private final MinimizationCache cache;
+    private final MinimizationMetrics metrics;
+    private MinimizationProgressListener progressListener = MinimizationProgressListener.NONE;
+    private long totalPairs;
+    private long nextProgressReport;
+    private MarkTable redMarked;
+    private MarkTable blueMarked;
     private int currentStateGroupIndex = 0;
-    private ArrayList<Pair<Integer, Integer>> marked;
+    private MarkTable marked;
     private Map<String, StateGroup> finalStateEventSetMap;
     private Map<String, StateGroup> nonFinalStateEventSetMap;
-    private Map<Integer, State> statesByIds;
     private DFA dfa;
-    private List<Pair<Integer, Integer>> pairs;
+    private CompactDFA compactDfa; //null for the PARTIAL engine, which reads the transition maps
+    private CompactDFA engineDfa; //compactDfa on its symbol classes, the refinement and the propagation run on it
+    private int[] stateIndexesById;
+    private BitSet finalStates; //by state index
+    private int[] eventSetGroupIds;
+    private String[] eventSetKeys;
     private List<StateGroup> minimalizedGroups;
+    private int[] blocks;
+    private int blockCount;
+    private int removedUnreachableCount;
+    private int removedDeadCount;
+    private int[] markIndexes; //state index -> index in the mark tables, null if they are the same
+    private MinimizationResult result;
+
+    public Minimizer() {
+        this(Engine.TABLE_FILLING);
+    }
 
-    public DFA minimize(DFA initialDfa){
-        dfa = removeUnreachableStates(initialDfa);
-        statesByIds = dfa.getStates().stream().collect(Collectors.toMap(State::getId, Function.identity()));
-        marked = new ArrayList<>();
-
-        markByIsFinalState();
-        pairs = createStatePairs();
+    public Minimizer(Engine engine) {
+        this(createProperties(engine));
+    }
 
-        setupStateGroupsByEventSets();
-        groupByTargetStateGroups();
+    public Minimizer(MinimizerProperties properties) {
+        this(properties, null);
+    }
 
-        minimalizedGroups = getMinimizedStateGroups();
+    /**
+     * @param cache results of earlier minimizations, may be null
+     */
+    public Minimizer(MinimizerProperties properties, MinimizationCache cache) {
+        this(properties, cache, MinimizationMetrics.disabled());
+    }
 
-        System.out.println("final groups: ");
-        minimalizedGroups.forEach(stateGroup -> System.out.println(stateGroup.toString()));
+    /**
+     * @param cache results of earlier minimizations, may be null
+     */
+    public Minimizer(MinimizerProperties properties, MinimizationCache cache, MinimizationMetrics metrics) {
+        this.properties = properties;
+        this.cache = cache;
+        this.metrics = metrics;
+    }
 
-        return dfa;
+    private static MinimizerProperties createProperties(Engine engine) {
+        MinimizerProperties properties = new MinimizerProperties();
+        properties.setEngine(engine);
+        return properties;
     }
 
-    private List<StateGroup> getMinimizedStateGroups() {
-        List<StateGroup> minimizedGroups = new ArrayList<>();
+    public void setProgressListener(MinimizationProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
 
-        Set<Integer> stateIdsInGroup = new HashSet<>();
-        for(int rowIndex = 0; rowIndex< dfa.getStates().size(); rowIndex++){
-            State rowState = dfa.getStates().get(rowIndex);
-            boolean hasPair = checkRowMatchingGroups(rowState, rowIndex, stateIdsInGroup, minimizedGroups);
-            if(!stateIdsInGroup.contains(rowState.getId()) && !hasPair){
-                StateGroup newStateGroup = new StateGroup(
-                        minimizedGroups.size()+1);
-                newStateGroup.states.add(rowState);
-                minimizedGroups.add(newStateGroup);
-                stateIdsInGroup.add(rowState.getId());
+    /**
+     * @throws CancellationException if the thread is interrupted, the interrupt status stays set
+     */
+    public DFA minimize(DFA initialDfa){
+        redMarked = null;
+        blueMarked = null;
+        marked = null;
+        markIndexes = null;
+        blocks = null;
+        currentStateGroupIndex = 0;
+        totalPairs = 0;
+        removedDeadCount = 0;
+        metrics.recordStates("input", initialDfa.getStates().size());
+        runPhase(Phase.PRUNE, initialDfa.getStates().size(), () -> {
+            dfa = removeUnreachableStates(initialDfa);
+            if (properties.isPruneDeadStates()) {
+                dfa = removeDeadStates(dfa);
             }
+            stateIndexesById = dfa.getStateIndexesById(); //compactDfa keeps the order of the states
+            finalStates = createFinalStates();
+            if (properties.getEngine() == Engine.PARTIAL) {
+                //O(n + m) on the transition maps, the n·k table is what this engine is for avoiding
+                compactDfa = null;
+                engineDfa = null;
+            } else {
+                compactDfa = CompactDFA.fromDFA(dfa);
+                engineDfa = compressAlphabet(compactDfa);
+            }
+        });
+        int stateCount = dfa.getStates().size();
+
+        //the canonical form walks the n·k table as well, so the PARTIAL engine is not cached
+        CanonicalForm canonicalForm = cache != null && cache.isEnabled() && compactDfa != null ? CanonicalForm.of(compactDfa) : null;
+        CachedMinimization cachedMinimization = canonicalForm != null ? cache.get(getCacheKey(canonicalForm)) : null;
+        if (cachedMinimization != null) {
+            runPhase(Phase.EVENT_SET_SPLITTING, stateCount, this::setupStateGroupsByEventSets);
+            useCachedMinimization(cachedMinimization, canonicalForm);
+        } else if (properties.getEngine() != Engine.TABLE_FILLING) {
+            runPhase(Phase.EVENT_SET_SPLITTING, stateCount, this::setupStateGroupsByEventSets);
+            runPhase(Phase.REFINEMENT, stateCount, this::computeBlocksByPartitionRefinement);
+        } else {
+            redMarked = new MarkTable(stateCount);
+            blueMarked = new MarkTable(stateCount);
+            marked = new MarkTable(stateCount);
+            totalPairs = MarkTable.pairCount(stateCount);
+            metrics.recordPairs("total", totalPairs);
+
+            runPhase(Phase.RED_MARKING, stateCount, this::markByIsFinalState);
+            runPhase(Phase.EVENT_SET_SPLITTING, stateCount, () -> {
+                setupStateGroupsByEventSets();
+                markByEventSets();
+            });
+            runPhase(Phase.PROPAGATION, stateCount, this::groupByTargetStateGroups);
+            totalPairs = 0;
+            metrics.recordPairs("red", redMarked.markedCount());
+            metrics.recordPairs("blue", blueMarked.markedCount());
+            metrics.recordPairs("marked", marked.markedCount());
         }
-        return minimizedGroups;
-    }
-
-    private boolean checkRowMatchingGroups(State rowState, int rowIndex, Set<Integer> stateIdsInGroup, List<StateGroup> minimizedGroups ){
-        boolean hasPair = false;
-        for(int columnIndex = rowIndex+1; columnIndex < dfa.getStates().size(); columnIndex++ ){
-            State columnState = dfa.getStates().get(columnIndex);
-            if(!stateIdsInGroup.contains(columnState.getId()) && !isMarked(rowState, columnState)){
-                Optional<StateGroup> group = minimizedGroups.stream()
-                        .filter(stateGroup -> stateGroup.states.contains(rowState)).findFirst();
-                if(group.isPresent()){
-                    group.get().states.add(columnState);
-                    stateIdsInGroup.add(columnState.getId());
-                } else { //create new Group
-                    StateGroup newStateGroup = new StateGroup(minimizedGroups.size()+1);
-                    newStateGroup.states.add(rowState);
-                    newStateGroup.states.add(columnState);
-                    stateIdsInGroup.add(rowState.getId());
-                    stateIdsInGroup.add(columnState.getId());
-                    minimizedGroups.add(newStateGroup);
-                }
-                hasPair = true;
-            } //else nothing to do here
+        runPhase(Phase.GROUPING, stateCount, () -> {
+            if (blocks == null) {
+                blocks = getBlocksByMarkTable();
+            }
+            renumberBlocksByFirstState();
+            minimalizedGroups = getStateGroupsByBlocks();
+        });
+        if (canonicalForm != null && cachedMinimization == null && canonicalForm.size() == stateCount) {
+            cache.put(getCacheKey(canonicalForm), createCachedMinimization(canonicalForm));
         }
-        return hasPair;
+        log.debug("Final groups: {}", minimalizedGroups);
+
+        DFA quotientDfa = computeInPhase(Phase.QUOTIENT, stateCount, this::buildQuotientDfa);
+        metrics.recordStates("minimal", blockCount);
+        result = new MinimizationResult(quotientDfa, dfa, finalStates, minimalizedGroups, removedUnreachableCount,
+                removedDeadCount, stateIndexesById, blocks, eventSetGroupIds, eventSetKeys, redMarked, blueMarked,
+                marked, markIndexes);
+        return quotientDfa;
     }
 
-    private void groupByTargetStateGroups() {
-        //left is the owner, right is a list of dependent pairs
-        Map<Pair<Integer, Integer>, List<Pair<Integer, Integer>>> dependentPairs = new HashMap<>();
-        pairs.stream().filter(statePair -> !isMarked(statePair))
-                .forEachOrdered(statePair -> {
-                    checkPairTransitions(statePair, dependentPairs);
-                });
-        System.out.println("Dependent map: " + dependentPairs.toString());
+    /**
+     * @return the result of the last finished {@link #minimize}, null before the first one
+     */
+    MinimizationResult getResult() {
+        return result;
     }
 
-    private void markByIsFinalState() {
-        dfa.getStates().stream().filter(state -> !dfa.getFinalStateIds().contains(state.getId()))
-                .forEach(nonFinalState -> {
-                    dfa.getFinalStateIds().forEach(finalStateId -> {
-                        marked.add(Pair.of(nonFinalState.getId(), finalStateId));
-                        marked.add(Pair.of(finalStateId, nonFinalState.getId()));
-                    } );
-                });
-        redMarked.addAll(marked);
+    private void runPhase(Phase phase, int stateCount, Runnable work) {
+        PhaseScope scope = startPhase(phase, stateCount);
+        try (scope) {
+            work.run();
+        }
     }
 
-    private void setupStateGroupsByEventSets() {
-        StateGroup finalStates = createStateGroup();
-        finalStates.states.addAll(dfa.getFinalStates());
-
-        StateGroup nonFinalStates = createStateGroup();
-        nonFinalStates.states.addAll(dfa.getStates().stream().filter(state -> !dfa.getFinalStateIds().contains( state.getId())).collect(Collectors.toList()));
+    private <T> T computeInPhase(Phase phase, int stateCount, Supplier<T> work) {
+        PhaseScope scope = startPhase(phase, stateCount);
+        try (scope) {
+            return work.get();
+        }
+    }
 
-        finalStateEventSetMap = createStateGroupsByEvent(finalStates.states);
-        nonFinalStateEventSetMap = createStateGroupsByEvent(nonFinalStates.states);
+    private PhaseScope startPhase(Phase phase, int stateCount) {
+        checkInterrupted();
+        progressListener.onProgress(phase, 0, totalPairs);
+        nextProgressReport = totalPairs / PROGRESS_REPORTS_PER_PHASE + 1;
+        return metrics.start(phase, stateCount);
+    }
 
-        pairs.stream().filter(statePair -> !isMarked(statePair))
-                .forEachOrdered(statePair -> {
-                    int stateGroupIdA = findEventSetGroup(statePair.getLeft()).getValue().id;
-                    int stateGroupIdB = findEventSetGroup(statePair.getRight()).getValue().id;
-                    if(stateGroupIdA != stateGroupIdB){
-                        blueMarked.add(statePair);
-                    }
-        });
-        marked.addAll(blueMarked);
+    /**
+     * Called after every row of the pair table, the rows up to rowIndex hold rowIndex·(rowIndex+1)/2 pairs.
+     */
+    private void reportRowDone(Phase phase, int rowIndex) {
+        checkInterrupted();
+        long processedPairs = MarkTable.pairCount(rowIndex + 1);
+        if (processedPairs >= nextProgressReport || processedPairs == totalPairs) {
+            progressListener.onProgress(phase, processedPairs, totalPairs);
+            nextProgressReport = processedPairs + totalPairs / PROGRESS_REPORTS_PER_PHASE + 1;
+        }
     }
 
-    private boolean isMarked(Pair<Integer, Integer> statePair){
-        State stateA = findStateById(statePair.getLeft());
-        State stateB = findStateById(statePair.getRight());
-        return isMarked(stateA, stateB);
+    /**
+     * Cancellation point of the engines, cheap enough to be called once per row or splitter.
+     */
+    static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Minimization was interrupted");
+        }
     }
 
-    private State findStateById(int stateId){
-        return statesByIds.get(stateId);
+    /**
+     * Symbols with the same transitions in every state split and mark the same pairs, so one symbol per class is enough.
+     */
+    private CompactDFA compressAlphabet(CompactDFA compactDfa) {
+        SymbolClasses symbolClasses = SymbolClasses.of(compactDfa);
+        if (!symbolClasses.isCompressing()) {
+            return compactDfa;
+        }
+        log.debug("{} symbols in {} classes", compactDfa.getSymbolCount(), symbolClasses.getClassCount());
+        return symbolClasses.compress(compactDfa);
     }
 
-    private Map.Entry<String, StateGroup> findEventSetGroup(Integer stateId) {
-        State state = dfa.getStates().stream().filter(dfaState -> dfaState.getId() == stateId).findFirst().get();
-        Map<String, StateGroup> eventSetGroup = null;
-        if(dfa.getFinalStateIds().contains(stateId)){
-            eventSetGroup = finalStateEventSetMap;
+    private void computeBlocksByPartitionRefinement() {
+        if (properties.getEngine() == Engine.PARTIAL) {
+            blocks = new PartialDfaMinimizer().computeBlocks(dfa, stateIndexesById);
+        } else if (properties.getParallelThreads() > 1 && engineDfa.getStateCount() >= properties.getParallelThreshold()) {
+            blocks = new ParallelMooreMinimizer(properties.getParallelThreads()).computeBlocks(engineDfa);
         } else {
-            eventSetGroup = nonFinalStateEventSetMap;
+            blocks = new HopcroftMinimizer().computeBlocks(engineDfa);
         }
-        return eventSetGroup.entrySet().stream().filter(entry -> entry.getValue().states.contains(state)).findFirst().get();
+    }
 
+    private String getCacheKey(CanonicalForm canonicalForm) {
+        return properties.getEngine() + ":" + canonicalForm.getHash();
     }
 
-    private void checkPairTransitions(Pair<Integer, Integer> statePair, Map<Pair<Integer, Integer>, List<Pair<Integer, Integer>>> dependentPairs) {
-        State stateA = findStateById(statePair.getLeft());
-        State stateB = findStateById(statePair.getRight());
-        if(stateA.getId() != stateB.getId()) {
+    /**
+     * The cached blocks and mark tables are indexed by canonical state numbers, the mark tables are queried through them.
+     */
+    private void useCachedMinimization(CachedMinimization cachedMinimization, CanonicalForm canonicalForm) {
+        int stateCount = compactDfa.getStateCount();
+        blocks = new int[stateCount];
+        markIndexes = new int[stateCount];
+        for (int stateIndex = 0; stateIndex < stateCount; stateIndex++) {
+            markIndexes[stateIndex] = canonicalForm.getCanonicalIndex(stateIndex);
+            blocks[stateIndex] = cachedMinimization.getBlock(markIndexes[stateIndex]);
+        }
+        redMarked = cachedMinimization.getRedMarked();
+        blueMarked = cachedMinimization.getBlueMarked();
+        marked = cachedMinimization.getMarked();
+    }
 
-            for (Map.Entry<String, State> entry : stateA.getTransitions().entrySet()) {
-                String inputSymbol = entry.getKey();
-                State targetStateA = entry.getValue();
-                State targetStateB = stateB.getTransitions().get(inputSymbol);
-                if(targetStateA.getId() != targetStateB.getId()) {
-                    if (areInDifferentStateGroup(targetStateA, targetStateB)) {
-                        mark(statePair, dependentPairs);
-                    } else {
-                        addAsDependent(statePair, dependentPairs, targetStateA, targetStateB);
-                    }
+    private CachedMinimization createCachedMinimization(CanonicalForm canonicalForm) {
+        int stateCount = canonicalForm.size();
+        int[] canonicalBlocks = new int[stateCount];
+        for (int canonicalIndex = 0; canonicalIndex < stateCount; canonicalIndex++) {
+            canonicalBlocks[canonicalIndex] = blocks[canonicalForm.getState(canonicalIndex)];
+        }
+        if (marked == null) {
+            return new CachedMinimization(canonicalBlocks, null, null, null);
+        }
+        return new CachedMinimization(canonicalBlocks, toCanonicalMarkTable(redMarked, canonicalForm),
+                toCanonicalMarkTable(blueMarked, canonicalForm), toCanonicalMarkTable(marked, canonicalForm));
+    }
+
+    private MarkTable toCanonicalMarkTable(MarkTable markTable, CanonicalForm canonicalForm) {
+        MarkTable canonicalMarkTable = new MarkTable(canonicalForm.size());
+        for (int rowIndex = 1; rowIndex < canonicalForm.size(); rowIndex++) {
+            int rowState = canonicalForm.getState(rowIndex);
+            for (int columnIndex = 0; columnIndex < rowIndex; columnIndex++) {
+                if (markTable.isMarked(rowState, canonicalForm.getState(columnIndex))) {
+                    canonicalMarkTable.mark(rowIndex, columnIndex);
                 }
             }
         }
+        return canonicalMarkTable;
     }
 
-    private void addAsDependent(Pair<Integer, Integer> statePair, Map<Pair<Integer, Integer>, List<Pair<Integer, Integer>>> dependentPairs, State targetStateA, State targetStateB) {
-        dependentPairs.compute(Pair.of(targetStateA.getId(), targetStateB.getId()), (owner, dependentPairList) -> {
-            List<Pair<Integer, Integer>> dependents = dependentPairList != null ? dependentPairList : new ArrayList<>();
-            dependents.add(statePair);
-            return dependents;
-         });
+    /**
+     * Numbers the blocks in the order of their first state, the block of the initial state is always 0.
+     */
+    private void renumberBlocksByFirstState() {
+        int stateCount = blocks.length;
+        int[] newIds = IntArrayPool.get().borrow(stateCount);
+        Arrays.fill(newIds, 0, stateCount, -1);
+        int nextId = 0;
+        int initialStateIndex = findStateIndex(dfa.getInitialState());
+        newIds[blocks[initialStateIndex]] = nextId++;
+        for (int stateIndex = 0; stateIndex < stateCount; stateIndex++) {
+            if (newIds[blocks[stateIndex]] == -1) {
+                newIds[blocks[stateIndex]] = nextId++;
+            }
+        }
+        blockCount = nextId;
+        int[] renumbered = new int[stateCount];
+        for (int stateIndex = 0; stateIndex < stateCount; stateIndex++) {
+            renumbered[stateIndex] = newIds[blocks[stateIndex]];
+        }
+        IntArrayPool.get().release(newIds);
+        blocks = renumbered;
     }
 
-    private boolean areInDifferentStateGroup(State targetStateA, State targetStateB) {
+    /**
+     * Group ids are the block ids + 1
+     */
+    private List<StateGroup> getStateGroupsByBlocks() {
+        List<StateGroup> groups = new ArrayList<>(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            groups.add(new StateGroup(block + 1));
+        }
+        for (int stateIndex = 0; stateIndex < blocks.length; stateIndex++) {
+            groups.get(blocks[stateIndex]).states.add(dfa.getStates().get(stateIndex));
+        }
+        return groups;
+    }
 
-        if((targetStateA == null && targetStateB!= null) || (targetStateB == null && targetStateA != null)){
-            return true;
+    /**
+     * Every unmarked pair is equivalent, so a state without block opens one and takes the later states it is not marked with.
+     */
+    private int[] getBlocksByMarkTable() {
+        int stateCount = compactDfa.getStateCount();
+        int[] stateBlocks = new int[stateCount];
+        Arrays.fill(stateBlocks, -1);
+        int nextBlock = 0;
+        for (int rowIndex = 0; rowIndex < stateCount; rowIndex++) {
+            if (stateBlocks[rowIndex] != -1) {
+                continue;
+            }
+            stateBlocks[rowIndex] = nextBlock;
+            for (int columnIndex = rowIndex + 1; columnIndex < stateCount; columnIndex++) {
+                if (stateBlocks[columnIndex] == -1 && !marked.isMarked(rowIndex, columnIndex)) {
+                    stateBlocks[columnIndex] = nextBlock;
+                }
+            }
+            nextBlock++;
         }
-        if(targetStateA == null){ //both null
-            return false;
-        } else if(isMarked(targetStateA, targetStateB)){
-              return true;
-            } else {
-               StateGroup targetStateGroupA = findStateGroup(targetStateA);
-               StateGroup targetStateGroupB = findStateGroup(targetStateB);
-               return targetStateGroupA.id != targetStateGroupB.id;
+        return stateBlocks;
+    }
+
+    /**
+     * One state per block: the id is the block id (the initial block gets {@link DFA#INITIAL_STATE_ID}),
+     * merged states are named like {q1,q3}, transitions and the final flag come from the first state of the block.
+     */
+    private DFA buildQuotientDfa() {
+        DFA quotientDfa = new DFA();
+        quotientDfa.getInputSymbols().addAll(dfa.getInputSymbols());
+        for (StateGroup stateGroup : minimalizedGroups) {
+            State blockState = new State(stateGroup.id - 1);
+            blockState.setName(stateGroup.states.size() == 1 ? stateGroup.states.get(0).getName()
+                    : stateGroup.states.stream().map(State::getName).collect(Collectors.joining(",", "{", "}")));
+            quotientDfa.getStates().add(blockState);
+        }
+        for (StateGroup stateGroup : minimalizedGroups) {
+            State representative = stateGroup.states.get(0);
+            State blockState = quotientDfa.getStates().get(stateGroup.id - 1);
+            for (Map.Entry<String, State> transition : representative.getTransitions().entrySet()) {
+                int targetId = transition.getValue().getId();
+                if (dfa.getInputSymbols().contains(transition.getKey()) && targetId < stateIndexesById.length
+                        && stateIndexesById[targetId] != -1) {
+                    blockState.getTransitions().put(transition.getKey(), quotientDfa.getStates().get(blocks[stateIndexesById[targetId]]));
+                }
+            }
+            if (finalStates.get(findStateIndex(representative))) {
+                quotientDfa.getFinalStateIds().add(blockState.getId());
+            }
         }
+        return quotientDfa;
     }
 
-    private void mark(Pair<Integer, Integer> statePair, Map<Pair<Integer, Integer>, List<Pair<Integer, Integer>>> dependentPairs){
-        marked.add(statePair);
-        if(dependentPairs.containsKey(statePair)){
-            marked.addAll(getDependentsPairsRecursive(statePair, dependentPairs));
+    /**
+     * A pair is distinguishable if on some symbol it leads to a marked pair.
+     * Starting from the red and blue pairs, the marks are pushed backwards along the inverse transitions,
+     * every pair enters the queue at most once, so the work is linear in the number of pair dependencies.
+     */
+    private void groupByTargetStateGroups() {
+        int stateCount = compactDfa.getStateCount();
+        InverseTransitions inverseTransitions = new InverseTransitions(engineDfa);
+        PairQueue queue = new PairQueue((int) Math.min(MarkTable.pairCount(stateCount), PAIR_QUEUE_CAPACITY));
+        int polls = 0;
+        for (int rowIndex = 0; rowIndex < stateCount; rowIndex++) {
+            for (int columnIndex = 0; columnIndex < rowIndex; columnIndex++) {
+                if (redMarked.isMarked(rowIndex, columnIndex) || blueMarked.isMarked(rowIndex, columnIndex)) {
+                    markDependentPairs(rowIndex, columnIndex, inverseTransitions, queue);
+                    while (!queue.isEmpty()) {
+                        if (++polls % INTERRUPT_CHECK_INTERVAL == 0) {
+                            checkInterrupted();
+                        }
+                        queue.poll();
+                        markDependentPairs(queue.left(), queue.right(), inverseTransitions, queue);
+                    }
+                }
+            }
+            reportRowDone(Phase.PROPAGATION, rowIndex);
         }
+        queue.release();
+        inverseTransitions.release();
     }
 
-    private StateGroup findStateGroup(State state) {
-        return finalStateEventSetMap.values().stream()
-                .filter(stateGroup -> stateGroup.states.contains(state))
-                .findAny()
-                .orElseGet(() -> nonFinalStateEventSetMap.values().stream()
-                        .filter(stateGroup -> stateGroup.states.contains(state))
-                        .findAny().orElse(null));
+    private void markDependentPairs(int stateA, int stateB, InverseTransitions inverseTransitions, PairQueue queue) {
+        for (int symbol = 0; symbol < engineDfa.getSymbolCount(); symbol++) {
+            int endA = inverseTransitions.end(symbol, stateA);
+            int endB = inverseTransitions.end(symbol, stateB);
+            for (int i = inverseTransitions.first(symbol, stateA); i < endA; i++) {
+                int sourceA = inverseTransitions.source(i);
+                for (int j = inverseTransitions.first(symbol, stateB); j < endB; j++) {
+                    int sourceB = inverseTransitions.source(j);
+                    if (marked.mark(sourceA, sourceB)) {
+                        queue.add(sourceA, sourceB);
+                    }
+                }
+            }
         }
+    }
 
-    private List<Pair<Integer, Integer>> getDependentsPairsRecursive(Pair<Integer, Integer> owner, Map<Pair<Integer, Integer>, List<Pair<Integer, Integer>>> dependentPairs){
-        List<Pair<Integer, Integer>> pairs = new ArrayList<>();
-        List<Pair<Integer, Integer>> ownerPair = dependentPairs.get(owner);
-        if(ownerPair != null) {
-            ownerPair.forEach(dependentPair -> {
-                pairs.add(dependentPair);
-                pairs.addAll(getDependentsPairsRecursive(dependentPair, dependentPairs));
-            });
+    private void markByIsFinalState() {
+        int stateCount = compactDfa.getStateCount();
+        for (int rowIndex = 0; rowIndex < stateCount; rowIndex++) {
+            for (int columnIndex = 0; columnIndex < rowIndex; columnIndex++) {
+                if (compactDfa.isFinal(rowIndex) != compactDfa.isFinal(columnIndex)) {
+                    redMarked.mark(rowIndex, columnIndex);
+                    marked.mark(rowIndex, columnIndex);
+                }
+            }
+            reportRowDone(Phase.RED_MARKING, rowIndex);
         }
-        return pairs;
+    }
+
+    private void setupStateGroupsByEventSets() {
+        StateGroup finalStates = createStateGroup();
+        finalStates.states.addAll(dfa.getFinalStates());
+
+        StateGroup nonFinalStates = createStateGroup();
+        nonFinalStates.states.addAll(dfa.getStates().stream().filter(state -> !dfa.getFinalStateIds().contains( state.getId())).collect(Collectors.toList()));
+
+        eventSetGroupIds = new int[dfa.getStates().size()];
+        eventSetKeys = new String[dfa.getStates().size()];
+        finalStateEventSetMap = createStateGroupsByEvent(finalStates.states);
+        nonFinalStateEventSetMap = createStateGroupsByEvent(nonFinalStates.states);
+    }
+
+    private void markByEventSets() {
+        int stateCount = compactDfa.getStateCount();
+        for (int rowIndex = 0; rowIndex < stateCount; rowIndex++) {
+            for (int columnIndex = 0; columnIndex < rowIndex; columnIndex++) {
+                if (!marked.isMarked(rowIndex, columnIndex) && eventSetGroupIds[rowIndex] != eventSetGroupIds[columnIndex]) {
+                    blueMarked.mark(rowIndex, columnIndex);
+                    marked.mark(rowIndex, columnIndex);
+                }
+            }
+            reportRowDone(Phase.EVENT_SET_SPLITTING, rowIndex);
+        }
+    }
+
+    private BitSet createFinalStates() {
+        List<State> states = dfa.getStates();
+        BitSet stateIndexes = new BitSet(states.size());
+        for (int stateIndex = 0; stateIndex < states.size(); stateIndex++) {
+            stateIndexes.set(stateIndex, dfa.getFinalStateIds().contains(states.get(stateIndex).getId()));
+        }
+        return stateIndexes;
     }
 
     private StateGroup createStateGroup() {
         return new StateGroup(currentStateGroupIndex++);
     }
 
+    private int findStateIndex(State state) {
+        return stateIndexesById[state.getId()];
+    }
+
     public boolean isMarkedAsRed(State stateA, State stateB){
-        return redMarked.contains(Pair.of(stateA.getId(), stateB.getId())) || redMarked.contains(Pair.of(stateB.getId(), stateA.getId()));
+        return result.isMarkedAsRed(stateA, stateB);
     }
 
     public boolean isMarkedAsBlue(State stateA, State stateB){
-        return blueMarked.contains(Pair.of(stateA.getId(), stateB.getId())) || blueMarked.contains(Pair.of(stateB.getId(), stateA.getId()));
+        return result.isMarkedAsBlue(stateA, stateB);
     }
 
     public boolean isMarked(State stateA, State stateB) {
-        return marked.contains(Pair.of(stateA.getId(), stateB.getId())) || marked.contains(Pair.of(stateB.getId(), stateA.getId()));
+        return result.isMarked(stateA, stateB);
+    }
+
+    public List<StateGroup> getMinimalizedGroups() {
+        return minimalizedGroups;
+    }
+
+    /**
+     * @return the input automaton without its unreachable states, the rows and columns of the pair table
+     */
+    public DFA getReducedDfa() {
+        return dfa;
+    }
+
+    /**
+     * @return id of the state of the minimal automaton that the state of the reduced automaton was merged into
+     */
+    public int getBlock(State state) {
+        return result.getBlock(state);
     }
 
     public String getActiveEventSet(State state){
-       return findEventSetGroup(state.getId()).getKey();
+       return result.getActiveEventSet(state);
     }
 
+    /**
+     * Keeps the states reachable from the initial state, BFS with an int queue and a bitset in O(n + m)
+     */
     public DFA removeUnreachableStates(DFA initialDfa){
-        List<State> reachableStates = extractReachableStates(initialDfa);
-        return buildReducedDfa(reachableStates, initialDfa);
+        List<State> states = initialDfa.getStates();
+        int[] stateIndexes = initialDfa.getStateIndexesById();
+        BitSet reachable = new BitSet(states.size());
+        int initialStateIndex = stateIndexes[initialDfa.getInitialState().getId()];
+        int[] queue = IntArrayPool.get().borrow(states.size());
+        int queueSize = 0;
+        reachable.set(initialStateIndex);
+        queue[queueSize++] = initialStateIndex;
+        for (int head = 0; head < queueSize; head++) {
+            for (State target : states.get(queue[head]).getTransitions().values()) {
+                int targetIndex = stateIndexes[target.getId()];
+                if (!reachable.get(targetIndex)) {
+                    reachable.set(targetIndex);
+                    queue[queueSize++] = targetIndex;
+                }
+            }
+        }
+        IntArrayPool.get().release(queue);
+        removedUnreachableCount = states.size() - queueSize;
+        metrics.recordStates("unreachable", removedUnreachableCount);
+        return buildReducedDfa(reachable, initialDfa);
     }
 
     /**
-     * Removes all the states that are not visible/reachable
-     * @param dfa
-     * @return   reachable states
+     * Removes the states from which no final state can be reached (the initial state is always kept),
+     * and the transitions leading into them. Changes the event sets of the remaining states.
      */
-    private List<State> extractReachableStates(DFA dfa){
-        List<State> reachableStates = new ArrayList<>();
-        State initialState = dfa.getStates().stream().filter(state -> state.getId() == DFA.INITIAL_STATE_ID).findAny().orElseGet(null);
-        reachableStates.add(initialState);
-        List<State> queue = new LinkedList<>();
-        queue.add(initialState);
-        while (!queue.isEmpty()){
-            State state = queue.remove(0);
-            state.getTransitions().values().forEach(entry -> {
-                if(!reachableStates.contains(entry)){
-                    queue.add(entry);
-                    reachableStates.add(entry);
+    public DFA removeDeadStates(DFA initialDfa) {
+        List<State> states = initialDfa.getStates();
+        int[] stateIndexes = initialDfa.getStateIndexesById();
+        //incoming transitions as CSR: the sources of state q are at sources[offsets[q] .. offsets[q+1])
+        IntArrayPool pool = IntArrayPool.get();
+        int[] offsets = pool.borrowZeroed(states.size() + 1);
+        for (State state : states) {
+            for (State target : state.getTransitions().values()) {
+                offsets[stateIndexes[target.getId()] + 1]++;
+            }
+        }
+        for (int stateIndex = 0; stateIndex < states.size(); stateIndex++) {
+            offsets[stateIndex + 1] += offsets[stateIndex];
+        }
+        int[] sources = pool.borrow(offsets[states.size()]);
+        int[] next = pool.borrow(states.size());
+        System.arraycopy(offsets, 0, next, 0, states.size());
+        for (int stateIndex = 0; stateIndex < states.size(); stateIndex++) {
+            for (State target : states.get(stateIndex).getTransitions().values()) {
+                sources[next[stateIndexes[target.getId()]]++] = stateIndex;
+            }
+        }
+        pool.release(next);
+
+        BitSet alive = new BitSet(states.size());
+        int[] queue = pool.borrow(states.size());
+        int queueSize = 0;
+        for (int finalStateId : initialDfa.getFinalStateIds()) {
+            int stateIndex = finalStateId < stateIndexes.length ? stateIndexes[finalStateId] : -1;
+            if (stateIndex != -1 && !alive.get(stateIndex)) {
+                alive.set(stateIndex);
+                queue[queueSize++] = stateIndex;
+            }
+        }
+        for (int head = 0; head < queueSize; head++) {
+            for (int i = offsets[queue[head]]; i < offsets[queue[head] + 1]; i++) {
+                if (!alive.get(sources[i])) {
+                    alive.set(sources[i]);
+                    queue[queueSize++] = sources[i];
                 }
-            });
+            }
+        }
+        pool.release(offsets);
+        pool.release(sources);
+        pool.release(queue);
+        alive.set(stateIndexes[initialDfa.getInitialState().getId()]);
+        removedDeadCount = states.size() - alive.cardinality();
+        metrics.recordStates("dead", removedDeadCount);
+
+        DFA reducedDfa = buildReducedDfa(alive, initialDfa);
+        for (State state : reducedDfa.getStates()) {
+            state.getTransitions().values().removeIf(target -> !alive.get(stateIndexes[target.getId()]));
         }
-        reachableStates.sort(Comparator.comparingInt(State::getId));
-        return reachableStates;
+        return reducedDfa;
     }
 
-    private DFA buildReducedDfa(List<State> reachableStates, DFA initialDfa) {
-        DFA dfa = new DFA();
+    public int getRemovedUnreachableCount() {
+        return removedUnreachableCount;
+    }
 
-        dfa.getStates().addAll(reachableStates.stream().map(State::copy).collect(Collectors.toList()));
-        List<Integer> reachableStateIds = reachableStates.stream().map(State::getId).collect(Collectors.toList());
-        List<Integer> finalStateIds = initialDfa.getFinalStateIds().stream().filter(reachableStateIds::contains).collect(Collectors.toList());
+    public int getRemovedDeadCount() {
+        return removedDeadCount;
+    }
 
-        dfa.getFinalStateIds().addAll(finalStateIds);
+    /**
+     * Copies the kept states ordered by id, the sort is linear when the input is already ordered.
+     */
+    private DFA buildReducedDfa(BitSet keptStates, DFA initialDfa) {
+        DFA dfa = new DFA();
+        List<State> states = initialDfa.getStates();
+        for (int stateIndex = keptStates.nextSetBit(0); stateIndex >= 0; stateIndex = keptStates.nextSetBit(stateIndex + 1)) {
+            State state = states.get(stateIndex);
+            dfa.getStates().add(state.copy());
+            if (initialDfa.getFinalStateIds().contains(state.getId())) {
+                dfa.getFinalStateIds().add(state.getId());
+            }
+        }
+        dfa.getStates().sort(Comparator.comparingInt(State::getId));
         dfa.getInputSymbols().addAll(initialDfa.getInputSymbols());
         return dfa;
     }
@@ -302,22 +654,11 @@ public class Minimizer {
                 stateGroup.states.add(state);
                 eventSet.put(key, stateGroup);
             }
+            eventSetGroupIds[findStateIndex(state)] = eventSet.get(key).id;
+            eventSetKeys[findStateIndex(state)] = key;
         }
-        System.out.println("Event set alapjan tovabb bontasok: ");
-        System.out.println(eventSet);
+        log.debug("Event set alapjan tovabb bontasok: {}", eventSet);
         return eventSet;
     }
 
-    private List<Pair<Integer, Integer>> createStatePairs(){
-        List<Pair<Integer, Integer>> pairs = new ArrayList<>();
-        for(int rowIndex = 0; rowIndex< dfa.getStates().size(); rowIndex++){
-            State rowState = dfa.getStates().get(rowIndex);
-            for(int columnIndex = rowIndex+1; columnIndex < dfa.getStates().size(); columnIndex++ ){
-                pairs.add(Pair.of(rowState.getId(), dfa.getStates().get(columnIndex).getId()));
-            }
-        }
-        return pairs;
-    }
-
-
 }
@@ -0,0 +1,167 @@
+package hu.sze.stateminimalizer.dfa;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings of the minimization, bound from the {@code minimizer.*} application properties.
+ */
+@Component
+@ConfigurationProperties(prefix = "minimizer")
+public class MinimizerProperties {
+
+    private Minimizer.Engine engine = Minimizer.Engine.TABLE_FILLING;
+
+    /** worker threads of the parallel refinement, 1 turns it off */
+    private int parallelThreads = Runtime.getRuntime().availableProcessors();
+
+    /** the HOPCROFT engine switches to the parallel refinement from this many states, PARTIAL always runs sequentially */
+    private int parallelThreshold = 200_000;
+
+    /** remove the states that cannot reach a final state, this also changes the event sets of their predecessors */
+    private boolean pruneDeadStates = false;
+
+    /** replace the input symbols by classes of identically behaving symbols when reading, labelled like [a-z] */
+    private boolean compressAlphabet = false;
+
+    /** memory budget of the minimization result cache, 0 turns the cache off */
+    private long cacheSizeBytes = 64L * 1024 * 1024;
+
+    /** {@link MatcherCompiler} generates bytecode up to this many states, larger automata get a table matcher */
+    private int compiledMatcherMaxStates = 512;
+
+    /** largest file accepted by the UI upload, as uploaded (compressed or not), the upload is buffered in a temp file */
+    private long uploadMaxBytes = 512L * 1024 * 1024;
+
+    /** largest uncompressed content of an upload, reading stops with an error after this many bytes */
+    private long uploadMaxUncompressedBytes = 2L * 1024 * 1024 * 1024;
+
+    /** automata of the batch endpoint minimized at the same time */
+    private int batchThreads = Runtime.getRuntime().availableProcessors();
+
+    /** accepted batch jobs waiting for a thread, reading the batch stops while it is full */
+    private int batchQueueCapacity = 64;
+
+    /** a batch job running longer is cancelled and reported as timed out */
+    private Duration batchTimeout = Duration.ofSeconds(30);
+
+    /** run the batch jobs on virtual threads when the JDK has them */
+    private boolean batchVirtualThreads = true;
+
+    /** minimizations of the UI sessions running at once, the others wait for a thread in the order they were started */
+    private int uiThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    public Minimizer.Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Minimizer.Engine engine) {
+        this.engine = engine;
+    }
+
+    public int getParallelThreads() {
+        return parallelThreads;
+    }
+
+    public void setParallelThreads(int parallelThreads) {
+        this.parallelThreads = parallelThreads;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public boolean isPruneDeadStates() {
+        return pruneDeadStates;
+    }
+
+    public void setPruneDeadStates(boolean pruneDeadStates) {
+        this.pruneDeadStates = pruneDeadStates;
+    }
+
+    public boolean isCompressAlphabet() {
+        return compressAlphabet;
+    }
+
+    public void setCompressAlphabet(boolean compressAlphabet) {
+        this.compressAlphabet = compressAlphabet;
+    }
+
+    public long getCacheSizeBytes() {
+        return cacheSizeBytes;
+    }
+
+    public void setCacheSizeBytes(long cacheSizeBytes) {
+        this.cacheSizeBytes = cacheSizeBytes;
+    }
+
+    public int getCompiledMatcherMaxStates() {
+        return compiledMatcherMaxStates;
+    }
+
+    public void setCompiledMatcherMaxStates(int compiledMatcherMaxStates) {
+        this.compiledMatcherMaxStates = compiledMatcherMaxStates;
+    }
+
+    public long getUploadMaxBytes() {
+        return uploadMaxBytes;
+    }
+
+    public void setUploadMaxBytes(long uploadMaxBytes) {
+        this.uploadMaxBytes = uploadMaxBytes;
+    }
+
+    public long getUploadMaxUncompressedBytes() {
+        return uploadMaxUncompressedBytes;
+    }
+
+    public void setUploadMaxUncompressedBytes(long uploadMaxUncompressedBytes) {
+        this.uploadMaxUncompressedBytes = uploadMaxUncompressedBytes;
+    }
+
+    public int getBatchThreads() {
+        return batchThreads;
+    }
+
+    public void setBatchThreads(int batchThreads) {
+        this.batchThreads = batchThreads;
+    }
+
+    public int getBatchQueueCapacity() {
+        return batchQueueCapacity;
+    }
+
+    public void setBatchQueueCapacity(int batchQueueCapacity) {
+        this.batchQueueCapacity = batchQueueCapacity;
+    }
+
+    public Duration getBatchTimeout() {
+        return batchTimeout;
+    }
+
+    public void setBatchTimeout(Duration batchTimeout) {
+        this.batchTimeout = batchTimeout;
+    }
+
+    public boolean isBatchVirtualThreads() {
+        return batchVirtualThreads;
+    }
+
+    public void setBatchVirtualThreads(boolean batchVirtualThreads) {
+        this.batchVirtualThreads = batchVirtualThreads;
+    }
+
+    public int getUiThreads() {
+        return uiThreads;
+    }
+
+    public void setUiThreads(int uiThreads) {
+        this.uiThreads = uiThreads;
+    }
+}
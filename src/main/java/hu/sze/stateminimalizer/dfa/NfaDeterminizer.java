@@ -0,0 +1,223 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import hu.sze.stateminimalizer.dfa.model.CompactNFA;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.StringJoiner;
+
+/**
+ * Subset construction over ε-closed state sets. A set is a row of words in one long array and is hash-consed:
+ * a new set is hashed and compared word by word with the sets of the same hash, no per-set object is created.
+ * Only the reachable, nonempty sets become states, the empty set is a missing transition.
+ */
+public class NfaDeterminizer {
+
+    public CompactDFA determinize(CompactNFA nfa) {
+        Construction construction = construct(nfa);
+        int stateCount = construction.subsets.size();
+        String[] stateNames = new String[stateCount];
+        int[] stateIds = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            stateNames[state] = construction.subsets.getName(state, nfa);
+            stateIds[state] = state;
+        }
+        return new CompactDFA(nfa.getSymbols(), stateNames, stateIds, construction.transitions.toArray(),
+                construction.finalStates, stateCount > 0 ? 0 : CompactDFA.NO_TRANSITION);
+    }
+
+    /**
+     * Determinizes and minimizes with {@link PartialDfaMinimizer} (event sets distinguish, like in {@link Minimizer})
+     * straight on the transition table of the construction. The whole subset automaton is still built, but only as
+     * that table: only the minimal automaton gets state names and a {@link CompactDFA}, a state is named after the set
+     * of the first subset state merged into it.
+     */
+    public CompactDFA determinizeAndMinimize(CompactNFA nfa) {
+        Construction construction = construct(nfa);
+        int[] subsetTransitions = construction.transitions.toArray();
+        construction.transitions = null;
+        return new PartialDfaMinimizer().minimize(nfa.getSymbols(), construction.subsets.size(), subsetTransitions,
+                construction.finalStates, state -> construction.subsets.getName(state, nfa));
+    }
+
+    private Construction construct(CompactNFA nfa) {
+        int nfaStateCount = nfa.getStateCount();
+        int symbolCount = nfa.getSymbolCount();
+        Construction construction = new Construction(nfaStateCount, symbolCount);
+        if (nfa.getInitialState() == CompactDFA.NO_TRANSITION) {
+            return construction;
+        }
+        long[] nfaFinalStates = Arrays.copyOf(nfa.getFinalStates().toLongArray(), construction.subsets.words);
+        long[] subset = new long[construction.subsets.words];
+        int[] stack = new int[nfaStateCount];
+        IntList members = new IntList(64);
+
+        subset[nfa.getInitialState() >>> 6] |= 1L << nfa.getInitialState();
+        closeUnderEpsilon(nfa, subset, stack);
+        construction.subsets.intern(subset);
+        for (int state = 0; state < construction.subsets.size(); state++) {
+            Minimizer.checkInterrupted();
+            construction.subsets.getMembers(state, members);
+            if (construction.subsets.intersects(state, nfaFinalStates)) {
+                construction.finalStates.set(state);
+            }
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                Arrays.fill(subset, 0);
+                boolean empty = true;
+                for (int i = 0; i < members.size(); i++) {
+                    int member = members.get(i);
+                    for (int j = nfa.firstTarget(member, symbol); j < nfa.endTarget(member, symbol); j++) {
+                        int target = nfa.target(j);
+                        subset[target >>> 6] |= 1L << target;
+                        empty = false;
+                    }
+                }
+                if (empty) {
+                    construction.transitions.add(CompactDFA.NO_TRANSITION);
+                } else {
+                    closeUnderEpsilon(nfa, subset, stack);
+                    construction.transitions.add(construction.subsets.intern(subset));
+                }
+            }
+        }
+        return construction;
+    }
+
+    private static void closeUnderEpsilon(CompactNFA nfa, long[] subset, int[] stack) {
+        int stackSize = 0;
+        for (int word = 0; word < subset.length; word++) {
+            for (long bits = subset[word]; bits != 0; bits &= bits - 1) {
+                stack[stackSize++] = (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        while (stackSize > 0) {
+            int state = stack[--stackSize];
+            for (int i = nfa.firstEpsilonTarget(state); i < nfa.endEpsilonTarget(state); i++) {
+                int target = nfa.epsilonTarget(i);
+                if ((subset[target >>> 6] & (1L << target)) == 0) {
+                    subset[target >>> 6] |= 1L << target;
+                    stack[stackSize++] = target;
+                }
+            }
+        }
+    }
+
+    private static final class Construction {
+        private final SubsetTable subsets;
+        private IntList transitions;
+        private final BitSet finalStates = new BitSet();
+
+        private Construction(int nfaStateCount, int symbolCount) {
+            subsets = new SubsetTable((nfaStateCount + 63) >>> 6);
+            transitions = new IntList(1024 * Math.max(symbolCount, 1));
+        }
+    }
+
+    /**
+     * Hash-consed state sets: set i is {@code arena[i * words .. (i + 1) * words)}, the open addressing slots hold set
+     * indexes, the hashes are kept to skip most comparisons and to grow without rehashing the words.
+     */
+    private static final class SubsetTable {
+        private final int words;
+        private long[] arena;
+        private int[] hashes;
+        private int[] slots;
+        private int size;
+
+        private SubsetTable(int words) {
+            this.words = Math.max(words, 1);
+            arena = new long[this.words * 64];
+            hashes = new int[64];
+            slots = new int[128];
+            Arrays.fill(slots, -1);
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return index of the set, a new one if it was not seen yet
+         */
+        int intern(long[] subset) {
+            int hash = hash(subset);
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            while (slots[slot] != -1) {
+                int candidate = slots[slot];
+                if (hashes[candidate] == hash && Arrays.equals(arena, candidate * words, (candidate + 1) * words, subset, 0, words)) {
+                    return candidate;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if ((long) (size + 1) * words > arena.length) {
+                arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(arena.length * 2L, (long) (size + 1) * words)));
+                hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            }
+            System.arraycopy(subset, 0, arena, size * words, words);
+            hashes[size] = hash;
+            slots[slot] = size;
+            size++;
+            if (size * 2 > slots.length) {
+                growSlots();
+            }
+            return size - 1;
+        }
+
+        void getMembers(int set, IntList members) {
+            members.clear();
+            for (int word = 0; word < words; word++) {
+                for (long bits = arena[set * words + word]; bits != 0; bits &= bits - 1) {
+                    members.add((word << 6) + Long.numberOfTrailingZeros(bits));
+                }
+            }
+        }
+
+        boolean intersects(int set, long[] other) {
+            for (int word = 0; word < words; word++) {
+                if ((arena[set * words + word] & other[word]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Names like {q0,q2}, a single state keeps its own name.
+         */
+        String getName(int set, CompactNFA nfa) {
+            IntList members = new IntList(16);
+            getMembers(set, members);
+            if (members.size() == 1) {
+                return nfa.getStateName(members.get(0));
+            }
+            StringJoiner name = new StringJoiner(",", "{", "}");
+            for (int i = 0; i < members.size(); i++) {
+                name.add(nfa.getStateName(members.get(i)));
+            }
+            return name.toString();
+        }
+
+        private void growSlots() {
+            slots = new int[slots.length * 2];
+            Arrays.fill(slots, -1);
+            int mask = slots.length - 1;
+            for (int set = 0; set < size; set++) {
+                int slot = hashes[set] & mask;
+                while (slots[slot] != -1) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = set;
+            }
+        }
+
+        private static int hash(long[] subset) {
+            long hash = 0;
+            for (long word : subset) {
+                hash = (hash ^ word) * 0x9E3779B97F4A7C15L;
+            }
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+}
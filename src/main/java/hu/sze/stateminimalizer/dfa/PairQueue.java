@@ -0,0 +1,65 @@
+package hu.sze.stateminimalizer.dfa;
+
+/**
+ * FIFO ring buffer of int pairs, grows only when more pairs are pending than the preallocated capacity.
+ * The buffer is borrowed from the {@link IntArrayPool}, {@link #release()} gives it back.
+ */
+final class PairQueue {
+
+    private int[] items;
+    private int head;
+    private int size;
+    private int left;
+    private int right;
+
+    PairQueue(int capacity) {
+        items = IntArrayPool.get().borrow(Math.max(capacity, 4) * 2);
+    }
+
+    void add(int left, int right) {
+        if (size * 2 == items.length) {
+            grow();
+        }
+        int tail = (head + size * 2) % items.length;
+        items[tail] = left;
+        items[tail + 1] = right;
+        size++;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes the head pair, read it with {@link #left()} and {@link #right()} before the next poll.
+     */
+    void poll() {
+        left = items[head];
+        right = items[head + 1];
+        head = (head + 2) % items.length;
+        size--;
+    }
+
+    int left() {
+        return left;
+    }
+
+    int right() {
+        return right;
+    }
+
+    void release() {
+        IntArrayPool.get().release(items);
+        items = null;
+    }
+
+    private void grow() {
+        int[] grown = IntArrayPool.get().borrow(items.length * 2);
+        int firstPart = Math.min(size * 2, items.length - head);
+        System.arraycopy(items, head, grown, 0, firstPart);
+        System.arraycopy(items, 0, grown, firstPart, size * 2 - firstPart);
+        IntArrayPool.get().release(items);
+        items = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,266 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Moore's signature based refinement on a fork-join pool.
+ * In every round the signature of a state is its block and the blocks of its targets (missing transitions included),
+ * states with equal signatures form the new blocks. The signatures are hashed in parallel chunks, which also bucket
+ * the states by the worker owning their hash, then every worker numbers the signatures of its own bucket using its own
+ * reusable hash table. A round costs O(n·k / threads + chunks·threads), the number of rounds is the depth of the
+ * refinement (up to n on chain-like automata).
+ * The result is the same partition as {@link HopcroftMinimizer}, block ids follow the order of the first states.
+ * The fork-join pools are shared by the thread counts and live until {@link #shutdownPools()}.
+ */
+class ParallelMooreMinimizer {
+
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final int workerCount;
+
+    ParallelMooreMinimizer(int threadCount) {
+        this.workerCount = Math.max(1, threadCount);
+        this.pool = POOLS.computeIfAbsent(workerCount, ForkJoinPool::new);
+    }
+
+    /**
+     * Shuts down the shared fork-join pools, a later minimization starts new ones.
+     */
+    static void shutdownPools() {
+        for (Integer threadCount : POOLS.keySet()) {
+            ForkJoinPool pool = POOLS.remove(threadCount);
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @param dfa automaton without unreachable states
+     * @return block id of every state index
+     */
+    int[] computeBlocks(CompactDFA dfa) {
+        int stateCount = dfa.getStateCount();
+        if (stateCount == 0) {
+            return new int[0];
+        }
+        int[] blocks = new int[stateCount];
+        int[] newBlocks = new int[stateCount];
+        long[] hashes = new long[stateCount];
+        SignatureTable[] tables = new SignatureTable[workerCount];
+        for (int worker = 0; worker < workerCount; worker++) {
+            tables[worker] = new SignatureTable(stateCount / workerCount + 1);
+        }
+        int[] localCounts = new int[workerCount];
+        int[] offsets = new int[workerCount];
+        int chunkCount = (stateCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int[] bucketPositions = new int[chunkCount * workerCount]; //(chunk, worker) -> next position in workerStates
+        int[] bucketStarts = new int[workerCount + 1];
+        int[] workerStates = new int[stateCount]; //states grouped by worker, in state order within a worker
+
+        for (int state = 0; state < stateCount; state++) {
+            blocks[state] = dfa.isFinal(state) ? 1 : 0;
+        }
+        int finalStateCount = dfa.getFinalStates().cardinality();
+        int blockCount = finalStateCount == 0 || finalStateCount == stateCount ? 1 : 2;
+        while (true) {
+            Minimizer.checkInterrupted();
+            int[] currentBlocks = blocks;
+            int[] nextBlocks = newBlocks;
+            forEachChunk(stateCount, (from, to) -> {
+                int chunkOffset = from / CHUNK_SIZE * workerCount;
+                Arrays.fill(bucketPositions, chunkOffset, chunkOffset + workerCount, 0);
+                for (int state = from; state < to; state++) {
+                    hashes[state] = hashSignature(dfa, currentBlocks, state);
+                    bucketPositions[chunkOffset + workerOf(hashes[state], workerCount)]++;
+                }
+            });
+            int position = 0;
+            for (int worker = 0; worker < workerCount; worker++) {
+                bucketStarts[worker] = position;
+                for (int chunk = 0; chunk < chunkCount; chunk++) {
+                    int count = bucketPositions[chunk * workerCount + worker];
+                    bucketPositions[chunk * workerCount + worker] = position;
+                    position += count;
+                }
+            }
+            bucketStarts[workerCount] = position;
+            forEachChunk(stateCount, (from, to) -> {
+                int chunkOffset = from / CHUNK_SIZE * workerCount;
+                for (int state = from; state < to; state++) {
+                    workerStates[bucketPositions[chunkOffset + workerOf(hashes[state], workerCount)]++] = state;
+                }
+            });
+            runWorkers(worker -> localCounts[worker] = tables[worker].numberSignatures(dfa, currentBlocks, hashes,
+                    workerStates, bucketStarts[worker], bucketStarts[worker + 1], nextBlocks));
+            int newBlockCount = 0;
+            for (int worker = 0; worker < workerCount; worker++) {
+                offsets[worker] = newBlockCount;
+                newBlockCount += localCounts[worker];
+            }
+            forEachChunk(stateCount, (from, to) -> {
+                for (int state = from; state < to; state++) {
+                    nextBlocks[state] += offsets[workerOf(hashes[state], workerCount)];
+                }
+            });
+            newBlocks = blocks;
+            blocks = nextBlocks;
+            if (newBlockCount == blockCount) { //a refinement with the same number of blocks is the same partition
+                break;
+            }
+            blockCount = newBlockCount;
+        }
+        return renumberByFirstState(blocks, blockCount);
+    }
+
+    private static long hashSignature(CompactDFA dfa, int[] blocks, int state) {
+        long hash = (blocks[state] + 1) * HASH_MULTIPLIER;
+        for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+            int target = dfa.getTarget(state, symbol);
+            hash = (hash ^ (target == CompactDFA.NO_TRANSITION ? 0 : blocks[target] + 1)) * HASH_MULTIPLIER;
+            hash ^= hash >>> 29;
+        }
+        return hash;
+    }
+
+    private static boolean hasSameSignature(CompactDFA dfa, int[] blocks, int stateA, int stateB) {
+        if (blocks[stateA] != blocks[stateB]) {
+            return false;
+        }
+        for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+            int targetA = dfa.getTarget(stateA, symbol);
+            int targetB = dfa.getTarget(stateB, symbol);
+            if (targetA != targetB && (targetA == CompactDFA.NO_TRANSITION || targetB == CompactDFA.NO_TRANSITION
+                    || blocks[targetA] != blocks[targetB])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int workerOf(long hash, int workerCount) {
+        return (int) ((hash >>> 33) % workerCount);
+    }
+
+    private static int[] renumberByFirstState(int[] blocks, int blockCount) {
+        int[] newIds = new int[blockCount];
+        Arrays.fill(newIds, -1);
+        int nextId = 0;
+        for (int state = 0; state < blocks.length; state++) {
+            if (newIds[blocks[state]] == -1) {
+                newIds[blocks[state]] = nextId++;
+            }
+            blocks[state] = newIds[blocks[state]];
+        }
+        return blocks;
+    }
+
+    private void forEachChunk(int size, ChunkConsumer consumer) {
+        int chunkCount = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        runTasks(chunkCount, chunk -> consumer.accept(chunk * CHUNK_SIZE, Math.min(size, (chunk + 1) * CHUNK_SIZE)));
+    }
+
+    private void runWorkers(IntConsumer work) {
+        runTasks(workerCount, work);
+    }
+
+    private void runTasks(int taskCount, IntConsumer work) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(taskCount);
+        for (int task = 0; task < taskCount; task++) {
+            int taskIndex = task;
+            tasks.add(ForkJoinTask.adapt(() -> work.accept(taskIndex)));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    private interface ChunkConsumer {
+        void accept(int from, int to);
+    }
+
+    /**
+     * Open addressing table of one worker from signature hash to (representative state, local block id),
+     * kept between the rounds so only the first round allocates.
+     */
+    private static final class SignatureTable {
+        private long[] hashes;
+        private int[] representatives;
+        private int[] localIds;
+
+        SignatureTable(int expectedSize) {
+            allocate(Integer.highestOneBit(Math.max(expectedSize, 8) * 2) * 2);
+        }
+
+        private void allocate(int capacity) {
+            hashes = new long[capacity];
+            representatives = new int[capacity];
+            localIds = new int[capacity];
+        }
+
+        /**
+         * Gives local block ids to the states of this worker, {@code states[from .. to)}, in state order.
+         * @return number of local blocks
+         */
+        int numberSignatures(CompactDFA dfa, int[] blocks, long[] stateHashes, int[] states, int from, int to, int[] newBlocks) {
+            Arrays.fill(representatives, -1);
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                int state = states[i];
+                long hash = stateHashes[state];
+                if ((count + 1) * 2 > representatives.length) {
+                    grow();
+                }
+                int mask = representatives.length - 1;
+                int slot = (int) hash & mask;
+                while (representatives[slot] != -1
+                        && (hashes[slot] != hash || !hasSameSignature(dfa, blocks, representatives[slot], state))) {
+                    slot = (slot + 1) & mask;
+                }
+                if (representatives[slot] == -1) {
+                    hashes[slot] = hash;
+                    representatives[slot] = state;
+                    localIds[slot] = count++;
+                }
+                newBlocks[state] = localIds[slot];
+            }
+            return count;
+        }
+
+        private void grow() {
+            long[] oldHashes = hashes;
+            int[] oldRepresentatives = representatives;
+            int[] oldLocalIds = localIds;
+            allocate(oldRepresentatives.length * 2);
+            Arrays.fill(representatives, -1);
+            int mask = representatives.length - 1;
+            for (int i = 0; i < oldRepresentatives.length; i++) {
+                if (oldRepresentatives[i] != -1) {
+                    int slot = (int) oldHashes[i] & mask;
+                    while (representatives[slot] != -1) {
+                        slot = (slot + 1) & mask;
+                    }
+                    hashes[slot] = oldHashes[i];
+                    representatives[slot] = oldRepresentatives[i];
+                    localIds[slot] = oldLocalIds[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import hu.sze.stateminimalizer.dfa.model.State;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * Valmari and Lehtinen's O(m·log n) refinement for partial automata, m being the number of existing transitions.
+ * States are refined in a {@link RefinablePartition} of blocks, transitions in a second one of cords
+ * (transitions with the same label whose targets are in the same block). Every cord splits the blocks by the sources
+ * of its transitions, so the first pass over the initial cords (one per symbol) already separates the states with
+ * different event sets; missing transitions need no sink state and no n·k table.
+ */
+class PartialDfaMinimizer {
+
+    /**
+     * Reads the transitions straight from the transition maps of the states, in O(n + m) time and memory, so a sparse
+     * automaton over a large alphabet never needs an n·k table. Transitions on unknown symbols or into states outside
+     * the state list are ignored, like in {@link CompactDFA#fromDFA(DFA)}.
+     * @param dfa automaton without unreachable states
+     * @param stateIndexesById see {@link DFA#getStateIndexesById()}
+     * @return block id of every position in {@code dfa.getStates()}
+     */
+    int[] computeBlocks(DFA dfa, int[] stateIndexesById) {
+        List<State> states = dfa.getStates();
+        int stateCount = states.size();
+        Map<String, Integer> symbolIndexes = new HashMap<>();
+        for (String symbol : dfa.getInputSymbols()) {
+            symbolIndexes.put(symbol, symbolIndexes.size());
+        }
+        int symbolCount = symbolIndexes.size();
+        IntArrayPool pool = IntArrayPool.get();
+        int[] symbolOffsets = pool.borrowZeroed(symbolCount + 1);
+        for (State state : states) {
+            for (Map.Entry<String, State> transition : state.getTransitions().entrySet()) {
+                Integer symbol = symbolIndexes.get(transition.getKey());
+                if (symbol != null && findTarget(transition.getValue(), stateIndexesById) != CompactDFA.NO_TRANSITION) {
+                    symbolOffsets[symbol + 1]++;
+                }
+            }
+        }
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            symbolOffsets[symbol + 1] += symbolOffsets[symbol];
+        }
+        int transitionCount = symbolOffsets[symbolCount];
+        int[] sources = pool.borrow(transitionCount);
+        int[] targets = pool.borrow(transitionCount);
+        int[] next = pool.borrow(symbolCount + 1);
+        System.arraycopy(symbolOffsets, 0, next, 0, symbolCount + 1);
+        for (int stateIndex = 0; stateIndex < stateCount; stateIndex++) {
+            for (Map.Entry<String, State> transition : states.get(stateIndex).getTransitions().entrySet()) {
+                Integer symbol = symbolIndexes.get(transition.getKey());
+                int target = symbol != null ? findTarget(transition.getValue(), stateIndexesById) : CompactDFA.NO_TRANSITION;
+                if (target != CompactDFA.NO_TRANSITION) {
+                    int position = next[symbol]++;
+                    sources[position] = stateIndex;
+                    targets[position] = target;
+                }
+            }
+        }
+        pool.release(next);
+        BitSet finalStates = new BitSet(stateCount);
+        for (int stateIndex = 0; stateIndex < stateCount; stateIndex++) {
+            finalStates.set(stateIndex, dfa.getFinalStateIds().contains(states.get(stateIndex).getId()));
+        }
+        return computeBlocks(stateCount, symbolCount, symbolOffsets, sources, targets, finalStates::get);
+    }
+
+    private static int findTarget(State target, int[] stateIndexesById) {
+        return target.getId() >= 0 && target.getId() < stateIndexesById.length ? stateIndexesById[target.getId()]
+                : CompactDFA.NO_TRANSITION;
+    }
+
+    /**
+     * @param dfa automaton without unreachable states
+     * @return block id of every state index
+     */
+    int[] computeBlocks(CompactDFA dfa) {
+        return computeBlocks(dfa.getStateCount(), dfa.getSymbolCount(), dfa::getTarget, dfa::isFinal);
+    }
+
+    /**
+     * Minimizes an automaton built as a bare transition table, reachable from its initial state 0, e.g. by a
+     * construction that never needs the nonminimal automaton as a {@link CompactDFA}. The blocks are numbered by their
+     * first state, so the initial one is 0, and a block is named after its first state.
+     * @param transitions target of (state, symbol) at {@code state * symbols.length + symbol}
+     */
+    CompactDFA minimize(String[] symbols, int stateCount, int[] transitions, BitSet finalStates, IntFunction<String> stateNames) {
+        int symbolCount = symbols.length;
+        int[] blocks = computeBlocks(stateCount, symbolCount,
+                (state, symbol) -> transitions[state * symbolCount + symbol], finalStates::get);
+
+        IntArrayPool pool = IntArrayPool.get();
+        int[] blockIds = pool.borrow(stateCount);
+        Arrays.fill(blockIds, 0, stateCount, -1);
+        int[] representatives = pool.borrow(stateCount);
+        int blockCount = 0;
+        for (int state = 0; state < stateCount; state++) {
+            if (blockIds[blocks[state]] == -1) {
+                representatives[blockCount] = state;
+                blockIds[blocks[state]] = blockCount++;
+            }
+        }
+        String[] blockNames = new String[blockCount];
+        int[] blockStateIds = new int[blockCount];
+        int[] blockTransitions = new int[blockCount * symbolCount];
+        BitSet finalBlocks = new BitSet(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            int representative = representatives[block];
+            blockNames[block] = stateNames.apply(representative);
+            blockStateIds[block] = block;
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int target = transitions[representative * symbolCount + symbol];
+                blockTransitions[block * symbolCount + symbol] = target == CompactDFA.NO_TRANSITION ? target : blockIds[blocks[target]];
+            }
+            finalBlocks.set(block, finalStates.get(representative));
+        }
+        pool.release(blockIds);
+        pool.release(representatives);
+        return new CompactDFA(symbols, blockNames, blockStateIds, blockTransitions, finalBlocks,
+                blockCount > 0 ? 0 : CompactDFA.NO_TRANSITION);
+    }
+
+    /**
+     * Same as {@link #computeBlocks(CompactDFA)} for an automaton given by functions, e.g. a quotient of another one.
+     * @param targetFunction target of (state, symbol) or {@link CompactDFA#NO_TRANSITION}
+     */
+    int[] computeBlocks(int stateCount, int symbolCount, IntBinaryOperator targetFunction, IntPredicate finalStates) {
+        IntArrayPool pool = IntArrayPool.get();
+        //existing transitions, ordered by symbol
+        int[] symbolOffsets = pool.borrowZeroed(symbolCount + 1);
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                if (targetFunction.applyAsInt(state, symbol) != CompactDFA.NO_TRANSITION) {
+                    symbolOffsets[symbol + 1]++;
+                }
+            }
+        }
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            symbolOffsets[symbol + 1] += symbolOffsets[symbol];
+        }
+        int transitionCount = symbolOffsets[symbolCount];
+        int[] sources = pool.borrow(transitionCount);
+        int[] targets = pool.borrow(transitionCount);
+        int[] next = pool.borrow(symbolCount + 1);
+        System.arraycopy(symbolOffsets, 0, next, 0, symbolCount + 1);
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int target = targetFunction.applyAsInt(state, symbol);
+                if (target != CompactDFA.NO_TRANSITION) {
+                    int transition = next[symbol]++;
+                    sources[transition] = state;
+                    targets[transition] = target;
+                }
+            }
+        }
+        pool.release(next);
+        return computeBlocks(stateCount, symbolCount, symbolOffsets, sources, targets, finalStates);
+    }
+
+    /**
+     * The refinement itself. Takes over the pooled arrays of the transitions and gives them back.
+     * @param symbolOffsets the transitions on symbol a are at {@code [symbolOffsets[a], symbolOffsets[a+1])}
+     *                      of sources and targets
+     */
+    private int[] computeBlocks(int stateCount, int symbolCount, int[] symbolOffsets, int[] sources, int[] targets,
+                                IntPredicate finalStates) {
+        IntArrayPool pool = IntArrayPool.get();
+        int transitionCount = symbolOffsets[symbolCount];
+
+        //incoming transitions of every state
+        int[] incomingOffsets = pool.borrowZeroed(stateCount + 1);
+        for (int transition = 0; transition < transitionCount; transition++) {
+            incomingOffsets[targets[transition] + 1]++;
+        }
+        for (int state = 0; state < stateCount; state++) {
+            incomingOffsets[state + 1] += incomingOffsets[state];
+        }
+        int[] incoming = pool.borrow(transitionCount);
+        int[] nextIncoming = pool.borrow(stateCount + 1);
+        System.arraycopy(incomingOffsets, 0, nextIncoming, 0, stateCount + 1);
+        for (int transition = 0; transition < transitionCount; transition++) {
+            incoming[nextIncoming[targets[transition]]++] = transition;
+        }
+        pool.release(nextIncoming);
+
+        RefinablePartition blocks = new RefinablePartition(stateCount);
+        for (int state = 0; state < stateCount; state++) {
+            if (finalStates.test(state)) {
+                blocks.mark(state);
+            }
+        }
+        blocks.split(null);
+
+        RefinablePartition cords = new RefinablePartition(transitionCount);
+        for (int symbol = 1; symbol < symbolCount; symbol++) {
+            for (int transition = symbolOffsets[symbol]; transition < symbolOffsets[symbol + 1]; transition++) {
+                cords.mark(transition);
+            }
+            cords.split(null);
+        }
+
+        //every cord is a splitter once; a split cord's processed part is covered by its new part (the smaller half).
+        //Blocks split cords from 1 on: the transitions left in a cord after all other blocks point into block 0.
+        int block = 1;
+        for (int cord = 0; cord < cords.setCount(); cord++) {
+            Minimizer.checkInterrupted();
+            for (int position = cords.first(cord); position < cords.end(cord); position++) {
+                blocks.mark(sources[cords.element(position)]);
+            }
+            blocks.split(null);
+            for (; block < blocks.setCount(); block++) {
+                for (int position = blocks.first(block); position < blocks.end(block); position++) {
+                    int state = blocks.element(position);
+                    for (int i = incomingOffsets[state]; i < incomingOffsets[state + 1]; i++) {
+                        cords.mark(incoming[i]);
+                    }
+                }
+                cords.split(null);
+            }
+        }
+        int[] stateBlocks = blocks.toSetArray();
+        pool.release(symbolOffsets);
+        pool.release(sources);
+        pool.release(targets);
+        pool.release(incomingOffsets);
+        pool.release(incoming);
+        blocks.release();
+        cords.release();
+        return stateBlocks;
+    }
+}
@@ -0,0 +1,170 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Product of two automata explored from the pair of their initial states, so only the reachable pairs are built.
+ * A pair (p, q) is packed into a long and numbered in a {@link LongIntHashMap}; the alphabet is the union of the two,
+ * a missing transition or symbol of one automaton continues in its sink, written as "-" in the state names.
+ * Pairs that cannot reach acceptance anymore only because of the sinks (e.g. any sink in an intersection) are left out
+ * as missing transitions.
+ */
+public class ProductConstruction {
+
+    private static final int SINK = CompactDFA.NO_TRANSITION;
+    private static final String SINK_NAME = "-";
+
+    public enum Operation {
+        INTERSECTION,
+        UNION,
+        /** accepted by the first, not by the second */
+        DIFFERENCE,
+        SYMMETRIC_DIFFERENCE;
+
+        boolean accepts(boolean firstAccepts, boolean secondAccepts) {
+            switch (this) {
+                case INTERSECTION:
+                    return firstAccepts && secondAccepts;
+                case UNION:
+                    return firstAccepts || secondAccepts;
+                case DIFFERENCE:
+                    return firstAccepts && !secondAccepts;
+                default:
+                    return firstAccepts != secondAccepts;
+            }
+        }
+
+        /**
+         * @return whether a pair with these components can still be accepted on some continuation
+         */
+        boolean isLive(int firstState, int secondState) {
+            switch (this) {
+                case INTERSECTION:
+                    return firstState != SINK && secondState != SINK;
+                case DIFFERENCE:
+                    return firstState != SINK;
+                default:
+                    return firstState != SINK || secondState != SINK;
+            }
+        }
+    }
+
+    public CompactDFA product(CompactDFA first, CompactDFA second, Operation operation) {
+        Construction construction = construct(first, second, operation);
+        int stateCount = construction.size;
+        String[] stateNames = new String[stateCount];
+        int[] stateIds = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            stateNames[state] = construction.getName(state, first, second);
+            stateIds[state] = state;
+        }
+        return new CompactDFA(construction.symbols, stateNames, stateIds, construction.transitions.toArray(),
+                construction.finalStates, stateCount > 0 ? 0 : CompactDFA.NO_TRANSITION);
+    }
+
+    /**
+     * Minimizes the product with {@link PartialDfaMinimizer} straight on its transition table, like
+     * {@link NfaDeterminizer#determinizeAndMinimize}: the pair map is dropped after the exploration and only the minimal
+     * automaton gets state names.
+     */
+    public CompactDFA productMinimal(CompactDFA first, CompactDFA second, Operation operation) {
+        Construction construction = construct(first, second, operation);
+        int[] transitions = construction.transitions.toArray();
+        construction.transitions = null;
+        return new PartialDfaMinimizer().minimize(construction.symbols, construction.size, transitions,
+                construction.finalStates, state -> construction.getName(state, first, second));
+    }
+
+    private Construction construct(CompactDFA first, CompactDFA second, Operation operation) {
+        Map<String, Integer> symbolIndexes = new LinkedHashMap<>();
+        for (int symbol = 0; symbol < first.getSymbolCount(); symbol++) {
+            symbolIndexes.putIfAbsent(first.getSymbol(symbol), symbolIndexes.size());
+        }
+        for (int symbol = 0; symbol < second.getSymbolCount(); symbol++) {
+            symbolIndexes.putIfAbsent(second.getSymbol(symbol), symbolIndexes.size());
+        }
+        String[] symbols = symbolIndexes.keySet().toArray(new String[0]);
+        int[] firstSymbols = new int[symbols.length];
+        int[] secondSymbols = new int[symbols.length];
+        for (int symbol = 0; symbol < symbols.length; symbol++) {
+            firstSymbols[symbol] = first.getSymbolIndex(symbols[symbol]);
+            secondSymbols[symbol] = second.getSymbolIndex(symbols[symbol]);
+        }
+
+        Construction construction = new Construction(symbols);
+        LongIntHashMap pairIndexes = new LongIntHashMap(1024);
+        int initialFirst = first.getInitialState();
+        int initialSecond = second.getInitialState();
+        if (!operation.isLive(initialFirst, initialSecond)) {
+            return construction;
+        }
+        construction.add(pairIndexes, pack(initialFirst, initialSecond));
+        for (int state = 0; state < construction.size; state++) {
+            Minimizer.checkInterrupted();
+            int firstState = firstOf(construction.pairs[state]);
+            int secondState = secondOf(construction.pairs[state]);
+            boolean firstAccepts = firstState != SINK && first.isFinal(firstState);
+            boolean secondAccepts = secondState != SINK && second.isFinal(secondState);
+            construction.finalStates.set(state, operation.accepts(firstAccepts, secondAccepts));
+            for (int symbol = 0; symbol < symbols.length; symbol++) {
+                int firstTarget = firstState == SINK || firstSymbols[symbol] == -1 ? SINK : first.getTarget(firstState, firstSymbols[symbol]);
+                int secondTarget = secondState == SINK || secondSymbols[symbol] == -1 ? SINK : second.getTarget(secondState, secondSymbols[symbol]);
+                construction.transitions.add(operation.isLive(firstTarget, secondTarget)
+                        ? construction.add(pairIndexes, pack(firstTarget, secondTarget))
+                        : CompactDFA.NO_TRANSITION);
+            }
+        }
+        return construction;
+    }
+
+    private static long pack(int firstState, int secondState) {
+        return ((long) firstState << 32) | (secondState & 0xFFFFFFFFL);
+    }
+
+    private static int firstOf(long pair) {
+        return (int) (pair >> 32);
+    }
+
+    private static int secondOf(long pair) {
+        return (int) pair;
+    }
+
+    private static final class Construction {
+        private final String[] symbols;
+        private long[] pairs = new long[1024];
+        private int size;
+        private IntList transitions;
+        private final BitSet finalStates = new BitSet();
+
+        private Construction(String[] symbols) {
+            this.symbols = symbols;
+            transitions = new IntList(1024 * Math.max(symbols.length, 1));
+        }
+
+        /**
+         * @return index of the pair, a new one if it was not seen yet
+         */
+        int add(LongIntHashMap pairIndexes, long pair) {
+            int index = pairIndexes.putIfAbsent(pair, size);
+            if (index == size) {
+                if (size == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, size * 2);
+                }
+                pairs[size++] = pair;
+            }
+            return index;
+        }
+
+        String getName(int state, CompactDFA first, CompactDFA second) {
+            int firstState = firstOf(pairs[state]);
+            int secondState = secondOf(pairs[state]);
+            return "(" + (firstState == SINK ? SINK_NAME : first.getStateName(firstState)) + ","
+                    + (secondState == SINK ? SINK_NAME : second.getStateName(secondState)) + ")";
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package hu.sze.stateminimalizer.dfa;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Partition of the elements 0..size-1 into disjoint sets that can only be refined.
+ * Elements of a set are stored contiguously, so marking and splitting are O(1) per marked element.
+ * The arrays are borrowed from the {@link IntArrayPool}, {@link #release()} gives them back.
+ */
+final class RefinablePartition {
+
+    private final int size;
+    private int setCount;
+    private final int[] elements; //elements ordered by set
+    private final int[] location; //position of an element in elements
+    private final int[] setOf;
+    private final int[] first;
+    private final int[] end;
+    private final int[] markedCount;
+    private final int[] touchedSets;
+    private int touchedCount;
+
+    RefinablePartition(int size) {
+        IntArrayPool pool = IntArrayPool.get();
+        this.size = size;
+        elements = pool.borrow(size);
+        location = pool.borrow(size);
+        setOf = pool.borrowZeroed(size);
+        first = pool.borrowZeroed(size);
+        end = pool.borrow(size);
+        markedCount = pool.borrowZeroed(size);
+        touchedSets = pool.borrow(size);
+        for (int i = 0; i < size; i++) {
+            elements[i] = i;
+            location[i] = i;
+        }
+        if (size > 0) {
+            setCount = 1;
+            end[0] = size;
+        }
+    }
+
+    int setCount() {
+        return setCount;
+    }
+
+    int setOf(int element) {
+        return setOf[element];
+    }
+
+    int first(int set) {
+        return first[set];
+    }
+
+    int end(int set) {
+        return end[set];
+    }
+
+    int size(int set) {
+        return end[set] - first[set];
+    }
+
+    int element(int position) {
+        return elements[position];
+    }
+
+    /**
+     * Moves the element to the marked front of its set, marking an element twice has no effect.
+     */
+    void mark(int element) {
+        int set = setOf[element];
+        int i = location[element];
+        int j = first[set] + markedCount[set];
+        if (i < j) {
+            return;
+        }
+        elements[i] = elements[j];
+        location[elements[i]] = i;
+        elements[j] = element;
+        location[element] = j;
+        if (markedCount[set]++ == 0) {
+            touchedSets[touchedCount++] = set;
+        }
+    }
+
+    /**
+     * Splits every touched set into its marked and unmarked part.
+     * The new set always gets the smaller part, so callers can rely on it for Hopcroft's "smaller half" rule.
+     * @param newSetListener called with the id of each created set, may be null
+     */
+    void split(IntConsumer newSetListener) {
+        while (touchedCount > 0) {
+            int set = touchedSets[--touchedCount];
+            int j = first[set] + markedCount[set];
+            if (j == end[set]) { //every element was marked
+                markedCount[set] = 0;
+                continue;
+            }
+            int newSet = setCount++;
+            if (markedCount[set] <= end[set] - j) {
+                first[newSet] = first[set];
+                end[newSet] = j;
+                first[set] = j;
+            } else {
+                end[newSet] = end[set];
+                first[newSet] = j;
+                end[set] = j;
+            }
+            for (int i = first[newSet]; i < end[newSet]; i++) {
+                setOf[elements[i]] = newSet;
+            }
+            markedCount[set] = 0;
+            markedCount[newSet] = 0;
+            if (newSetListener != null) {
+                newSetListener.accept(newSet);
+            }
+        }
+    }
+
+    /**
+     * @return copy of the set ids indexed by element
+     */
+    int[] toSetArray() {
+        return Arrays.copyOf(setOf, size);
+    }
+
+    void release() {
+        IntArrayPool pool = IntArrayPool.get();
+        pool.release(elements);
+        pool.release(location);
+        pool.release(setOf);
+        pool.release(first);
+        pool.release(end);
+        pool.release(markedCount);
+        pool.release(touchedSets);
+    }
+}
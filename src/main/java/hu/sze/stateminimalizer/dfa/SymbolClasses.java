@@ -0,0 +1,278 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Equivalence classes of input symbols that have the same target (or the same missing transition) in every state.
+ * Replacing every class by one symbol keeps the language and the minimal partition, event sets included, so the
+ * engines can work on the compressed alphabet. A class is labelled with a range like {@code [0-9a-f]} when its symbols
+ * are single characters, otherwise with its symbols separated by {@code |}; a class of one symbol keeps the symbol.
+ * {@code \}, {@code |}, {@code [} and {@code ]} are escaped with a backslash in the symbols of longer than one
+ * character, so no symbol can pass for the label of other symbols.
+ */
+public final class SymbolClasses {
+
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final String RANGE_SPECIAL_CHARACTERS = "\\]-^[";
+    private static final String LABEL_SPECIAL_CHARACTERS = "\\|[]";
+
+    private final int[] classesBySymbol;
+    private final int[] representatives;
+    private final String[] labels;
+
+    private SymbolClasses(int[] classesBySymbol, int[] representatives, String[] labels) {
+        this.classesBySymbol = classesBySymbol;
+        this.representatives = representatives;
+        this.labels = labels;
+    }
+
+    /**
+     * Columns of the transition table are hashed in one row-major pass, then compared within the same hash. O(n·k)
+     */
+    public static SymbolClasses of(CompactDFA dfa) {
+        int symbolCount = dfa.getSymbolCount();
+        long[] columnHashes = new long[symbolCount];
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                long hash = (columnHashes[symbol] ^ (dfa.getTarget(state, symbol) + 2)) * HASH_MULTIPLIER;
+                columnHashes[symbol] = hash ^ (hash >>> 31);
+            }
+        }
+        int[] classesBySymbol = new int[symbolCount];
+        IntList representatives = new IntList(16);
+        Map<Long, IntList> classesByHash = new HashMap<>();
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            IntList candidates = classesByHash.computeIfAbsent(columnHashes[symbol], hash -> new IntList(1));
+            int symbolClass = -1;
+            for (int i = 0; i < candidates.size() && symbolClass == -1; i++) {
+                if (hasSameColumn(dfa, representatives.get(candidates.get(i)), symbol)) {
+                    symbolClass = candidates.get(i);
+                }
+            }
+            if (symbolClass == -1) {
+                symbolClass = representatives.size();
+                representatives.add(symbol);
+                candidates.add(symbolClass);
+            }
+            classesBySymbol[symbol] = symbolClass;
+        }
+
+        List<List<String>> members = new ArrayList<>(representatives.size());
+        for (int symbolClass = 0; symbolClass < representatives.size(); symbolClass++) {
+            members.add(new ArrayList<>());
+        }
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            members.get(classesBySymbol[symbol]).add(dfa.getSymbol(symbol));
+        }
+        String[] labels = new String[representatives.size()];
+        for (int symbolClass = 0; symbolClass < labels.length; symbolClass++) {
+            labels[symbolClass] = createLabel(members.get(symbolClass));
+        }
+        return new SymbolClasses(classesBySymbol, representatives.toArray(), labels);
+    }
+
+    private static boolean hasSameColumn(CompactDFA dfa, int symbolA, int symbolB) {
+        for (int state = 0; state < dfa.getStateCount(); state++) {
+            if (dfa.getTarget(state, symbolA) != dfa.getTarget(state, symbolB)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getClassCount() {
+        return representatives.length;
+    }
+
+    public int getSymbolClass(int symbol) {
+        return classesBySymbol[symbol];
+    }
+
+    /**
+     * @return the first symbol of the class
+     */
+    public int getRepresentative(int symbolClass) {
+        return representatives[symbolClass];
+    }
+
+    public String getLabel(int symbolClass) {
+        return labels[symbolClass];
+    }
+
+    /**
+     * @return whether compressing would shrink the alphabet
+     */
+    public boolean isCompressing() {
+        return representatives.length < classesBySymbol.length;
+    }
+
+    /**
+     * @return the same automaton with one symbol per class, the symbols are the class labels
+     */
+    public CompactDFA compress(CompactDFA dfa) {
+        int stateCount = dfa.getStateCount();
+        int classCount = getClassCount();
+        int[] transitions = new int[stateCount * classCount];
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbolClass = 0; symbolClass < classCount; symbolClass++) {
+                transitions[state * classCount + symbolClass] = dfa.getTarget(state, representatives[symbolClass]);
+            }
+        }
+        String[] stateNames = new String[stateCount];
+        int[] stateIds = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            stateNames[state] = dfa.getStateName(state);
+            stateIds[state] = dfa.getStateId(state);
+        }
+        return new CompactDFA(labels.clone(), stateNames, stateIds, transitions, dfa.getFinalStates(), dfa.getInitialState());
+    }
+
+    /**
+     * Replaces every range or {@code |} labelled symbol by the symbols it stands for, e.g. to run the automaton on
+     * single characters or to compare it with an uncompressed one. Only for automata labelled by {@link #compress},
+     * the symbols of any other automaton are not labels and may be taken apart.
+     * @throws IllegalArgumentException if two labels share a symbol or a label is malformed
+     */
+    public static CompactDFA expand(CompactDFA dfa) {
+        Map<String, Integer> labelsBySymbol = new LinkedHashMap<>();
+        for (int label = 0; label < dfa.getSymbolCount(); label++) {
+            for (String symbol : parseLabel(dfa.getSymbol(label))) {
+                if (labelsBySymbol.put(symbol, label) != null) {
+                    throw new IllegalArgumentException("Symbol " + symbol + " is part of more than one label");
+                }
+            }
+        }
+        String[] symbols = labelsBySymbol.keySet().toArray(new String[0]);
+        int[] labels = labelsBySymbol.values().stream().mapToInt(Integer::intValue).toArray();
+        int stateCount = dfa.getStateCount();
+        int[] transitions = new int[stateCount * symbols.length];
+        String[] stateNames = new String[stateCount];
+        int[] stateIds = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < symbols.length; symbol++) {
+                transitions[state * symbols.length + symbol] = dfa.getTarget(state, labels[symbol]);
+            }
+            stateNames[state] = dfa.getStateName(state);
+            stateIds[state] = dfa.getStateId(state);
+        }
+        return new CompactDFA(symbols, stateNames, stateIds, transitions, dfa.getFinalStates(), dfa.getInitialState());
+    }
+
+    /**
+     * Inverse of the labelling: {@code [a-cx]} is a, b, c, x (special characters escaped with a backslash),
+     * {@code ab|cd} is ab and cd, {@code a\|b} is a|b, a single character is itself.
+     * @throws IllegalArgumentException if the label ends with an unfinished escape
+     */
+    public static List<String> parseLabel(String label) {
+        if (label.codePointCount(0, label.length()) == 1) {
+            return Collections.singletonList(label);
+        }
+        if (label.length() > 2 && label.startsWith("[") && label.endsWith("]") && !isEscaped(label, label.length() - 1)) {
+            List<String> symbols = new ArrayList<>();
+            int[] codePoints = label.substring(1, label.length() - 1).codePoints().toArray();
+            for (int i = 0; i < codePoints.length; i++) {
+                int first = codePoints[i] == '\\' && i + 1 < codePoints.length ? codePoints[++i] : codePoints[i];
+                int last = first;
+                if (i + 2 < codePoints.length && codePoints[i + 1] == '-') {
+                    i += 2;
+                    last = codePoints[i] == '\\' && i + 1 < codePoints.length ? codePoints[++i] : codePoints[i];
+                }
+                for (int codePoint = first; codePoint <= last; codePoint++) {
+                    symbols.add(new String(Character.toChars(codePoint)));
+                }
+            }
+            return symbols;
+        }
+        List<String> symbols = new ArrayList<>();
+        StringBuilder symbol = new StringBuilder();
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (c == '\\') {
+                if (++i == label.length()) {
+                    throw new IllegalArgumentException("Unfinished escape at the end of the label " + label);
+                }
+                symbol.append(label.charAt(i));
+            } else if (c == '|') {
+                symbols.add(symbol.toString());
+                symbol.setLength(0);
+            } else {
+                symbol.append(c);
+            }
+        }
+        symbols.add(symbol.toString());
+        return symbols;
+    }
+
+    /**
+     * @return whether the character at index is preceded by an odd number of backslashes
+     */
+    private static boolean isEscaped(String label, int index) {
+        int backslashes = 0;
+        while (index - backslashes > 0 && label.charAt(index - backslashes - 1) == '\\') {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+
+    private static String createLabel(List<String> symbols) {
+        if (symbols.size() == 1) {
+            String symbol = symbols.get(0);
+            return symbol.codePointCount(0, symbol.length()) == 1 ? symbol : escape(symbol);
+        }
+        BitSet codePoints = new BitSet();
+        for (String symbol : symbols) {
+            if (symbol.isEmpty() || symbol.codePointCount(0, symbol.length()) != 1) {
+                StringJoiner label = new StringJoiner("|");
+                symbols.forEach(member -> label.add(escape(member)));
+                return label.toString();
+            }
+            codePoints.set(symbol.codePointAt(0));
+        }
+        StringBuilder label = new StringBuilder("[");
+        for (int first = codePoints.nextSetBit(0); first >= 0; ) {
+            int end = codePoints.nextClearBit(first);
+            appendRangeCharacter(label, first);
+            if (end - first > 2) {
+                label.append('-');
+                appendRangeCharacter(label, end - 1);
+            } else if (end - first == 2) {
+                appendRangeCharacter(label, end - 1);
+            }
+            first = codePoints.nextSetBit(end);
+        }
+        return label.append(']').toString();
+    }
+
+    private static String escape(String symbol) {
+        StringBuilder escaped = new StringBuilder(symbol.length() + 2);
+        for (int i = 0; i < symbol.length(); i++) {
+            if (LABEL_SPECIAL_CHARACTERS.indexOf(symbol.charAt(i)) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(symbol.charAt(i));
+        }
+        return escaped.toString();
+    }
+
+    private static void appendRangeCharacter(StringBuilder label, int codePoint) {
+        if (RANGE_SPECIAL_CHARACTERS.indexOf(codePoint) >= 0) {
+            label.append('\\');
+        }
+        label.appendCodePoint(codePoint);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(labels);
+    }
+}
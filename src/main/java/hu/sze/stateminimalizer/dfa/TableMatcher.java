@@ -0,0 +1,146 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import hu.sze.stateminimalizer.dfa.model.DFA;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Table driven {@link DfaMatcher}. Characters are mapped to {@link SymbolClasses} by an array lookup and the table has
+ * one column per class, so a step is two array reads. The table entries are row offsets instead of state indexes,
+ * row 0 is a dead state for the missing transitions and the unknown characters, the loop stops when it gets there.
+ */
+public final class TableMatcher implements DfaMatcher {
+
+    private static final int DEAD_STATE = 0;
+
+    private final int[] transitions;
+    private final int[] charClasses;
+    private final int[] byteClasses = new int[256];
+    private final int unknownClass;
+    private final int stride;
+    private final int initialState;
+    private final boolean[] accepting;
+
+    private TableMatcher(CompactDFA dfa, SymbolClasses symbolClasses, int maxChar) {
+        int stateCount = dfa.getStateCount();
+        unknownClass = symbolClasses.getClassCount();
+        stride = unknownClass + 1;
+        if ((long) (stateCount + 1) * stride > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many states and symbol classes for a matcher table: " + stateCount + " x " + stride);
+        }
+        charClasses = new int[maxChar + 1];
+        Arrays.fill(charClasses, unknownClass);
+        for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+            charClasses[dfa.getSymbol(symbol).charAt(0)] = symbolClasses.getSymbolClass(symbol);
+        }
+        Arrays.fill(byteClasses, unknownClass);
+        System.arraycopy(charClasses, 0, byteClasses, 0, Math.min(charClasses.length, byteClasses.length));
+
+        transitions = new int[(stateCount + 1) * stride];
+        accepting = new boolean[stateCount + 1];
+        for (int state = 0; state < stateCount; state++) {
+            int row = (state + 1) * stride;
+            for (int symbolClass = 0; symbolClass < unknownClass; symbolClass++) {
+                int target = dfa.getTarget(state, symbolClasses.getRepresentative(symbolClass));
+                transitions[row + symbolClass] = target == CompactDFA.NO_TRANSITION ? DEAD_STATE : (target + 1) * stride;
+            }
+            accepting[state + 1] = dfa.isFinal(state);
+        }
+        initialState = dfa.getInitialState() == CompactDFA.NO_TRANSITION ? DEAD_STATE : (dfa.getInitialState() + 1) * stride;
+    }
+
+    public static TableMatcher of(DFA dfa) {
+        return of(CompactDFA.fromDFA(dfa));
+    }
+
+    /**
+     * Every symbol is taken as the character itself, an automaton on a compressed alphabet is matched after
+     * {@link SymbolClasses#expand(CompactDFA)}.
+     * @throws IllegalArgumentException if a symbol is not a single character
+     */
+    public static TableMatcher of(CompactDFA dfa) {
+        int maxChar = -1;
+        for (int symbol = 0; symbol < dfa.getSymbolCount(); symbol++) {
+            String symbolName = dfa.getSymbol(symbol);
+            if (symbolName.length() != 1) {
+                throw new IllegalArgumentException("Symbol " + symbolName + " is not a single character");
+            }
+            maxChar = Math.max(maxChar, symbolName.charAt(0));
+        }
+        return new TableMatcher(dfa, SymbolClasses.of(dfa), maxChar);
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        int[] transitions = this.transitions;
+        int[] charClasses = this.charClasses;
+        int state = initialState;
+        for (int i = 0, length = input.length(); i < length && state != DEAD_STATE; i++) {
+            char character = input.charAt(i);
+            state = transitions[state + (character < charClasses.length ? charClasses[character] : unknownClass)];
+        }
+        return accepting[state / stride];
+    }
+
+    @Override
+    public boolean matches(byte[] input, int offset, int length) {
+        int[] transitions = this.transitions;
+        int[] byteClasses = this.byteClasses;
+        int state = initialState;
+        for (int i = offset, end = offset + length; i < end && state != DEAD_STATE; i++) {
+            state = transitions[state + byteClasses[input[i] & 0xFF]];
+        }
+        return accepting[state / stride];
+    }
+
+    @Override
+    public boolean matches(ByteBuffer input) {
+        if (input.hasArray()) {
+            return matches(input.array(), input.arrayOffset() + input.position(), input.remaining());
+        }
+        int[] transitions = this.transitions;
+        int[] byteClasses = this.byteClasses;
+        int state = initialState;
+        for (int i = input.position(), end = input.limit(); i < end && state != DEAD_STATE; i++) {
+            state = transitions[state + byteClasses[input.get(i) & 0xFF]];
+        }
+        return accepting[state / stride];
+    }
+
+    public int getStateCount() {
+        return accepting.length - 1;
+    }
+
+    public int getSymbolClassCount() {
+        return unknownClass;
+    }
+
+    /**
+     * @return row offsets of the targets, row 0 is the dead state
+     */
+    int[] getTransitions() {
+        return transitions;
+    }
+
+    int[] getCharClasses() {
+        return charClasses;
+    }
+
+    int[] getByteClasses() {
+        return byteClasses;
+    }
+
+    int getStride() {
+        return stride;
+    }
+
+    int getInitialState() {
+        return initialState;
+    }
+
+    boolean isAccepting(int row) {
+        return accepting[row / stride];
+    }
+}
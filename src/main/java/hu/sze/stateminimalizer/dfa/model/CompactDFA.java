@@ -0,0 +1,162 @@
+package hu.sze.stateminimalizer.dfa.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Array based representation of a {@link DFA}.
+ * States and input symbols are referred by their index, the transitions are stored in one int array,
+ * the target of state q on symbol a is at q * symbolCount + a or {@link #NO_TRANSITION}.
+ */
+public class CompactDFA {
+    public static final int NO_TRANSITION = -1;
+
+    private final String[] symbols;
+    private final Map<String, Integer> symbolIndexes = new HashMap<>();
+    private final String[] stateNames;
+    private final int[] stateIds;
+    private final int[] transitions;
+    private final BitSet finalStates;
+    private final int initialState;
+
+    public CompactDFA(String[] symbols, String[] stateNames, int[] stateIds, int[] transitions, BitSet finalStates, int initialState) {
+        if (transitions.length != stateNames.length * symbols.length || stateIds.length != stateNames.length) {
+            throw new IllegalArgumentException("Transition table does not match the number of states and symbols");
+        }
+        this.symbols = symbols;
+        this.stateNames = stateNames;
+        this.stateIds = stateIds;
+        this.transitions = transitions;
+        this.finalStates = finalStates;
+        this.initialState = initialState;
+        for (int symbol = 0; symbol < symbols.length; symbol++) {
+            symbols[symbol] = symbols[symbol].intern();
+            symbolIndexes.put(symbols[symbol], symbol);
+        }
+    }
+
+    /**
+     * States keep the order of {@code dfa.getStates()}, symbols the order of {@code dfa.getInputSymbols()}.
+     * Transitions pointing out of the state list are dropped.
+     */
+    public static CompactDFA fromDFA(DFA dfa) {
+        List<State> states = dfa.getStates();
+        int stateCount = states.size();
+        String[] symbols = dfa.getInputSymbols().toArray(new String[0]);
+        Map<String, Integer> symbolIndexes = new HashMap<>();
+        for (String symbol : symbols) {
+            symbolIndexes.put(symbol, symbolIndexes.size());
+        }
+        int[] stateIndexesById = dfa.getStateIndexesById();
+        String[] stateNames = new String[stateCount];
+        int[] stateIds = new int[stateCount];
+        BitSet finalStates = new BitSet(stateCount);
+        int initialState = NO_TRANSITION;
+        for (int stateIndex = 0; stateIndex < stateCount; stateIndex++) {
+            State state = states.get(stateIndex);
+            stateNames[stateIndex] = state.getName();
+            stateIds[stateIndex] = state.getId();
+            if (dfa.getFinalStateIds().contains(state.getId())) {
+                finalStates.set(stateIndex);
+            }
+            if (state.getId() == DFA.INITIAL_STATE_ID) {
+                initialState = stateIndex;
+            }
+        }
+        int[] transitions = new int[stateCount * symbols.length];
+        Arrays.fill(transitions, NO_TRANSITION);
+        for (int stateIndex = 0; stateIndex < stateCount; stateIndex++) {
+            for (Map.Entry<String, State> transition : states.get(stateIndex).getTransitions().entrySet()) {
+                Integer symbol = symbolIndexes.get(transition.getKey());
+                int targetId = transition.getValue().getId();
+                if (symbol != null && targetId < stateIndexesById.length && stateIndexesById[targetId] != -1) {
+                    transitions[stateIndex * symbols.length + symbol] = stateIndexesById[targetId];
+                }
+            }
+        }
+        return new CompactDFA(symbols, stateNames, stateIds, transitions, finalStates, initialState);
+    }
+
+    public DFA toDFA() {
+        DFA dfa = new DFA();
+        State[] states = new State[stateNames.length];
+        for (int stateIndex = 0; stateIndex < states.length; stateIndex++) {
+            states[stateIndex] = new State(stateIds[stateIndex]);
+            states[stateIndex].setName(stateNames[stateIndex]);
+        }
+        for (int stateIndex = 0; stateIndex < states.length; stateIndex++) {
+            for (int symbol = 0; symbol < symbols.length; symbol++) {
+                int target = getTarget(stateIndex, symbol);
+                if (target != NO_TRANSITION) {
+                    states[stateIndex].getTransitions().put(symbols[symbol], states[target]);
+                }
+            }
+            if (finalStates.get(stateIndex)) {
+                dfa.getFinalStateIds().add(stateIds[stateIndex]);
+            }
+        }
+        dfa.getStates().addAll(Arrays.asList(states));
+        dfa.getInputSymbols().addAll(Arrays.asList(symbols));
+        return dfa;
+    }
+
+    public int getStateCount() {
+        return stateNames.length;
+    }
+
+    public int getSymbolCount() {
+        return symbols.length;
+    }
+
+    public String getSymbol(int symbol) {
+        return symbols[symbol];
+    }
+
+    /**
+     * @return index of the symbol or {@link #NO_TRANSITION} if it is not part of the alphabet
+     */
+    public int getSymbolIndex(String symbol) {
+        Integer index = symbolIndexes.get(symbol);
+        return index != null ? index : NO_TRANSITION;
+    }
+
+    public String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    public int getStateId(int state) {
+        return stateIds[state];
+    }
+
+    public int getTarget(int state, int symbol) {
+        return transitions[state * symbols.length + symbol];
+    }
+
+    public boolean isFinal(int state) {
+        return finalStates.get(state);
+    }
+
+    public BitSet getFinalStates() {
+        return (BitSet) finalStates.clone();
+    }
+
+    /**
+     * @return index of the initial state or {@link #NO_TRANSITION} if there is no state with {@link DFA#INITIAL_STATE_ID}
+     */
+    public int getInitialState() {
+        return initialState;
+    }
+
+    public int getTransitionCount() {
+        int count = 0;
+        for (int target : transitions) {
+            if (target != NO_TRANSITION) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,95 @@
+package hu.sze.stateminimalizer.dfa.model;
+
+import java.util.BitSet;
+
+/**
+ * Array based nondeterministic automaton with ε-transitions, states and input symbols are referred by their index.
+ * The targets of state q on symbol a are {@code targets[transitionOffsets[q * symbolCount + a] ..
+ * transitionOffsets[q * symbolCount + a + 1])}, the ε-targets of q are {@code epsilonTargets[epsilonOffsets[q] ..
+ * epsilonOffsets[q + 1])}.
+ */
+public class CompactNFA {
+
+    private final String[] symbols;
+    private final String[] stateNames;
+    private final int[] transitionOffsets;
+    private final int[] targets;
+    private final int[] epsilonOffsets;
+    private final int[] epsilonTargets;
+    private final BitSet finalStates;
+    private final int initialState;
+
+    public CompactNFA(String[] symbols, String[] stateNames, int[] transitionOffsets, int[] targets,
+                      int[] epsilonOffsets, int[] epsilonTargets, BitSet finalStates, int initialState) {
+        if (transitionOffsets.length != stateNames.length * symbols.length + 1 || epsilonOffsets.length != stateNames.length + 1) {
+            throw new IllegalArgumentException("Transition offsets do not match the number of states and symbols");
+        }
+        this.symbols = symbols;
+        this.stateNames = stateNames;
+        this.transitionOffsets = transitionOffsets;
+        this.targets = targets;
+        this.epsilonOffsets = epsilonOffsets;
+        this.epsilonTargets = epsilonTargets;
+        this.finalStates = finalStates;
+        this.initialState = initialState;
+    }
+
+    public int getStateCount() {
+        return stateNames.length;
+    }
+
+    public int getSymbolCount() {
+        return symbols.length;
+    }
+
+    public String getSymbol(int symbol) {
+        return symbols[symbol];
+    }
+
+    public String[] getSymbols() {
+        return symbols.clone();
+    }
+
+    public String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    public int firstTarget(int state, int symbol) {
+        return transitionOffsets[state * symbols.length + symbol];
+    }
+
+    public int endTarget(int state, int symbol) {
+        return transitionOffsets[state * symbols.length + symbol + 1];
+    }
+
+    public int target(int index) {
+        return targets[index];
+    }
+
+    public int firstEpsilonTarget(int state) {
+        return epsilonOffsets[state];
+    }
+
+    public int endEpsilonTarget(int state) {
+        return epsilonOffsets[state + 1];
+    }
+
+    public int epsilonTarget(int index) {
+        return epsilonTargets[index];
+    }
+
+    public boolean isFinal(int state) {
+        return finalStates.get(state);
+    }
+
+    public BitSet getFinalStates() {
+        return (BitSet) finalStates.clone();
+    }
+
+    /**
+     * @return index of the initial state or {@link CompactDFA#NO_TRANSITION} if there are no states
+     */
+    public int getInitialState() {
+        return initialState;
+    }
+}
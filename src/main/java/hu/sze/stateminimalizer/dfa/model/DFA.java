@@ -1,6 +1,7 @@
 package hu.sze.stateminimalizer.dfa.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -37,4 +38,20 @@ public class DFA {
     public Set<Integer> getFinalStateIds() {
         return finalStateIds;
     }
+
+    /**
+     * @return position of every state in {@link #getStates()} indexed by the state id, -1 for the ids without a state
+     */
+    public int[] getStateIndexesById() {
+        int maxId = -1;
+        for (State state : states) {
+            maxId = Math.max(maxId, state.getId());
+        }
+        int[] stateIndexes = new int[maxId + 1];
+        Arrays.fill(stateIndexes, -1);
+        for (int stateIndex = 0; stateIndex < states.size(); stateIndex++) {
+            stateIndexes[states.get(stateIndex).getId()] = stateIndex;
+        }
+        return stateIndexes;
+    }
 }
@@ -0,0 +1,170 @@
+package hu.sze.stateminimalizer.vaadin;
+
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.grid.ColumnTextAlign;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.GridVariant;
+import com.vaadin.flow.component.html.Label;
+import com.vaadin.flow.component.icon.Icon;
+import com.vaadin.flow.component.icon.VaadinIcon;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.data.provider.DataProvider;
+import com.vaadin.flow.data.renderer.TemplateRenderer;
+import hu.sze.stateminimalizer.dfa.MinimizationResult;
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import hu.sze.stateminimalizer.dfa.model.State;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * The lower triangle of the pair table, rows are loaded lazily by the grid and the columns are shown in pages,
+ * so only the visible cells are sent to the browser. A cell is a template filled from a few properties, the marks are
+ * read from the minimization result when the row is fetched.
+ */
+public class DistinguishabilityGrid extends VerticalLayout {
+
+    private static final long serialVersionUID = 1L;
+    public static final String RED_X_TITLE = "Piros: végállapot vs. nem végállapot";
+    private static final int COLUMN_PAGE_SIZE = 30;
+    private static final String CELL_SIZE = "3em";
+    private static final String CELL_TEMPLATE =
+            "<vaadin-button theme='icon small tertiary' on-click='reveal' hidden='[[!item.button]]'>"
+                    + "<iron-icon icon='vaadin:pointer'></iron-icon></vaadin-button>"
+                    + "<span hidden='[[item.button]]' title$='[[item.title]]' style$='font-weight: bold; color: [[item.color]]'>"
+                    + "[[item.text]]</span>";
+
+    private final MinimizationResult result;
+    private final List<State> states;
+    private final boolean showFull;
+    private final Grid<Integer> grid = new Grid<>();
+    private final DataProvider<Integer, Void> rows;
+    private final Set<Long> revealedPairs = new HashSet<>();
+    private final Button previousColumnsButton = new Button(new Icon(VaadinIcon.ANGLE_LEFT));
+    private final Button nextColumnsButton = new Button(new Icon(VaadinIcon.ANGLE_RIGHT));
+    private final Label columnRangeLabel = new Label();
+    private int firstColumn = 0;
+
+    /**
+     * @param showFull show the blue marks and the buttons revealing the marks of the propagation too, not only the red ones
+     */
+    public DistinguishabilityGrid(MinimizationResult result, DFA dfa, boolean showFull) {
+        this.result = result;
+        this.states = dfa.getStates();
+        this.showFull = showFull;
+        setPadding(false);
+
+        int stateCount = states.size();
+        rows = DataProvider.fromCallbacks(
+                query -> IntStream.range(query.getOffset(), Math.min(stateCount, query.getOffset() + query.getLimit())).boxed(),
+                query -> stateCount);
+        grid.setDataProvider(rows);
+        grid.addThemeVariants(GridVariant.LUMO_COLUMN_BORDERS, GridVariant.LUMO_COMPACT);
+        grid.setWidth("100%");
+        grid.setHeight("70vh");
+
+        previousColumnsButton.addClickListener(buttonClickEvent -> showColumns(firstColumn - COLUMN_PAGE_SIZE));
+        nextColumnsButton.addClickListener(buttonClickEvent -> showColumns(firstColumn + COLUMN_PAGE_SIZE));
+        HorizontalLayout columnNavigation = new HorizontalLayout(previousColumnsButton, columnRangeLabel, nextColumnsButton);
+        columnNavigation.setAlignItems(Alignment.CENTER);
+        columnNavigation.setVisible(stateCount - 1 > COLUMN_PAGE_SIZE);
+
+        add(columnNavigation, grid);
+        showColumns(0);
+    }
+
+    /**
+     * Column c is the state c, the last state has no column since the triangle ends before the diagonal.
+     */
+    private void showColumns(int first) {
+        int columnCount = Math.max(0, states.size() - 1);
+        firstColumn = Math.max(0, Math.min(first, columnCount - 1));
+        int end = Math.min(columnCount, firstColumn + COLUMN_PAGE_SIZE);
+
+        grid.removeAllColumns();
+        grid.addColumn(rowIndex -> states.get(rowIndex).getName())
+                .setFrozen(true)
+                .setWidth("8em")
+                .setFlexGrow(0);
+        for (int column = firstColumn; column < end; column++) {
+            addCellColumn(column);
+        }
+        previousColumnsButton.setEnabled(firstColumn > 0);
+        nextColumnsButton.setEnabled(end < columnCount);
+        columnRangeLabel.setText((firstColumn + 1) + "–" + end + " / " + columnCount + " oszlop");
+    }
+
+    private void addCellColumn(int columnIndex) {
+        State columnState = states.get(columnIndex);
+        TemplateRenderer<Integer> renderer = TemplateRenderer.<Integer>of(CELL_TEMPLATE)
+                .withProperty("button", rowIndex -> getCell(rowIndex, columnIndex) == Cell.BUTTON)
+                .withProperty("text", rowIndex -> getCell(rowIndex, columnIndex).text)
+                .withProperty("color", rowIndex -> getCell(rowIndex, columnIndex).color)
+                .withProperty("title", rowIndex -> getTitle(rowIndex, columnIndex))
+                .withEventHandler("reveal", rowIndex -> {
+                    revealedPairs.add(getPairKey(rowIndex, columnIndex));
+                    rows.refreshItem(rowIndex);
+                });
+        grid.addColumn(renderer)
+                .setHeader(columnState.getName())
+                .setWidth(CELL_SIZE)
+                .setFlexGrow(0)
+                .setTextAlign(ColumnTextAlign.CENTER);
+    }
+
+    private Cell getCell(int rowIndex, int columnIndex) {
+        if (columnIndex >= rowIndex) {
+            return Cell.NONE;
+        }
+        State rowState = states.get(rowIndex);
+        State columnState = states.get(columnIndex);
+        if (result.isMarkedAsRed(rowState, columnState)) {
+            return Cell.RED;
+        }
+        if (!showFull) {
+            return Cell.NONE;
+        }
+        if (result.isMarkedAsBlue(rowState, columnState)) {
+            return Cell.BLUE;
+        }
+        if (!revealedPairs.contains(getPairKey(rowIndex, columnIndex))) {
+            return Cell.BUTTON;
+        }
+        return result.isMarked(rowState, columnState) ? Cell.MARKED : Cell.NONE;
+    }
+
+    private String getTitle(int rowIndex, int columnIndex) {
+        switch (getCell(rowIndex, columnIndex)) {
+            case RED:
+                return RED_X_TITLE;
+            case BLUE:
+                return "Kék: eltérő event set: {" + result.getActiveEventSet(states.get(rowIndex)) + "} <-> {"
+                        + result.getActiveEventSet(states.get(columnIndex)) + "}";
+            default:
+                return "";
+        }
+    }
+
+    private long getPairKey(int rowIndex, int columnIndex) {
+        return (long) rowIndex * states.size() + columnIndex;
+    }
+
+    private enum Cell {
+        NONE("", "inherit"),
+        RED("X", "red"),
+        BLUE("X", "blue"),
+        MARKED("X", "inherit"),
+        BUTTON("", "inherit");
+
+        private final String text;
+        private final String color;
+
+        Cell(String text, String color) {
+            this.text = text;
+            this.color = color;
+        }
+    }
+}
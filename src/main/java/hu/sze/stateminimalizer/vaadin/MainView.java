@@ -1,49 +1,78 @@
 package hu.sze.stateminimalizer.vaadin;
 
 
-import com.vaadin.flow.component.Component;
-import com.vaadin.flow.component.HasElement;
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.html.Anchor;
 import com.vaadin.flow.component.html.H2;
 import com.vaadin.flow.component.html.H4;
 import com.vaadin.flow.component.html.Label;
-import com.vaadin.flow.component.icon.Icon;
-import com.vaadin.flow.component.icon.VaadinIcon;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.page.Push;
+import com.vaadin.flow.component.progressbar.ProgressBar;
 import com.vaadin.flow.component.upload.Upload;
 import com.vaadin.flow.component.upload.UploadI18N;
-import com.vaadin.flow.component.upload.receivers.MemoryBuffer;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.server.InputStreamFactory;
 import com.vaadin.flow.server.StreamResource;
 import hu.sze.stateminimalizer.dfa.CSVToDFAProcessor;
-import hu.sze.stateminimalizer.dfa.Minimizer;
+import hu.sze.stateminimalizer.dfa.MinimizationMetrics.Phase;
+import hu.sze.stateminimalizer.dfa.MinimizationMetrics;
+import hu.sze.stateminimalizer.dfa.MinimizationResult;
+import hu.sze.stateminimalizer.dfa.MinimizationService;
+import hu.sze.stateminimalizer.dfa.MinimizerProperties;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
 import hu.sze.stateminimalizer.dfa.model.DFA;
 import hu.sze.stateminimalizer.dfa.model.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+@Push
 @Route("")
 public class MainView extends HorizontalLayout {
 
-    private static final String CELL_SIZE = "3em";
-    public static final String RED_X_TITLE = "Piros: végállapot vs. nem végállapot";
+    private static final long serialVersionUID = 1L;
+    private static final Logger log = LoggerFactory.getLogger(MainView.class);
+    private static final long PROGRESS_PUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
 
     private final Button startButton = new Button("Indítás");
     private final Button continueButton = new Button("Aktív event set-ek");
+    private final Button cancelButton = new Button("Megszakítás");
+    private final ProgressBar progressBar = new ProgressBar();
+    private final Label progressLabel = new Label();
     private final VerticalLayout errorLayout =new VerticalLayout();
     private final VerticalLayout treeLayout = new VerticalLayout();
     private final VerticalLayout mainLayout = new VerticalLayout();
 
-    private DFA dfa;
-    private Minimizer minimizer;
-
-
-    public MainView() {
+    private final MinimizerProperties minimizerProperties;
+    private final MinimizationService minimizationService;
+    private final MinimizationMetrics minimizationMetrics;
+    private final MinimizationExecutor minimizationExecutor;
+    private CompactDFA dfa; //expanded to the object model only by the minimization and the result view
+    private MinimizationResult result;
+    private Object pendingMinimization; //identifies the one running in the background, null when there is none or it was cancelled
+    private Future<?> runningMinimization;
+    private long lastProgressPushNanos;
+
+
+    public MainView(MinimizerProperties minimizerProperties, MinimizationService minimizationService, MinimizationMetrics minimizationMetrics,
+                    MinimizationExecutor minimizationExecutor) {
+        this.minimizerProperties = minimizerProperties;
+        this.minimizationService = minimizationService;
+        this.minimizationMetrics = minimizationMetrics;
+        this.minimizationExecutor = minimizationExecutor;
+        setWidth("100%");
         add(mainLayout);
         mainLayout.add(new H2("Véges automata minimalizálás"));
 
@@ -57,19 +86,55 @@ public class MainView extends HorizontalLayout {
         startButton.setEnabled(false);
         startButton.addClickListener(buttonClickEvent ->  startMinimizeDfa());
         continueButton.setVisible(false);
+        cancelButton.setVisible(false);
+        cancelButton.addClickListener(buttonClickEvent -> cancelMinimizeDfa());
+        progressBar.setVisible(false);
+        progressLabel.setVisible(false);
+        addDetachListener(detachEvent -> stopRunningMinimization());
 
-        mainLayout.add(fileUploader, anchor, startButton, continueButton, errorLayout);
+        mainLayout.add(fileUploader, anchor, startButton, cancelButton, progressBar, progressLabel, continueButton, errorLayout);
     }
 
-    private void handleUploadedFile(MemoryBuffer memoryBuffer) {
+    /**
+     * Parses the uploaded file on a {@link MinimizationExecutor} thread, so the number of automata being read at once
+     * is bounded like the minimizations, and deletes it afterwards.
+     */
+    private void handleUploadedFile(TempFileReceiver receiver) {
+        UI ui = UI.getCurrent();
+        Path uploadedFile = receiver.takeFile();
         errorLayout.removeAll();
+        startButton.setEnabled(false);
+        minimizationExecutor.submit(() -> {
+            try {
+                CSVToDFAProcessor processor = new CSVToDFAProcessor(minimizationMetrics);
+                processor.setCompressAlphabet(minimizerProperties.isCompressAlphabet());
+                CompactDFA uploadedDfa = processor.readCSVFile(uploadedFile, minimizerProperties.getUploadMaxUncompressedBytes());
+                ui.access(() -> {
+                    dfa = uploadedDfa;
+                    startButton.setEnabled(true);
+                });
+            } catch (Exception e) {
+                log.error("Could not read the uploaded automaton", e);
+                ui.access(() -> errorLayout.add(createErrorLabel("Hiba történt a feldolgozás során!")));
+            } finally {
+                deleteUploadedFile(uploadedFile);
+            }
+        });
+    }
+
+    private void deleteUploadedFile(Path uploadedFile) {
         try {
-            this.dfa = new CSVToDFAProcessor().readCSVToDfa(memoryBuffer.getInputStream());
-            getUI().ifPresent(ui -> ui.accessSynchronously(() -> startButton.setEnabled(true)));
-        } catch (Exception e) {
-            Label errorLabel = createErrorLabel("Hiba történt a feldolgozás során!");
-            errorLayout.add(errorLabel);
-            e.printStackTrace();
+            Files.deleteIfExists(uploadedFile);
+        } catch (IOException e) {
+            log.warn("Could not delete the uploaded file", e);
+        }
+    }
+
+    private void deleteUnreadFile(TempFileReceiver receiver) {
+        try {
+            receiver.deleteFile();
+        } catch (IOException e) {
+            log.warn("Could not delete the uploaded file", e);
         }
     }
 
@@ -87,7 +152,7 @@ public class MainView extends HorizontalLayout {
             return streamResource;
         } catch (Exception e) {
             errorLayout.add(createErrorLabel("Hiba történt!"));
-            e.printStackTrace();
+            log.error("Could not create the example file", e);
         }
         return null;
     }
@@ -104,149 +169,182 @@ public class MainView extends HorizontalLayout {
         return dfaArrays;
     }
 
+    /**
+     * Minimizes on a {@link MinimizationExecutor} thread without holding the session lock, the progress and the result
+     * are pushed to the browser.
+     */
     private void startMinimizeDfa(){
-        add(treeLayout);
+        UI ui = UI.getCurrent();
+        CompactDFA inputDfa = dfa;
+        Object minimization = new Object();
+        pendingMinimization = minimization;
+        lastProgressPushNanos = 0;
 
-        startButton.setVisible(false);
-        DFA minDfa = createReducedDfa();
-
-        //System.out.println(minDfa);
-
-        addDfaDescription(minDfa);
-
-        addGrid(minDfa);
-    }
-
-    private void addGrid(DFA minDfa) {
-        Component redGrid = createGrid(minDfa, false);
-        treeLayout.add(redGrid);
-        continueButton.setVisible(true);
-        continueButton.addClickListener(buttonClickEvent -> {
-            treeLayout.remove(redGrid);
-            continueButton.setVisible(false);
-            treeLayout.add(createGrid(minDfa, true));
+        errorLayout.removeAll();
+        startButton.setEnabled(false);
+        cancelButton.setVisible(true);
+        showProgress(minimization, null, 0, 0);
+        runningMinimization = minimizationExecutor.submit(() -> {
+            try {
+                MinimizationResult minimizationResult = minimizationService.minimize(inputDfa.toDFA(),
+                        (phase, processedPairs, totalPairs) -> pushProgress(ui, minimization, phase, processedPairs, totalPairs));
+                ui.access(() -> showResult(minimization, minimizationResult));
+            } catch (CancellationException e) {
+                log.debug("Minimization cancelled");
+            } catch (RuntimeException e) {
+                log.error("Minimization failed", e);
+                ui.access(() -> showError(minimization, "Hiba történt a minimalizálás során!"));
+            }
         });
     }
 
-    private void addDfaDescription(DFA minDfa) {
-        mainLayout.add(new Label("Σ: " + String.join(", ", minDfa.getInputSymbols())));
-        mainLayout.add(new Label("K: "+ minDfa.getStates().stream().map(State::getName).collect(Collectors.joining(", "))));
-        mainLayout.add(new Label("S: "+ minDfa.getInitialState().getName()));
-        mainLayout.add(new Label("F: "+ minDfa.getFinalStates().stream().map(State::getName).collect(Collectors.joining(", "))));
-    }
-
-    private DFA createReducedDfa() {
-        minimizer = new Minimizer();
-        return minimizer.minimize(dfa);
+    private void cancelMinimizeDfa() {
+        stopRunningMinimization();
+        hideProgress();
+        startButton.setEnabled(dfa != null);
+        errorLayout.add(createErrorLabel("A minimalizálás megszakítva."));
     }
 
-    private Component createGrid(DFA dfa, boolean showFullTree){
-        VerticalLayout gridLayout = new VerticalLayout();
-        gridLayout.setSpacing(false);
-        for (int rowIndex = 0; rowIndex < dfa.getStates().size(); rowIndex++){
-            HorizontalLayout row = createRow(dfa, showFullTree, rowIndex);
-            gridLayout.add(row);
+    /**
+     * Interrupts the engine, a result or progress pushed meanwhile is dropped since it belongs to another minimization.
+     */
+    private void stopRunningMinimization() {
+        if (runningMinimization != null) {
+            runningMinimization.cancel(true);
+            runningMinimization = null;
         }
-        return gridLayout;
+        pendingMinimization = null;
     }
 
-    private HorizontalLayout createRow(DFA dfa, boolean showFullTree, int rowIndex) {
-        State rowState = dfa.getStates().get(rowIndex);
-        HorizontalLayout row = new HorizontalLayout();
-
-        for(int columnIndex = 0; columnIndex<rowIndex; columnIndex++){
-            Component cell = createCellComponent(dfa, rowIndex, rowState, columnIndex, showFullTree);
-            row.add(cell);
+    /**
+     * Called on the minimizing thread, phase changes are always pushed, the progress within a phase at most every 250 ms.
+     */
+    private void pushProgress(UI ui, Object minimization, Phase phase, long processedPairs, long totalPairs) {
+        long now = System.nanoTime();
+        if (processedPairs != 0 && now - lastProgressPushNanos < PROGRESS_PUSH_INTERVAL_NANOS) {
+            return;
         }
-        Label headerLabel = createCellLabel();
-        headerLabel.setText(rowState.getName());
-        headerLabel.getStyle().set("border", "none");
-        row.add(headerLabel);
-
-        row.setHeight(CELL_SIZE);
-        row.setAlignItems(Alignment.CENTER);
-        row.setSpacing(false);
-        return row;
+        lastProgressPushNanos = now;
+        ui.access(() -> showProgress(minimization, phase, processedPairs, totalPairs));
     }
 
-    private Component createCellComponent(DFA dfa, int rowIndex, State rowState, int columnIndex, boolean showFull) {
-        State columnState = dfa.getStates().get(columnIndex);
-        HasElement cell;
-        if(minimizer.isMarkedAsRed(rowState, columnState)){
-            cell = createCellLabel();
-            fillXLabel((Label) cell, RED_X_TITLE, "red");
-        } else if(showFull) {
-            if (minimizer.isMarkedAsBlue(rowState, columnState)){
-                cell = createCellLabel();
-                fillXLabel((Label) cell, getBlueXTitle(rowState, columnState), "blue");
-            } else {
-                cell = createButtonCell(rowState, columnState);
-            }
-        } else {
-            cell = createCellLabel();
+    private void showProgress(Object minimization, Phase phase, long processedPairs, long totalPairs) {
+        if (minimization != pendingMinimization) {
+            return;
         }
-        if(rowIndex != dfa.getStates().size() - 1){ //has more rows
-            cell.getElement().getStyle().set("border-bottom", "none");
+        progressBar.setVisible(true);
+        progressBar.setIndeterminate(totalPairs == 0);
+        if (totalPairs > 0) {
+            progressBar.setValue((double) processedPairs / totalPairs);
         }
-        if(columnIndex != rowIndex - 1){ //has more columns
-            cell.getElement().getStyle().set("border-right", "none");
-        }
-        return (Component) cell;
+        String phaseName = getPhaseName(phase);
+        progressLabel.setText(totalPairs > 0 ? phaseName + ": " + processedPairs + " / " + totalPairs + " pár" : phaseName);
+        progressLabel.setVisible(true);
+    }
+
+    private void hideProgress() {
+        cancelButton.setVisible(false);
+        progressBar.setVisible(false);
+        progressLabel.setVisible(false);
     }
 
-    private String getBlueXTitle(State rowState, State columnState) {
-        return "Kék: eltérő event set: {" + minimizer.getActiveEventSet(rowState) + "} <-> {" + minimizer.getActiveEventSet(columnState) + "}";
+    private String getPhaseName(Phase phase) {
+        if (phase == null) {
+            return "Várakozás szabad szálra...";
+        }
+        switch (phase) {
+            case PRUNE:
+                return "Elérhetetlen állapotok törlése";
+            case RED_MARKING:
+                return "Piros jelölések";
+            case EVENT_SET_SPLITTING:
+                return "Kék jelölések (event set-ek)";
+            case PROPAGATION:
+                return "Jelölések továbbterjesztése";
+            case REFINEMENT:
+                return "Partíciófinomítás";
+            case GROUPING:
+                return "Csoportok képzése";
+            case QUOTIENT:
+                return "Minimális automata felépítése";
+            default:
+                return phase.name();
+        }
     }
 
-    private HorizontalLayout createButtonCell(State rowState, State columnState) {
-        Button button = new Button();
-        button.setIcon(new Icon(VaadinIcon.POINTER));
+    private void showResult(Object minimization, MinimizationResult minimizationResult) {
+        if (minimization != pendingMinimization) {
+            return;
+        }
+        pendingMinimization = null;
+        runningMinimization = null;
+        hideProgress();
+        result = minimizationResult;
+        add(treeLayout);
+        expand(treeLayout);
 
+        startButton.setVisible(false);
+        DFA minDfa = result.getReducedDfa();
 
-        HorizontalLayout horizontalLayout = new HorizontalLayout(button);
-        horizontalLayout.setMargin(false);
-        horizontalLayout.setAlignItems(Alignment.CENTER);
-        horizontalLayout.setWidth(CELL_SIZE);
-        horizontalLayout.setHeight(CELL_SIZE);
-        horizontalLayout.getStyle().set("border", "1px solid black");
-        horizontalLayout.getStyle().set("border-radius", "0 !important");
+        addDfaDescription(minDfa);
 
-        boolean isMarked = minimizer.isMarked(rowState, columnState);
+        addGrid(minDfa);
+    }
 
-        button.addClickListener(buttonClickEvent -> horizontalLayout.replace(button, new Label(isMarked ? "X" : "")));
-        return horizontalLayout;
+    private void showError(Object minimization, String content) {
+        if (minimization != pendingMinimization) {
+            return;
+        }
+        pendingMinimization = null;
+        runningMinimization = null;
+        hideProgress();
+        startButton.setEnabled(true);
+        errorLayout.add(createErrorLabel(content));
     }
 
-    private Label createCellLabel(){
-        Label label = new Label("");
-        label.getStyle().set("font-weight", "bold");
-        label.getStyle().set("text-align", "center");
-        label.getStyle().set("width", CELL_SIZE);
-        label.getStyle().set("height", CELL_SIZE);
-        label.getStyle().set("border", "1px solid black");
-        return label;
+    private void addGrid(DFA minDfa) {
+        DistinguishabilityGrid redGrid = new DistinguishabilityGrid(result, minDfa, false);
+        treeLayout.add(redGrid);
+        continueButton.setVisible(true);
+        continueButton.addClickListener(buttonClickEvent -> {
+            treeLayout.remove(redGrid);
+            continueButton.setVisible(false);
+            treeLayout.add(new DistinguishabilityGrid(result, minDfa, true));
+        });
     }
 
-    private void fillXLabel(Label label, String title, String color){
-        label.setText("X");
-        label.getStyle().set("color", color);
-        label.getElement().setAttribute("title", title);
+    private void addDfaDescription(DFA minDfa) {
+        mainLayout.add(new Label("Σ: " + String.join(", ", minDfa.getInputSymbols())));
+        mainLayout.add(new Label("K: "+ minDfa.getStates().stream().map(State::getName).collect(Collectors.joining(", "))));
+        mainLayout.add(new Label("S: "+ minDfa.getInitialState().getName()));
+        mainLayout.add(new Label("F: "+ minDfa.getFinalStates().stream().map(State::getName).collect(Collectors.joining(", "))));
     }
 
     private Upload createFileUploader() {
-        MemoryBuffer memoryBuffer = new MemoryBuffer();
+        //streamed into a temp file while it arrives, only the parsed automaton is kept in memory
+        TempFileReceiver receiver = new TempFileReceiver(minimizerProperties.getUploadMaxBytes());
 
         Upload fileUploader = new Upload();
 
-        fileUploader.setReceiver(memoryBuffer);
-        fileUploader.setAcceptedFileTypes(".csv");
-        fileUploader.setMaxFileSize(10000);
+        fileUploader.setReceiver(receiver);
+        fileUploader.setAcceptedFileTypes(".csv", ".gz", ".zst");
+        fileUploader.setMaxFileSize((int) Math.min(minimizerProperties.getUploadMaxBytes(), Integer.MAX_VALUE));
         fileUploader.setAutoUpload(true);
         fileUploader.setMaxFiles(1);
         UploadI18N uploadI18N = createUploadI18N();
 
         fileUploader.setI18n(uploadI18N);
-        fileUploader.addSucceededListener(succeededEvent -> handleUploadedFile(memoryBuffer));
+        fileUploader.addSucceededListener(succeededEvent -> handleUploadedFile(receiver));
+        fileUploader.addFailedListener(failedEvent -> {
+            deleteUnreadFile(receiver);
+            log.info("Upload failed: {}", failedEvent.getReason().getMessage());
+            errorLayout.removeAll();
+            errorLayout.add(createErrorLabel("A fájl nem tölthető fel: " + failedEvent.getReason().getMessage()));
+        });
+        fileUploader.addFileRejectedListener(fileRejectedEvent -> {
+            errorLayout.removeAll();
+            errorLayout.add(createErrorLabel("A fájl nem tölthető fel: " + fileRejectedEvent.getErrorMessage()));
+        });
         return fileUploader;
     }
 
@@ -0,0 +1,44 @@
+package hu.sze.stateminimalizer.vaadin;
+
+import hu.sze.stateminimalizer.dfa.MinimizerProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background threads of the minimizations started from {@link MainView} and of the parsing of the uploaded files,
+ * shared by the sessions. The queue is FIFO and a view runs at most one minimization at a time, so a session with a
+ * large automaton cannot hold back the others longer than its one job.
+ */
+@Component
+public class MinimizationExecutor {
+
+    private final ExecutorService executor;
+
+    public MinimizationExecutor(MinimizerProperties properties) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "ui-minimizer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = Executors.newFixedThreadPool(Math.max(1, properties.getUiThreads()), threadFactory);
+    }
+
+    /**
+     * @return future whose {@code cancel(true)} interrupts the minimization
+     */
+    public Future<?> submit(Runnable task) {
+        return executor.submit(task);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
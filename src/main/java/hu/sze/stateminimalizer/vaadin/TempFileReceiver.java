@@ -0,0 +1,93 @@
+package hu.sze.stateminimalizer.vaadin;
+
+import com.vaadin.flow.component.upload.Receiver;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams an upload into a new temp file. The file belongs to the caller of {@link #takeFile()}, who deletes it.
+ * The size limit is enforced here while the bytes arrive, the one of the {@code Upload} component is only checked by
+ * the browser.
+ */
+class TempFileReceiver implements Receiver {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long maxBytes;
+    private transient Path file;
+
+    TempFileReceiver(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public OutputStream receiveUpload(String fileName, String mimeType) {
+        try {
+            deleteFile(); //an earlier upload that was never taken
+            file = Files.createTempFile("upload-", ".tmp");
+            return new LimitedOutputStream(Files.newOutputStream(file), file, maxBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the received file, null if there is none; the receiver forgets it
+     */
+    Path takeFile() {
+        Path takenFile = file;
+        file = null;
+        return takenFile;
+    }
+
+    /**
+     * Deletes the received file if it was not taken, e.g. after a failed upload.
+     */
+    void deleteFile() throws IOException {
+        Path takenFile = takeFile();
+        if (takenFile != null) {
+            Files.deleteIfExists(takenFile);
+        }
+    }
+
+    /**
+     * Fails the upload and deletes the file as soon as more than maxBytes are written.
+     */
+    private static final class LimitedOutputStream extends FilterOutputStream {
+        private final Path file;
+        private final long maxBytes;
+        private long writtenBytes;
+
+        LimitedOutputStream(OutputStream out, Path file, long maxBytes) {
+            super(out);
+            this.file = file;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            count(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count(len);
+            out.write(b, off, len);
+        }
+
+        private void count(int length) throws IOException {
+            writtenBytes += length;
+            if (writtenBytes > maxBytes) {
+                out.close();
+                Files.deleteIfExists(file);
+                throw new IOException("The upload is larger than " + maxBytes + " bytes");
+            }
+        }
+    }
+}
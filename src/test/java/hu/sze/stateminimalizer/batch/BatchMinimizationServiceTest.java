@@ -0,0 +1,114 @@
+package hu.sze.stateminimalizer.batch;
+
+import hu.sze.stateminimalizer.dfa.BinaryDFAProcessor;
+import hu.sze.stateminimalizer.dfa.CSVToDFAProcessor;
+import hu.sze.stateminimalizer.dfa.MinimizationCache;
+import hu.sze.stateminimalizer.dfa.MinimizationMetrics;
+import hu.sze.stateminimalizer.dfa.MinimizationService;
+import hu.sze.stateminimalizer.dfa.MinimizerProperties;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchMinimizationServiceTest {
+
+    private static final String EXAMPLE_CSV = "States\\Input symbols;a;b;Final state?\n"
+            + "q0;q1;q2;\n"
+            + "q1;q3;q3;t\n"
+            + "q2;q3;q3;t\n"
+            + "q3;q3;q3;\n";
+
+    @Test
+    void everyJobIsAnsweredInItsFormat() throws Exception {
+        BatchMinimizationService service = createService(Duration.ofSeconds(30));
+        byte[] csv = EXAMPLE_CSV.getBytes(StandardCharsets.UTF_8);
+        byte[] binary = new BinaryDFAProcessor().writeBinary(readCsv(csv));
+        List<BatchJob> jobs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            jobs.add(BatchJob.of("csv-" + i, BatchJob.Format.CSV, csv));
+            jobs.add(BatchJob.of("binary-" + i, BatchJob.Format.BINARY, binary));
+        }
+        jobs.add(BatchJob.invalid("broken", "Missing content"));
+        jobs.add(BatchJob.of("garbage", BatchJob.Format.BINARY, new byte[]{1, 2, 3}));
+
+        Map<String, BatchResult> results = new HashMap<>();
+        service.minimizeAll(jobs.iterator(), result -> results.put(result.getId(), result));
+        service.shutdown();
+
+        assertEquals(jobs.size(), results.size());
+        for (int i = 0; i < 20; i++) {
+            BatchResult csvResult = results.get("csv-" + i);
+            assertEquals(BatchResult.Status.OK, csvResult.getStatus());
+            assertEquals(4, csvResult.getStateCount());
+            assertEquals(3, csvResult.getMinimalStateCount());
+            assertEquals(3, readCsv(csvResult.getContent().getBytes()).getStateCount());
+
+            BatchResult binaryResult = results.get("binary-" + i);
+            assertEquals(BatchResult.Status.OK, binaryResult.getStatus());
+            byte[] minimalBinary = Base64.getDecoder().decode(binaryResult.getContent());
+            assertTrue(BinaryDFAProcessor.isBinary(minimalBinary));
+            assertEquals(3, new BinaryDFAProcessor().readBinaryToCompactDfa(new ByteArrayInputStream(minimalBinary)).getStateCount());
+        }
+        assertEquals(BatchResult.Status.ERROR, results.get("broken").getStatus());
+        assertEquals(BatchResult.Status.ERROR, results.get("garbage").getStatus());
+    }
+
+    @Test
+    void slowJobTimesOut() throws Exception {
+        BatchMinimizationService service = createService(Duration.ofMillis(1));
+        byte[] csv = createRandomCsv(3_000, 4, new Random(7)).getBytes(StandardCharsets.UTF_8);
+
+        List<BatchResult> results = new ArrayList<>();
+        service.minimizeAll(Arrays.asList(BatchJob.of("slow", BatchJob.Format.CSV, csv)).iterator(), results::add);
+        service.shutdown();
+
+        assertEquals(1, results.size());
+        assertEquals(BatchResult.Status.TIMEOUT, results.get(0).getStatus());
+    }
+
+    private BatchMinimizationService createService(Duration timeout) {
+        MinimizerProperties properties = new MinimizerProperties();
+        properties.setBatchThreads(4);
+        properties.setBatchQueueCapacity(2);
+        properties.setBatchTimeout(timeout);
+        properties.setCacheSizeBytes(0);
+        MinimizationService minimizationService = new MinimizationService(properties, new MinimizationCache(properties),
+                MinimizationMetrics.disabled());
+        return new BatchMinimizationService(properties, minimizationService, MinimizationMetrics.disabled());
+    }
+
+    private CompactDFA readCsv(byte[] csv) throws IOException {
+        return new CSVToDFAProcessor().readCSVToCompactDfa(Channels.newChannel(new ByteArrayInputStream(csv)));
+    }
+
+    private String createRandomCsv(int stateCount, int symbolCount, Random random) {
+        StringBuilder csv = new StringBuilder("States");
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            csv.append(";s").append(symbol);
+        }
+        csv.append(";Final\n");
+        for (int state = 0; state < stateCount; state++) {
+            csv.append("q").append(state);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                csv.append(";q").append(random.nextInt(stateCount));
+            }
+            csv.append(';').append(random.nextBoolean() ? "x" : "").append('\n');
+        }
+        return csv.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package hu.sze.stateminimalizer.benchmark;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Seeded generator of the benchmark and test automata, the same seed and parameters always give the same automaton.
+ * State 0 is the initial state, state names are q0, q1, ... and the input symbols of the shapes are s0, s1, ...
+ * It lives in the test sources, which the benchmark profile adds src/jmh/java to.
+ */
+public class RandomDFAGenerator {
+
+    public enum Shape {
+        /** every transition is defined and points to a random state */
+        RANDOM,
+        /** like RANDOM but about 30% of the transitions are missing */
+        PARTIAL,
+        /** copies of a small random core, the minimal automaton has about a tenth of the states */
+        REDUNDANT,
+        /** q0 -s0-> q1 -s0-> ... with a final last state, the other symbols are loops, nothing can be merged */
+        CHAIN
+    }
+
+    private final Random random;
+
+    public RandomDFAGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public CompactDFA generate(Shape shape, int stateCount, int symbolCount) {
+        int[] transitions = new int[stateCount * symbolCount];
+        BitSet finalStates = new BitSet(stateCount);
+        switch (shape) {
+            case RANDOM:
+                fillRandom(transitions, finalStates, stateCount, symbolCount, 0);
+                break;
+            case PARTIAL:
+                fillRandom(transitions, finalStates, stateCount, symbolCount, 0.3);
+                break;
+            case REDUNDANT:
+                fillRedundant(transitions, finalStates, stateCount, symbolCount);
+                break;
+            case CHAIN:
+                fillChain(transitions, finalStates, stateCount, symbolCount);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+        String[] symbols = new String[symbolCount];
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            symbols[symbol] = "s" + symbol;
+        }
+        return createDfa(symbols, stateCount, transitions, finalStates);
+    }
+
+    /**
+     * Random partial automaton on the characters of alphabet, so matchers can run it on strings.
+     * @param missingRatio share of the missing transitions
+     * @param finalRatio share of the final states
+     * @param targetCount the transitions point to the first this many states, a small count makes many states equivalent
+     */
+    public CompactDFA generate(int stateCount, String alphabet, double missingRatio, double finalRatio, int targetCount) {
+        int symbolCount = alphabet.length();
+        int[] transitions = new int[stateCount * symbolCount];
+        BitSet finalStates = new BitSet(stateCount);
+        int targetBound = Math.min(stateCount, targetCount);
+        for (int state = 0; state < stateCount; state++) {
+            finalStates.set(state, random.nextDouble() < finalRatio);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                transitions[state * symbolCount + symbol] = random.nextDouble() < missingRatio
+                        ? CompactDFA.NO_TRANSITION : random.nextInt(targetBound);
+            }
+        }
+        String[] symbols = new String[symbolCount];
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            symbols[symbol] = String.valueOf(alphabet.charAt(symbol));
+        }
+        return createDfa(symbols, stateCount, transitions, finalStates);
+    }
+
+    public CompactDFA generate(int stateCount, String alphabet, double missingRatio, double finalRatio) {
+        return generate(stateCount, alphabet, missingRatio, finalRatio, stateCount);
+    }
+
+    private static CompactDFA createDfa(String[] symbols, int stateCount, int[] transitions, BitSet finalStates) {
+        String[] stateNames = new String[stateCount];
+        int[] stateIds = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            stateNames[state] = "q" + state;
+            stateIds[state] = state;
+        }
+        return new CompactDFA(symbols, stateNames, stateIds, transitions, finalStates, 0);
+    }
+
+    private void fillRandom(int[] transitions, BitSet finalStates, int stateCount, int symbolCount, double missingRatio) {
+        for (int state = 0; state < stateCount; state++) {
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                transitions[state * symbolCount + symbol] = random.nextDouble() < missingRatio
+                        ? CompactDFA.NO_TRANSITION : random.nextInt(stateCount);
+            }
+            if (random.nextInt(4) == 0) {
+                finalStates.set(state);
+            }
+        }
+    }
+
+    /**
+     * State q behaves like core state q % coreSize, its targets are random copies of the core targets.
+     */
+    private void fillRedundant(int[] transitions, BitSet finalStates, int stateCount, int symbolCount) {
+        int coreSize = Math.max(1, stateCount / 10);
+        int copyCount = (stateCount + coreSize - 1) / coreSize;
+        int[] coreTransitions = new int[coreSize * symbolCount];
+        BitSet coreFinalStates = new BitSet(coreSize);
+        fillRandom(coreTransitions, coreFinalStates, coreSize, symbolCount, 0);
+        for (int state = 0; state < stateCount; state++) {
+            int coreState = state % coreSize;
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int target = coreTransitions[coreState * symbolCount + symbol] + coreSize * random.nextInt(copyCount);
+                transitions[state * symbolCount + symbol] = target < stateCount ? target : coreTransitions[coreState * symbolCount + symbol];
+            }
+            finalStates.set(state, coreFinalStates.get(coreState));
+        }
+    }
+
+    private void fillChain(int[] transitions, BitSet finalStates, int stateCount, int symbolCount) {
+        for (int state = 0; state < stateCount; state++) {
+            Arrays.fill(transitions, state * symbolCount, (state + 1) * symbolCount, state);
+            if (state + 1 < stateCount) {
+                transitions[state * symbolCount] = state + 1;
+            }
+        }
+        finalStates.set(stateCount - 1);
+    }
+}
@@ -0,0 +1,173 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryDFAProcessorTest {
+
+    private static final String EXAMPLE_CSV = "States\\Input symbols;a;b;Final state?\n"
+            + "q0;q3;q1;t\n"
+            + "q1;;q2;\n"
+            + "q2;q0;;\n"
+            + "q3;q4;;\n"
+            + "q4;;q0;\n";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void exampleSurvivesFileRoundTrip() throws IOException {
+        CompactDFA csvDfa = readCsv(EXAMPLE_CSV);
+        Path file = tempDir.resolve("example.dfab");
+        new BinaryDFAProcessor().writeBinary(csvDfa, file);
+
+        assertSameDfa(csvDfa, new BinaryDFAProcessor().readBinaryToCompactDfa(file));
+    }
+
+    @Test
+    void generatedCsvSurvivesFileRoundTrip() throws IOException {
+        String csv = createRandomCsv(2_000, 5, new Random(42));
+        Path csvFile = tempDir.resolve("random.csv");
+        Files.write(csvFile, csv.getBytes(StandardCharsets.UTF_8));
+        CompactDFA csvDfa = new CSVToDFAProcessor().readCSVToCompactDfa(csvFile);
+        Path binaryFile = tempDir.resolve("random.dfab");
+        new BinaryDFAProcessor().writeBinary(csvDfa, binaryFile);
+
+        assertSameDfa(csvDfa, new BinaryDFAProcessor().readBinaryToCompactDfa(binaryFile));
+        assertSameDfa(csvDfa, readCsv(csv));
+    }
+
+    @Test
+    void inMemoryRoundTrip() throws IOException {
+        CompactDFA csvDfa = readCsv(EXAMPLE_CSV);
+        byte[] content = new BinaryDFAProcessor().writeBinary(csvDfa);
+
+        assertSameDfa(csvDfa, new BinaryDFAProcessor().readBinaryToCompactDfa(new ByteArrayInputStream(content)));
+    }
+
+    @Test
+    void everyTruncationIsRejected() throws IOException {
+        byte[] content = new BinaryDFAProcessor().writeBinary(readCsv(EXAMPLE_CSV));
+
+        for (int length = 0; length < content.length; length++) {
+            ByteBuffer truncated = ByteBuffer.wrap(Arrays.copyOf(content, length));
+            assertThrows(IOException.class, () -> new BinaryDFAProcessor().readBinaryToCompactDfa(truncated), "length " + length);
+        }
+    }
+
+    @Test
+    void hostileHeadersAreRejectedBeforeAllocating() {
+        //counts 0/0/0 followed by a final state word count of almost 2^31
+        assertRejected(header(0, 0, -1).putInt(0x7ffffff0));
+        assertRejected(header(-1, 0, -1));
+        assertRejected(header(0, -5, -1));
+        assertRejected(header(0x40000000, 0x40000000, -1));
+        //one symbol with a length past the end, with a length that overflows the position, and a missing symbol
+        assertRejected(header(0, 1, -1).putInt(1000).put((byte) 'a'));
+        assertRejected(header(0, 2, -1).putInt(0x7ffffffc).putInt(0x7ffffffc));
+        assertRejected(header(0, 1, -1).putInt(-1).putInt(0));
+        assertRejected(header(0, 1, -1).putInt(-7).putInt(0));
+    }
+
+    @Test
+    void statesOutOfRangeAreRejected() {
+        assertRejected(oneStateDfa(1, 0, 0, 1));
+        assertRejected(oneStateDfa(-2, 0, 0, 1));
+        assertRejected(oneStateDfa(0, 1, 0, 1));
+        assertRejected(oneStateDfa(0, -2, 0, 1));
+        assertRejected(oneStateDfa(0, 0, -1, 1));
+        assertRejected(oneStateDfa(0, 0, 0, 2)); //final state 1 of one state
+    }
+
+    @Test
+    void validOneStateDfaIsRead() throws IOException {
+        ByteBuffer content = oneStateDfa(0, CompactDFA.NO_TRANSITION, 7, 1);
+        content.flip();
+
+        CompactDFA dfa = new BinaryDFAProcessor().readBinaryToCompactDfa(content);
+
+        assertEquals(1, dfa.getStateCount());
+        assertEquals(7, dfa.getStateId(0));
+        assertEquals(CompactDFA.NO_TRANSITION, dfa.getTarget(0, 0));
+        assertTrue(dfa.isFinal(0));
+    }
+
+    private ByteBuffer header(int stateCount, int symbolCount, int initialState) {
+        ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        return buffer.putInt(BinaryDFAProcessor.MAGIC).putInt(BinaryDFAProcessor.VERSION)
+                .putInt(stateCount).putInt(symbolCount).putInt(initialState);
+    }
+
+    /**
+     * one state q with the symbol a
+     */
+    private ByteBuffer oneStateDfa(int initialState, int target, int stateId, long finalStateWord) {
+        return header(1, 1, initialState)
+                .putInt(1).put((byte) 'a')
+                .putInt(1).put((byte) 'q')
+                .putInt(stateId)
+                .putInt(1).putLong(finalStateWord)
+                .putInt(target);
+    }
+
+    private void assertRejected(ByteBuffer content) {
+        content.flip();
+        assertThrows(IOException.class, () -> new BinaryDFAProcessor().readBinaryToCompactDfa(content));
+    }
+
+    private CompactDFA readCsv(String csv) throws IOException {
+        return new CSVToDFAProcessor().readCSVToCompactDfa(Channels.newChannel(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private String createRandomCsv(int stateCount, int symbolCount, Random random) {
+        StringBuilder csv = new StringBuilder("States");
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            csv.append(";s").append(symbol);
+        }
+        csv.append(";Final\n");
+        for (int state = 0; state < stateCount; state++) {
+            csv.append("q").append(state);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                csv.append(';');
+                if (random.nextInt(4) != 0) {
+                    csv.append("q").append(random.nextInt(stateCount));
+                }
+            }
+            csv.append(';').append(random.nextBoolean() ? "x" : "").append('\n');
+        }
+        return csv.toString();
+    }
+
+    private void assertSameDfa(CompactDFA expected, CompactDFA actual) {
+        assertEquals(expected.getStateCount(), actual.getStateCount());
+        assertEquals(expected.getSymbolCount(), actual.getSymbolCount());
+        assertEquals(expected.getInitialState(), actual.getInitialState());
+        assertEquals(expected.getFinalStates(), actual.getFinalStates());
+        for (int symbol = 0; symbol < expected.getSymbolCount(); symbol++) {
+            assertEquals(expected.getSymbol(symbol), actual.getSymbol(symbol));
+        }
+        for (int state = 0; state < expected.getStateCount(); state++) {
+            assertEquals(expected.getStateName(state), actual.getStateName(state));
+            assertEquals(expected.getStateId(state), actual.getStateId(state));
+            for (int symbol = 0; symbol < expected.getSymbolCount(); symbol++) {
+                assertEquals(expected.getTarget(state, symbol), actual.getTarget(state, symbol));
+            }
+        }
+    }
+}
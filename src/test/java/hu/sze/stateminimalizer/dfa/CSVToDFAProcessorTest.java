@@ -0,0 +1,87 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CSVToDFAProcessorTest {
+
+    @Test
+    void forwardReferencesAreResolvedAndTargetsWithoutRowAreMissing() throws IOException {
+        CompactDFA dfa = read("States\\Input symbols;a;b;Final state?\n"
+                + "q0;q2;q1;\n"
+                + "q1;q0;nowhere;\n"
+                + "q2;q2;q0;t\n");
+
+        assertEquals(3, dfa.getStateCount());
+        assertEquals(0, dfa.getInitialState());
+        assertEquals("q2", dfa.getStateName(dfa.getTarget(0, dfa.getSymbolIndex("a"))));
+        assertEquals("q1", dfa.getStateName(dfa.getTarget(0, dfa.getSymbolIndex("b"))));
+        assertEquals(CompactDFA.NO_TRANSITION, dfa.getTarget(1, dfa.getSymbolIndex("b")));
+        assertFalse(dfa.isFinal(1));
+        assertTrue(dfa.isFinal(2));
+    }
+
+    @Test
+    void quotedCellsMayHoldTheSeparator() throws IOException {
+        CompactDFA dfa = read("\"States\\Input symbols\";\"a;b\";c;\"Final state?\"\n"
+                + "\"q;0\";\"q;0\";\"q\"\"1\";\n"
+                + "\r\n"
+                + "\"q\"\"1\";;\"q;0\";\"t\"\r\n");
+
+        assertEquals(2, dfa.getSymbolCount());
+        assertEquals("a;b", dfa.getSymbol(0));
+        assertEquals("q;0", dfa.getStateName(0));
+        assertEquals("q\"1", dfa.getStateName(1));
+        assertEquals(0, dfa.getTarget(0, 0));
+        assertEquals(1, dfa.getTarget(0, 1));
+        assertEquals(CompactDFA.NO_TRANSITION, dfa.getTarget(1, 0));
+        assertTrue(dfa.isFinal(1));
+    }
+
+    @Test
+    void mappedFileIsReadLikeTheStream() throws IOException {
+        //a chain of states over several read buffers, the last one points back to the first
+        int stateCount = 10_000;
+        StringBuilder content = new StringBuilder("States\\Input symbols;a;b;Final state?\n");
+        for (int state = 0; state < stateCount; state++) {
+            content.append("state").append(state).append(';')
+                    .append("state").append((state + 1) % stateCount).append(';')
+                    .append("state").append(state / 2).append(';')
+                    .append(state % 7 == 0 ? "t" : "").append('\n');
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        Path file = Files.createTempFile("automaton", ".csv");
+        try {
+            Files.write(file, bytes);
+
+            CompactDFA mappedDfa = new CSVToDFAProcessor().readCSVToCompactDfa(file);
+            CompactDFA streamedDfa = new CSVToDFAProcessor().readCSVToCompactDfa(Channels.newChannel(new ByteArrayInputStream(bytes)));
+
+            assertEquals(stateCount, mappedDfa.getStateCount());
+            assertEquals(streamedDfa.getStateCount(), mappedDfa.getStateCount());
+            for (int state = 0; state < stateCount; state++) {
+                assertEquals(streamedDfa.getStateName(state), mappedDfa.getStateName(state));
+                assertEquals((state + 1) % stateCount, mappedDfa.getTarget(state, 0));
+                assertEquals(state / 2, mappedDfa.getTarget(state, 1));
+                assertEquals(state % 7 == 0, mappedDfa.isFinal(state));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static CompactDFA read(String csv) throws IOException {
+        return new CSVToDFAProcessor().readCSVToCompactDfa(Channels.newChannel(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+    }
+}
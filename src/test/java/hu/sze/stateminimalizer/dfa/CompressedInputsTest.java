@@ -0,0 +1,65 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedInputsTest {
+
+    private static final String CSV = "States\\Input symbols;a;b;Final state?\n"
+            + "q0;q1;q0;\n"
+            + "q1;q1;q0;t\n";
+
+    @Test
+    void gzipFileIsReadLikeThePlainOne() throws IOException {
+        Path plainFile = Files.createTempFile("automaton", ".csv");
+        Path gzipFile = Files.createTempFile("automaton", ".csv.gz");
+        try {
+            Files.write(plainFile, CSV.getBytes());
+            try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+                outputStream.write(CSV.getBytes());
+            }
+
+            CompactDFA plainDfa = new CSVToDFAProcessor().readCSVFile(plainFile, 1024);
+            CompactDFA gzipDfa = new CSVToDFAProcessor().readCSVFile(gzipFile, 1024);
+
+            assertFalse(CompressedInputs.isCompressed(plainFile));
+            assertTrue(CompressedInputs.isCompressed(gzipFile));
+            assertEquals(2, gzipDfa.getStateCount());
+            assertTrue(new EquivalenceChecker().check(plainDfa, gzipDfa).isEquivalent());
+            assertThrows(IOException.class, () -> new CSVToDFAProcessor().readCSVFile(plainFile, 16));
+            assertThrows(IOException.class, () -> new CSVToDFAProcessor().readCSVFile(gzipFile, 16));
+        } finally {
+            Files.deleteIfExists(plainFile);
+            Files.deleteIfExists(gzipFile);
+        }
+    }
+
+    @Test
+    void decompressedSizeIsLimited() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream outputStream = new GZIPOutputStream(compressed)) {
+            outputStream.write(new byte[1 << 20]);
+        }
+
+        try (InputStream inputStream = CompressedInputs.decompress(new ByteArrayInputStream(compressed.toByteArray()), 1 << 20)) {
+            assertEquals(1 << 20, inputStream.readAllBytes().length);
+        }
+        try (InputStream inputStream = CompressedInputs.decompress(new ByteArrayInputStream(compressed.toByteArray()), 1000)) {
+            assertThrows(IOException.class, inputStream::readAllBytes);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package hu.sze.stateminimalizer.dfa;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvRowReaderTest {
+
+    @Test
+    void quotedFieldsKeepSeparatorsLineBreaksAndQuotes() throws IOException {
+        String content = "a;\"b;c\";\"d\r\ne\"\r\n"
+                + "\"say \"\"hi\"\"\";;\n"
+                + "\n"
+                + "last";
+
+        List<List<String>> rows = readAll(channelOf(content.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("a", "b;c", "d\r\ne"),
+                Arrays.asList("say \"hi\"", "", ""),
+                Arrays.asList(""),
+                Arrays.asList("last")), rows);
+        assertEquals(rows, readAll(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void rowsAcrossTheBufferBoundaryAreReadWhole() throws IOException {
+        StringBuilder content = new StringBuilder();
+        List<List<String>> expectedRows = new ArrayList<>();
+        for (int i = 0; content.length() < 3 * (1 << 16); i++) {
+            //multibyte characters and quoted line breaks also fall on the boundaries
+            List<String> row = Arrays.asList("q" + i, "ő" + i, "x;\n" + i);
+            expectedRows.add(row);
+            content.append(row.get(0)).append(';').append(row.get(1)).append(";\"").append(row.get(2)).append("\"\n");
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(expectedRows, readAll(channelOf(bytes)));
+        assertEquals(expectedRows, readAll(new TrickleChannel(bytes, 1000)));
+        assertEquals(expectedRows, readAll(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    void emptyInputHasNoRows() throws IOException {
+        CsvRowReader reader = new CsvRowReader(channelOf(new byte[0]), ';', '"');
+        List<String> row = new ArrayList<>();
+
+        assertFalse(reader.readRow(row));
+        assertTrue(row.isEmpty());
+    }
+
+    private static ReadableByteChannel channelOf(byte[] bytes) {
+        return Channels.newChannel(new ByteArrayInputStream(bytes));
+    }
+
+    private static List<List<String>> readAll(ReadableByteChannel channel) throws IOException {
+        return readAll(new CsvRowReader(channel, ';', '"'));
+    }
+
+    private static List<List<String>> readAll(ByteBuffer content) throws IOException {
+        return readAll(new CsvRowReader(content, ';', '"'));
+    }
+
+    private static List<List<String>> readAll(CsvRowReader reader) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        while (reader.readRow(row)) {
+            rows.add(new ArrayList<>(row));
+        }
+        return rows;
+    }
+
+    /**
+     * Returns at most a few bytes per read and sometimes none, like a slow socket.
+     */
+    private static final class TrickleChannel implements ReadableByteChannel {
+
+        private final byte[] bytes;
+        private final int chunkSize;
+        private int position;
+        private int readCount;
+
+        TrickleChannel(byte[] bytes, int chunkSize) {
+            this.bytes = bytes;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(ByteBuffer destination) {
+            if (position == bytes.length) {
+                return -1;
+            }
+            if (readCount++ % 3 == 2) {
+                return 0;
+            }
+            int length = Math.min(Math.min(chunkSize, destination.remaining()), bytes.length - position);
+            destination.put(bytes, position, length);
+            position += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import hu.sze.stateminimalizer.dfa.model.State;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static hu.sze.stateminimalizer.dfa.TestAutomata.createCycle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EquivalenceCheckerTest {
+
+    @Test
+    void longerCycleWithTheSamePeriodIsEquivalent() {
+        EquivalenceChecker.Result result = new EquivalenceChecker().check(createCycle(1_000, 4), createCycle(8, 4));
+
+        assertTrue(result.isEquivalent());
+        assertNull(result.getCounterexample());
+    }
+
+    @Test
+    void differentPeriodsGiveACounterexample() {
+        DFA first = createCycle(6, 3);
+        DFA second = createCycle(6, 2);
+        EquivalenceChecker.Result result = new EquivalenceChecker().check(first, second);
+
+        assertFalse(result.isEquivalent());
+        assertEquals("[a]", result.getCounterexample().toString());
+        assertFalse(result.isAcceptedByFirst());
+        assertEquals(result.isAcceptedByFirst(), accepts(first, result.getCounterexample()));
+        assertEquals(!result.isAcceptedByFirst(), accepts(second, result.getCounterexample()));
+    }
+
+    @Test
+    void missingTransitionRejectsLikeADeadState() {
+        DFA complete = createCycle(4, 4);
+        State dead = new State(4);
+        dead.setName("dead");
+        dead.getTransitions().put("a", dead);
+        dead.getTransitions().put("b", dead);
+        complete.getStates().add(dead);
+        complete.getStates().get(3).getTransitions().put("b", dead);
+        DFA partial = createCycle(4, 4);
+        partial.getStates().get(3).getTransitions().remove("b");
+
+        assertTrue(new EquivalenceChecker().check(complete, partial).isEquivalent());
+
+        partial.getInputSymbols().add("c");
+        partial.getStates().get(3).getTransitions().put("c", partial.getStates().get(3));
+        EquivalenceChecker.Result result = new EquivalenceChecker().check(complete, partial);
+        assertEquals("[a, a, a, c]", result.getCounterexample().toString());
+        assertFalse(result.isAcceptedByFirst());
+    }
+
+    private boolean accepts(DFA dfa, List<String> word) {
+        State state = dfa.getInitialState();
+        for (String symbol : word) {
+            state = state.getTransitions().get(symbol);
+            if (state == null) {
+                return false;
+            }
+        }
+        return dfa.getFinalStateIds().contains(state.getId());
+    }
+}
@@ -0,0 +1,106 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class HopcroftMinimizerTest {
+
+    private static final int N = CompactDFA.NO_TRANSITION;
+
+    @Test
+    void statesWithDifferentEventSetsAreSeparated() {
+        //q1 and q2 only differ in the b-transition of q2 into q4, which accepts nothing like a missing transition
+        int[] transitions = {
+                1, 2,
+                3, N,
+                3, 4,
+                N, N,
+                N, N};
+        CompactDFA dfa = createDfa(transitions, 3);
+
+        int[] blocks = new HopcroftMinimizer().computeBlocks(dfa);
+
+        assertNotEquals(blocks[1], blocks[2]);
+        assertNotEquals(blocks[3], blocks[4]);
+        assertEquals(5, countBlocks(blocks));
+    }
+
+    @Test
+    void equivalentStatesWithTheSameEventSetsAreMerged() {
+        //q1 and q2 lead to the final q3 on a, q3 and q4 loop on b
+        int[] transitions = {
+                1, 2,
+                3, N,
+                4, N,
+                N, 3,
+                N, 4};
+        BitSet finalStates = new BitSet();
+        finalStates.set(3, 5);
+        CompactDFA dfa = new CompactDFA(new String[]{"a", "b"}, stateNames(5), stateIds(5), transitions, finalStates, 0);
+
+        int[] blocks = new HopcroftMinimizer().computeBlocks(dfa);
+
+        assertEquals(blocks[1], blocks[2]);
+        assertEquals(blocks[3], blocks[4]);
+        assertEquals(3, countBlocks(blocks));
+    }
+
+    @Test
+    void sameGroupsAsTableFillingOnRandomPartialAutomata() {
+        Random random = new Random(1);
+        for (int test = 0; test < 300; test++) {
+            int stateCount = 1 + random.nextInt(40);
+            int[] transitions = new int[stateCount * 2];
+            for (int i = 0; i < transitions.length; i++) {
+                transitions[i] = random.nextInt(4) == 0 ? N : random.nextInt(stateCount);
+            }
+            BitSet finalStates = new BitSet();
+            for (int state = 0; state < stateCount; state++) {
+                finalStates.set(state, random.nextInt(3) == 0);
+            }
+            CompactDFA dfa = new CompactDFA(new String[]{"a", "b"}, stateNames(stateCount), stateIds(stateCount),
+                    transitions, finalStates, 0);
+
+            Minimizer tableFilling = new Minimizer(Minimizer.Engine.TABLE_FILLING);
+            tableFilling.minimize(dfa.toDFA());
+            Minimizer hopcroft = new Minimizer(Minimizer.Engine.HOPCROFT);
+            hopcroft.minimize(dfa.toDFA());
+
+            assertEquals(tableFilling.getMinimalizedGroups().toString(), hopcroft.getMinimalizedGroups().toString(), "test " + test);
+        }
+    }
+
+    private CompactDFA createDfa(int[] transitions, int finalState) {
+        int stateCount = transitions.length / 2;
+        BitSet finalStates = new BitSet();
+        finalStates.set(finalState);
+        return new CompactDFA(new String[]{"a", "b"}, stateNames(stateCount), stateIds(stateCount), transitions, finalStates, 0);
+    }
+
+    private String[] stateNames(int stateCount) {
+        String[] stateNames = new String[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            stateNames[state] = "q" + state;
+        }
+        return stateNames;
+    }
+
+    private int[] stateIds(int stateCount) {
+        int[] stateIds = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            stateIds[state] = state;
+        }
+        return stateIds;
+    }
+
+    private int countBlocks(int[] blocks) {
+        return (int) Arrays.stream(blocks).distinct().count();
+    }
+}
@@ -0,0 +1,112 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalMinimizerTest {
+
+    @Test
+    void toggledLeafLeavesAndRejoinsItsBlock() {
+        IncrementalMinimizer minimizer = new IncrementalMinimizer(createTree(40));
+        assertTrue(minimizer.isEquivalent(39, 38));
+
+        minimizer.apply(Collections.singletonList(DfaEdit.toggleFinal(39)));
+        assertFalse(minimizer.isEquivalent(39, 38));
+        assertFalse(minimizer.isLastBatchRefined());
+
+        minimizer.apply(Collections.singletonList(DfaEdit.toggleFinal(39)));
+        assertTrue(minimizer.isEquivalent(39, 38));
+    }
+
+    @Test
+    void cycleIsRefinedLikeAFullRun() {
+        IncrementalMinimizer minimizer = new IncrementalMinimizer(createTree(40));
+        minimizer.apply(Arrays.asList(DfaEdit.addTransition(39, "a", 0), DfaEdit.addTransition(38, "a", 0)));
+
+        assertTrue(minimizer.isLastBatchRefined());
+        int[] blocks = new PartialDfaMinimizer().computeBlocks(minimizer.toCompactDfa());
+        for (int stateA = 0; stateA < minimizer.getStateCount(); stateA++) {
+            for (int stateB = 0; stateB < stateA; stateB++) {
+                assertEquals(blocks[stateA] == blocks[stateB], minimizer.isEquivalent(stateA, stateB));
+            }
+        }
+    }
+
+    @Test
+    void removedTreeEdgeUnreachesTheSubtree() {
+        IncrementalMinimizer minimizer = new IncrementalMinimizer(createTree(40));
+        minimizer.apply(Arrays.asList(DfaEdit.removeTransition(0, "a"), DfaEdit.addState("new"),
+                DfaEdit.addTransition(0, "a", 40)));
+
+        assertFalse(minimizer.isReachable(1));
+        assertFalse(minimizer.isReachable(3));
+        assertTrue(minimizer.isReachable(40));
+        assertEquals(-1, minimizer.getBlock(3));
+    }
+
+    @Test
+    void invalidEditLeavesTheBatchUnapplied() {
+        IncrementalMinimizer minimizer = new IncrementalMinimizer(createTree(40));
+        CompactDFA before = minimizer.toCompactDfa();
+        int[] blocksBefore = new int[minimizer.getStateCount()];
+        for (int state = 0; state < blocksBefore.length; state++) {
+            blocksBefore[state] = minimizer.getBlock(state);
+        }
+
+        //the first edits are valid, the target of the third one is past the added state
+        assertThrows(IllegalArgumentException.class, () -> minimizer.apply(Arrays.asList(DfaEdit.toggleFinal(39),
+                DfaEdit.addState("new"), DfaEdit.addTransition(0, "a", 41), DfaEdit.removeTransition(1, "a"))));
+        assertThrows(IllegalArgumentException.class, () -> minimizer.apply(Arrays.asList(DfaEdit.removeTransition(0, "a"),
+                DfaEdit.addTransition(0, "c", 1))));
+
+        CompactDFA after = minimizer.toCompactDfa();
+        assertEquals(before.getStateCount(), after.getStateCount());
+        assertEquals(before.getFinalStates(), after.getFinalStates());
+        for (int state = 0; state < before.getStateCount(); state++) {
+            assertEquals(blocksBefore[state], minimizer.getBlock(state));
+            for (int symbol = 0; symbol < before.getSymbolCount(); symbol++) {
+                assertEquals(before.getTarget(state, symbol), after.getTarget(state, symbol));
+            }
+        }
+        assertTrue(minimizer.isReachable(1));
+    }
+
+    @Test
+    void removedBlockIdsAreReused() {
+        IncrementalMinimizer minimizer = new IncrementalMinimizer(createTree(40));
+        for (int round = 0; round < 1000; round++) {
+            minimizer.apply(Collections.singletonList(DfaEdit.toggleFinal(round % 40)));
+        }
+
+        for (int state = 0; state < minimizer.getStateCount(); state++) {
+            assertTrue(minimizer.getBlock(state) < 2 * minimizer.getStateCount(), "block of " + state);
+        }
+    }
+
+    /**
+     * state i has the children 2i+1 (a) and 2i+2 (b), the leaves are final
+     */
+    private CompactDFA createTree(int stateCount) {
+        int[] transitions = new int[stateCount * 2];
+        String[] stateNames = new String[stateCount];
+        int[] stateIds = new int[stateCount];
+        BitSet finalStates = new BitSet(stateCount);
+        for (int state = 0; state < stateCount; state++) {
+            stateNames[state] = "q" + state;
+            stateIds[state] = state;
+            transitions[state * 2] = 2 * state + 1 < stateCount ? 2 * state + 1 : CompactDFA.NO_TRANSITION;
+            transitions[state * 2 + 1] = 2 * state + 2 < stateCount ? 2 * state + 2 : CompactDFA.NO_TRANSITION;
+            finalStates.set(state, 2 * state + 1 >= stateCount);
+        }
+        return new CompactDFA(new String[]{"a", "b"}, stateNames, stateIds, transitions, finalStates, 0);
+    }
+}
@@ -0,0 +1,46 @@
+package hu.sze.stateminimalizer.dfa;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntArrayPoolTest {
+
+    @Test
+    void lengthsAreRoundedAndArraysReused() {
+        IntArrayPool pool = new IntArrayPool(1 << 10);
+        int[] array = pool.borrow(100);
+        assertEquals(128, array.length);
+
+        pool.release(array);
+        assertEquals(128, pool.retainedInts());
+        assertSame(array, pool.borrow(65));
+        assertEquals(0, pool.retainedInts());
+        assertTrue(pool.borrowZeroed(3).length >= 3);
+    }
+
+    @Test
+    void retainedIntsAreCappedForAllThreads() throws Exception {
+        IntArrayPool pool = new IntArrayPool(1 << 10);
+        int[] first = new int[512];
+        int[] second = new int[512];
+        int[] third = new int[512];
+        pool.release(first);
+        CompletableFuture.runAsync(() -> {
+            pool.release(second);
+            pool.release(third);
+        }).get();
+
+        assertEquals(1 << 10, pool.retainedInts());
+        int[] borrowed = CompletableFuture.supplyAsync(() -> pool.borrow(512)).get();
+        assertTrue(borrowed == first || borrowed == second);
+        assertNotSame(third, pool.borrow(512));
+        pool.release(new int[IntArrayPool.MAX_POOLED_LENGTH * 2]);
+        assertEquals(0, pool.retainedInts());
+    }
+}
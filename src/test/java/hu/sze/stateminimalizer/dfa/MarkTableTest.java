@@ -0,0 +1,53 @@
+package hu.sze.stateminimalizer.dfa;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarkTableTest {
+
+    @Test
+    void pairsAreUnorderedAndMarkedOnce() {
+        MarkTable table = new MarkTable(100);
+
+        assertTrue(table.mark(3, 70));
+        assertFalse(table.mark(70, 3));
+        assertTrue(table.isMarked(3, 70));
+        assertTrue(table.isMarked(70, 3));
+        assertFalse(table.isMarked(3, 71));
+        assertFalse(table.mark(5, 5));
+        assertFalse(table.isMarked(5, 5));
+        assertEquals(1, table.markedCount());
+    }
+
+    @Test
+    void everyPairHasItsOwnBit() {
+        int size = 130;
+        MarkTable table = new MarkTable(size);
+        for (int stateA = 1; stateA < size; stateA++) {
+            for (int stateB = 0; stateB < stateA; stateB += 3) {
+                assertTrue(table.mark(stateA, stateB));
+            }
+        }
+
+        long markedCount = 0;
+        for (int stateA = 1; stateA < size; stateA++) {
+            for (int stateB = 0; stateB < stateA; stateB++) {
+                assertEquals(stateB % 3 == 0, table.isMarked(stateB, stateA));
+                markedCount += stateB % 3 == 0 ? 1 : 0;
+            }
+        }
+        assertEquals(markedCount, table.markedCount());
+        assertEquals(MarkTable.pairCount(size) - 1, MarkTable.pairIndex(size - 1, size - 2));
+    }
+
+    @Test
+    void tooManyStatesAreRejectedBeforeAllocating() {
+        assertEquals(524_288L * 524_287 / 2, MarkTable.pairCount(524_288));
+        assertThrows(IllegalArgumentException.class, () -> new MarkTable(1 << 20));
+        assertThrows(IllegalArgumentException.class, () -> new MarkTable(3_000_000));
+    }
+}
@@ -0,0 +1,106 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.benchmark.RandomDFAGenerator;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatcherCompilerTest {
+
+    @Test
+    void keywordChainIsCompiled() {
+        String keyword = "hello";
+        String[] symbols = {"h", "e", "l", "o"};
+        String[] stateNames = new String[keyword.length() + 1];
+        int[] stateIds = new int[stateNames.length];
+        for (int state = 0; state < stateNames.length; state++) {
+            stateNames[state] = "q" + state;
+            stateIds[state] = state;
+        }
+        int[] transitions = new int[stateNames.length * symbols.length];
+        Arrays.fill(transitions, CompactDFA.NO_TRANSITION);
+        for (int state = 0; state < keyword.length(); state++) {
+            transitions[state * symbols.length + Arrays.asList(symbols).indexOf(String.valueOf(keyword.charAt(state)))] = state + 1;
+        }
+        BitSet finalStates = new BitSet();
+        finalStates.set(keyword.length());
+        DfaMatcher matcher = new MatcherCompiler(new MinimizerProperties()).compile(new CompactDFA(symbols, stateNames, stateIds, transitions, finalStates, 0));
+
+        assertTrue(MatcherCompiler.isCompiled(matcher));
+        assertTrue(matcher.matches("hello"));
+        assertFalse(matcher.matches("hell"));
+        assertFalse(matcher.matches("helloo"));
+        assertFalse(matcher.matches("hallo"));
+        assertFalse(matcher.matches("hellő"));
+        assertTrue(matcher.matches("-hello-".getBytes(StandardCharsets.US_ASCII), 1, 5));
+    }
+
+    @Test
+    void compiledMatcherMatchesLikeTheTable() {
+        Random random = new Random(3);
+        RandomDFAGenerator generator = new RandomDFAGenerator(3);
+        MatcherCompiler compiler = new MatcherCompiler(new MinimizerProperties());
+        for (int test = 0; test < 100; test++) {
+            CompactDFA dfa = generator.generate(1 + random.nextInt(30), "abcdef".substring(0, 1 + random.nextInt(6)), 0.25, 1 / 3.0);
+            DfaMatcher compiledMatcher = compiler.compile(dfa);
+            TableMatcher tableMatcher = TableMatcher.of(dfa);
+            assertTrue(MatcherCompiler.isCompiled(compiledMatcher));
+            ByteBuffer directBuffer = ByteBuffer.allocateDirect(16);
+            for (int word = 0; word < 100; word++) {
+                byte[] input = new byte[random.nextInt(16)];
+                for (int i = 0; i < input.length; i++) {
+                    input[i] = (byte) ('a' + random.nextInt(dfa.getSymbolCount() + 1));
+                }
+                boolean expected = tableMatcher.matches(input);
+                directBuffer.clear();
+                directBuffer.put(input).flip();
+                assertEquals(expected, compiledMatcher.matches(input));
+                assertEquals(expected, compiledMatcher.matches(new String(input, StandardCharsets.US_ASCII)));
+                assertEquals(expected, compiledMatcher.matches(directBuffer));
+            }
+        }
+    }
+
+    @Test
+    void classLoaderPathGivesEveryMatcherItsOwnLoader() {
+        Random random = new Random(7);
+        MatcherCompiler compiler = new MatcherCompiler(512, false);
+        CompactDFA dfa = new RandomDFAGenerator(7).generate(20, "abc", 0.25, 1 / 3.0);
+        DfaMatcher firstMatcher = compiler.compile(dfa);
+        DfaMatcher secondMatcher = compiler.compile(dfa);
+        TableMatcher tableMatcher = TableMatcher.of(dfa);
+
+        assertTrue(MatcherCompiler.isCompiled(firstMatcher));
+        assertNotSame(MatcherCompiler.class.getClassLoader(), firstMatcher.getClass().getClassLoader());
+        assertNotSame(firstMatcher.getClass().getClassLoader(), secondMatcher.getClass().getClassLoader());
+        for (int word = 0; word < 100; word++) {
+            byte[] input = new byte[random.nextInt(16)];
+            for (int i = 0; i < input.length; i++) {
+                input[i] = (byte) ('a' + random.nextInt(4));
+            }
+            assertEquals(tableMatcher.matches(input), firstMatcher.matches(input));
+            assertEquals(tableMatcher.matches(input), secondMatcher.matches(ByteBuffer.wrap(input)));
+        }
+    }
+
+    @Test
+    void largeAutomatonFallsBackToTheTable() {
+        CompactDFA dfa = new RandomDFAGenerator(5).generate(50, "ab", 0.25, 1 / 3.0);
+
+        assertTrue(new MatcherCompiler(49).compile(dfa) instanceof TableMatcher);
+        assertTrue(MatcherCompiler.isCompiled(new MatcherCompiler(50).compile(dfa)));
+        MinimizerProperties properties = new MinimizerProperties();
+        properties.setCompiledMatcherMaxStates(49);
+        assertTrue(new MatcherCompiler(properties).compile(dfa) instanceof TableMatcher);
+    }
+}
@@ -0,0 +1,78 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MinimizationCacheTest {
+
+    @Test
+    void leastRecentlyUsedEntryIsEvictedOverTheBudget() {
+        long entrySize = createEntry(16).getSizeInBytes();
+        MinimizationCache cache = new MinimizationCache(3 * entrySize);
+        cache.put("a", createEntry(16));
+        cache.put("b", createEntry(16));
+        cache.put("c", createEntry(16));
+        assertNotNull(cache.get("a"));
+        cache.put("d", createEntry(16));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+        MinimizationCache.Statistics statistics = cache.getStatistics();
+        assertEquals(4, statistics.getHitCount());
+        assertEquals(1, statistics.getMissCount());
+        assertEquals(1, statistics.getEvictionCount());
+        assertEquals(3, statistics.getEntryCount());
+        assertEquals(3 * entrySize, statistics.getSizeInBytes());
+    }
+
+    @Test
+    void entryLargerThanTheBudgetIsNotStored() {
+        MinimizationCache cache = new MinimizationCache(createEntry(16).getSizeInBytes());
+        cache.put("small", createEntry(16));
+        cache.put("large", createEntry(17));
+
+        assertNull(cache.get("large"));
+        assertNotNull(cache.get("small"));
+        assertEquals(0, cache.getStatistics().getEvictionCount());
+        assertEquals(1, cache.getStatistics().getEntryCount());
+    }
+
+    @Test
+    void renamedAndReorderedAutomatonHasTheSameCanonicalForm() {
+        //q0 -a-> q1 -a-> q2 -a-> q0, b loops, q2 is final
+        CompactDFA dfa = new CompactDFA(new String[]{"a", "b"}, new String[]{"q0", "q1", "q2"}, new int[]{0, 1, 2},
+                new int[]{1, 0, 2, 1, 0, 2}, finalStates(2), 0);
+        //the same with the rows in the order p2, p0, p1 and the columns swapped
+        CompactDFA reordered = new CompactDFA(new String[]{"b", "a"}, new String[]{"p2", "p0", "p1"}, new int[]{0, 1, 2},
+                new int[]{0, 1, 1, 2, 2, 0}, finalStates(0), 1);
+        CompactDFA otherFinalState = new CompactDFA(new String[]{"a", "b"}, new String[]{"q0", "q1", "q2"}, new int[]{0, 1, 2},
+                new int[]{1, 0, 2, 1, 0, 2}, finalStates(1), 0);
+
+        CanonicalForm canonicalForm = CanonicalForm.of(dfa);
+        CanonicalForm reorderedCanonicalForm = CanonicalForm.of(reordered);
+
+        assertEquals(canonicalForm.getHash(), reorderedCanonicalForm.getHash());
+        assertEquals(canonicalForm.getCanonicalIndex(2), reorderedCanonicalForm.getCanonicalIndex(0));
+        assertEquals(canonicalForm.getCanonicalIndex(0), reorderedCanonicalForm.getCanonicalIndex(1));
+        assertNotEquals(canonicalForm.getHash(), CanonicalForm.of(otherFinalState).getHash());
+    }
+
+    private CachedMinimization createEntry(int stateCount) {
+        return new CachedMinimization(new int[stateCount], null, null, null);
+    }
+
+    private BitSet finalStates(int state) {
+        BitSet finalStates = new BitSet();
+        finalStates.set(state);
+        return finalStates;
+    }
+}
@@ -0,0 +1,78 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.benchmark.RandomDFAGenerator;
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import hu.sze.stateminimalizer.dfa.model.State;
+import hu.sze.stateminimalizer.dfa.model.StateGroup;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinimizationServiceTest {
+
+    @Test
+    void concurrentCallsGiveTheSameBlocksAsSingleRuns() throws Exception {
+        Random random = new Random(25);
+        RandomDFAGenerator generator = new RandomDFAGenerator(25);
+        List<DFA> dfas = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            dfas.add(createRandomDfa(generator, 1 + random.nextInt(80)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (Minimizer.Engine engine : Minimizer.Engine.values()) {
+                MinimizerProperties properties = new MinimizerProperties();
+                properties.setEngine(engine);
+                MinimizationService service = new MinimizationService(properties, null, MinimizationMetrics.disabled());
+                List<Future<MinimizationResult>> results = new ArrayList<>();
+                for (DFA dfa : dfas) {
+                    results.add(executor.submit(() -> service.minimize(dfa)));
+                }
+
+                for (int i = 0; i < dfas.size(); i++) {
+                    Minimizer minimizer = new Minimizer(engine);
+                    minimizer.minimize(dfas.get(i));
+                    MinimizationResult result = results.get(i).get();
+                    assertEquals(minimizer.getMinimalizedGroups().size(), result.getMinimalizedGroups().size(), engine + " " + i);
+                    assertEquals(result.getMinimalizedGroups().size(), result.getMinimalDfa().getStates().size());
+                    for (State state : result.getReducedDfa().getStates()) {
+                        assertEquals(minimizer.getBlock(state), result.getBlock(state));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void minimizerCanBeReusedAndKeepsEarlierResults() {
+        Minimizer minimizer = new Minimizer(Minimizer.Engine.HOPCROFT);
+        minimizer.minimize(createRandomDfa(new RandomDFAGenerator(1), 50));
+        MinimizationResult firstResult = minimizer.getResult();
+        int firstGroupCount = firstResult.getMinimalizedGroups().size();
+
+        DFA secondDfa = createRandomDfa(new RandomDFAGenerator(2), 20);
+        minimizer.minimize(secondDfa);
+        Minimizer freshMinimizer = new Minimizer(Minimizer.Engine.HOPCROFT);
+        freshMinimizer.minimize(secondDfa);
+
+        assertEquals(freshMinimizer.getMinimalizedGroups().size(), minimizer.getMinimalizedGroups().size());
+        assertEquals(firstGroupCount, firstResult.getMinimalizedGroups().size());
+        assertTrue(firstResult.getReducedDfa() != minimizer.getReducedDfa());
+        assertThrows(UnsupportedOperationException.class, () -> firstResult.getMinimalizedGroups().add(new StateGroup(0)));
+    }
+
+    private DFA createRandomDfa(RandomDFAGenerator generator, int stateCount) {
+        return generator.generate(stateCount, "abc", 1 / 6.0, 1 / 3.0).toDFA();
+    }
+}
@@ -0,0 +1,193 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import hu.sze.stateminimalizer.dfa.model.State;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static hu.sze.stateminimalizer.dfa.TestAutomata.createCycle;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinimizerTest {
+
+    private static final int STATE_COUNT = 10_000;
+
+    @Test
+    void cycleWithOneFinalStateIsAlreadyMinimal() {
+        DFA dfa = createCycle(STATE_COUNT, STATE_COUNT);
+        Minimizer minimizer = new Minimizer();
+        minimizer.minimize(dfa);
+        DFA reducedDfa = minimizer.getReducedDfa();
+
+        assertEquals(STATE_COUNT, minimizer.getMinimalizedGroups().size());
+        assertTrue(minimizer.isMarked(reducedDfa.getStates().get(0), reducedDfa.getStates().get(1)));
+        assertFalse(minimizer.isMarkedAsRed(reducedDfa.getStates().get(0), reducedDfa.getStates().get(1)));
+    }
+
+    @Test
+    void cycleWithPeriodicFinalStatesCollapses() {
+        DFA dfa = createCycle(STATE_COUNT, 2);
+        Minimizer minimizer = new Minimizer();
+        minimizer.minimize(dfa);
+        DFA reducedDfa = minimizer.getReducedDfa();
+
+        assertEquals(2, minimizer.getMinimalizedGroups().size());
+        assertFalse(minimizer.isMarked(reducedDfa.getStates().get(0), reducedDfa.getStates().get(STATE_COUNT - 2)));
+        assertTrue(minimizer.isMarked(reducedDfa.getStates().get(0), reducedDfa.getStates().get(STATE_COUNT - 1)));
+    }
+
+    @Test
+    void quotientHasOneStatePerGroup() {
+        Minimizer minimizer = new Minimizer();
+        DFA minimalDfa = minimizer.minimize(createCycle(6, 2));
+
+        assertEquals(2, minimalDfa.getStates().size());
+        assertEquals("{q0,q2,q4}", minimalDfa.getInitialState().getName());
+        State finalState = minimalDfa.getFinalStates().get(0);
+        assertEquals("{q1,q3,q5}", finalState.getName());
+        assertEquals(finalState, minimalDfa.getInitialState().getTransitions().get("a"));
+        assertEquals(minimalDfa.getInitialState(), finalState.getTransitions().get("a"));
+        assertEquals(1, minimizer.getBlock(minimizer.getReducedDfa().getStates().get(5)));
+    }
+
+    @Test
+    void deadStatesAreRemovedOnlyWhenEnabled() {
+        DFA dfa = createCycle(6, 2);
+        State dead = new State(6);
+        dead.setName("dead");
+        dfa.getStates().add(dead);
+        State unreachable = new State(7);
+        unreachable.setName("unreachable");
+        unreachable.getTransitions().put("a", dfa.getStates().get(0));
+        dfa.getStates().add(unreachable);
+        dfa.getStates().get(0).getTransitions().put("b", dead);
+
+        Minimizer minimizer = new Minimizer();
+        minimizer.minimize(dfa);
+        assertEquals(1, minimizer.getRemovedUnreachableCount());
+        assertEquals(7, minimizer.getReducedDfa().getStates().size());
+
+        MinimizerProperties properties = new MinimizerProperties();
+        properties.setPruneDeadStates(true);
+        Minimizer pruningMinimizer = new Minimizer(properties);
+        pruningMinimizer.minimize(dfa);
+        assertEquals(1, pruningMinimizer.getRemovedDeadCount());
+        assertEquals(6, pruningMinimizer.getReducedDfa().getStates().size());
+        assertFalse(pruningMinimizer.getReducedDfa().getStates().get(0).getTransitions().containsKey("b"));
+    }
+
+    @Test
+    void phasesAreRecordedInTheRegistry() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Minimizer minimizer = new Minimizer(new MinimizerProperties(), null, new MinimizationMetrics(registry));
+        minimizer.minimize(createCycle(6, 2));
+
+        assertEquals(1, registry.get("minimizer.phase").tag("phase", "propagation").timer().count());
+        assertEquals(1, registry.get("minimizer.phase").tag("phase", "quotient").timer().count());
+        assertEquals(15.0, registry.get("minimizer.pairs").tag("kind", "total").counter().count());
+    }
+
+    @Test
+    void progressIsReportedPerPhase() {
+        List<MinimizationMetrics.Phase> phases = new ArrayList<>();
+        List<Long> processedPairs = new ArrayList<>();
+        Minimizer minimizer = new Minimizer();
+        minimizer.setProgressListener((phase, processed, total) -> {
+            if (phases.isEmpty() || phases.get(phases.size() - 1) != phase) {
+                phases.add(phase);
+            }
+            if (phase == MinimizationMetrics.Phase.PROPAGATION) {
+                processedPairs.add(processed);
+                assertEquals(MarkTable.pairCount(1_000), total);
+            }
+        });
+        minimizer.minimize(createCycle(1_000, 2));
+
+        assertEquals("[PRUNE, RED_MARKING, EVENT_SET_SPLITTING, PROPAGATION, GROUPING, QUOTIENT]", phases.toString());
+        assertEquals(MarkTable.pairCount(1_000), (long) processedPairs.get(processedPairs.size() - 1));
+        assertTrue(processedPairs.size() <= 102);
+    }
+
+    @Test
+    void interruptedMinimizationIsCancelled() {
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, () -> new Minimizer(Minimizer.Engine.HOPCROFT).minimize(createCycle(100, 2)));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void tableFillingAndHopcroftGiveTheSameGroups() {
+        DFA dfa = createCycle(STATE_COUNT, 3);
+        Minimizer tableFilling = new Minimizer(Minimizer.Engine.TABLE_FILLING);
+        tableFilling.minimize(dfa);
+        Minimizer hopcroft = new Minimizer(Minimizer.Engine.HOPCROFT);
+        hopcroft.minimize(dfa);
+
+        assertEquals(groupsToString(tableFilling), groupsToString(hopcroft));
+    }
+
+    @Test
+    void partialEngineSplitsByEventSets() {
+        DFA dfa = createCycle(STATE_COUNT - 1, 3);
+        for (int i = 1; i < STATE_COUNT - 1; i += 3) { //q1, q4, ... lose their b-loop
+            dfa.getStates().get(i).getTransitions().remove("b");
+        }
+        Minimizer hopcroft = new Minimizer(Minimizer.Engine.HOPCROFT);
+        hopcroft.minimize(dfa);
+        Minimizer partial = new Minimizer(Minimizer.Engine.PARTIAL);
+        partial.minimize(dfa);
+        DFA reducedDfa = partial.getReducedDfa();
+
+        assertEquals(3, partial.getMinimalizedGroups().size());
+        assertEquals(groupsToString(hopcroft), groupsToString(partial));
+        assertTrue(partial.isMarkedAsBlue(reducedDfa.getStates().get(0), reducedDfa.getStates().get(1)));
+    }
+
+    @Test
+    void partialEngineDoesNotPayForUnusedSymbols() {
+        DFA dfa = createCycle(STATE_COUNT - 1, 3);
+        for (int i = 0; i < STATE_COUNT; i++) { //a dense table would have 10^8 cells
+            dfa.getInputSymbols().add("x" + i);
+        }
+        Minimizer partial = new Minimizer(Minimizer.Engine.PARTIAL);
+        DFA quotientDfa = partial.minimize(dfa);
+
+        assertEquals(3, quotientDfa.getStates().size());
+        quotientDfa.getStates().forEach(state -> assertEquals(2, state.getTransitions().size()));
+        assertEquals(1, quotientDfa.getFinalStateIds().size());
+    }
+
+    @Test
+    void renamedAutomatonIsServedFromTheCache() {
+        MinimizationCache cache = new MinimizationCache(1 << 20);
+        Minimizer first = new Minimizer(new MinimizerProperties(), cache);
+        first.minimize(createCycle(12, 3));
+        DFA renamed = createCycle(12, 3);
+        renamed.getStates().forEach(state -> state.setName("p" + state.getId()));
+        Minimizer second = new Minimizer(new MinimizerProperties(), cache);
+        second.minimize(renamed);
+        DFA reducedDfa = second.getReducedDfa();
+
+        assertEquals(1, cache.getStatistics().getHitCount());
+        assertEquals(3, second.getMinimalizedGroups().size());
+        assertTrue(second.isMarkedAsRed(reducedDfa.getStates().get(0), reducedDfa.getStates().get(2)));
+        assertFalse(second.isMarked(reducedDfa.getStates().get(0), reducedDfa.getStates().get(3)));
+    }
+
+    private String groupsToString(Minimizer minimizer) {
+        StringBuilder sb = new StringBuilder();
+        minimizer.getMinimalizedGroups().forEach(stateGroup -> sb.append(stateGroup).append('\n'));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NfaDeterminizerTest {
+
+    /**
+     * (a|b)*ab with an ε-transition from the initial state
+     */
+    private static final String ENDS_WITH_AB_CSV = "States\\Input symbols;a;b;ε;Final state?\n"
+            + "s;;;q0;\n"
+            + "q0;q0,q1;q0;;\n"
+            + "q1;;q2;;\n"
+            + "q2;;;;t\n";
+
+    @Test
+    void epsilonNfaIsDeterminized() throws IOException {
+        CompactDFA dfa = readCsv(ENDS_WITH_AB_CSV, false);
+
+        assertEquals(4, dfa.getStateCount());
+        assertEquals("{s,q0}", dfa.getStateName(0));
+        assertEquals("{q0,q1}", dfa.getStateName(dfa.getTarget(0, dfa.getSymbolIndex("a"))));
+        assertTrue(new EquivalenceChecker().check(dfa, createEndsWithAb()).isEquivalent());
+    }
+
+    @Test
+    void commaCellIsOneTargetOnlyIfARowHasThatName() throws IOException {
+        CompactDFA mergedStateDfa = readCsv("States\\Input symbols;a;Final state?\n"
+                + "q0;{q1,q3};\n"
+                + "{q1,q3};q0;t\n", false);
+        CompactDFA listDfa = readCsv("States\\Input symbols;a;Final state?\n"
+                + "q0;q1,q3;\n"
+                + "q1;q0;t\n"
+                + "q3;;\n", false);
+
+        assertEquals(2, mergedStateDfa.getStateCount());
+        assertEquals("{q1,q3}", mergedStateDfa.getStateName(mergedStateDfa.getTarget(0, 0)));
+        assertEquals(2, listDfa.getStateCount());
+        assertEquals("{q1,q3}", listDfa.getStateName(listDfa.getTarget(0, 0)));
+        assertTrue(listDfa.isFinal(listDfa.getTarget(0, 0)));
+    }
+
+    @Test
+    void subsetNamesAreReadBackAsStates() throws IOException {
+        CompactDFA dfa = readCsv(ENDS_WITH_AB_CSV, false);
+        String csv = new String(new CSVToDFAProcessor().writeCSV(dfa).readAllBytes(), StandardCharsets.UTF_8);
+        CompactDFA readDfa = readCsv(csv, false);
+
+        assertEquals(dfa.getStateCount(), readDfa.getStateCount());
+        assertEquals("{q0,q1}", readDfa.getStateName(readDfa.getTarget(0, readDfa.getSymbolIndex("a"))));
+        assertTrue(new EquivalenceChecker().check(dfa, readDfa).isEquivalent());
+    }
+
+    @Test
+    void minimizedOnTheFlyLikeTheMinimizer() throws IOException {
+        CompactDFA minimalDfa = readCsv(ENDS_WITH_AB_CSV, true);
+        Minimizer minimizer = new Minimizer(Minimizer.Engine.PARTIAL);
+        minimizer.minimize(readCsv(ENDS_WITH_AB_CSV, false).toDFA());
+
+        assertEquals(3, minimalDfa.getStateCount());
+        assertEquals(minimizer.getMinimalizedGroups().size(), minimalDfa.getStateCount());
+        assertTrue(new EquivalenceChecker().check(minimalDfa, createEndsWithAb()).isEquivalent());
+    }
+
+    @Test
+    void nthSymbolFromTheEndNeedsAllSubsets() throws IOException {
+        int n = 10;
+        StringBuilder csv = new StringBuilder("States\\Input symbols;a;b;Final state?\n");
+        csv.append("q0;q0,q1;q0;\n");
+        for (int state = 1; state < n; state++) {
+            csv.append('q').append(state).append(";q").append(state + 1).append(";q").append(state + 1).append(";\n");
+        }
+        csv.append('q').append(n).append(";;;t\n");
+
+        CompactDFA dfa = readCsv(csv.toString(), false);
+        CompactDFA minimalDfa = readCsv(csv.toString(), true);
+
+        assertEquals(1 << n, dfa.getStateCount());
+        assertEquals(1 << n, minimalDfa.getStateCount());
+        assertTrue(new EquivalenceChecker().check(dfa, minimalDfa).isEquivalent());
+    }
+
+    private CompactDFA readCsv(String csv, boolean minimizeNfa) throws IOException {
+        CSVToDFAProcessor processor = new CSVToDFAProcessor();
+        processor.setMinimizeNfa(minimizeNfa);
+        return processor.readCSVToCompactDfa(Channels.newChannel(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * p0 -a-> p1 -b-> p2, complete
+     */
+    private CompactDFA createEndsWithAb() {
+        int[] transitions = {1, 0, 1, 2, 1, 0};
+        BitSet finalStates = new BitSet();
+        finalStates.set(2);
+        return new CompactDFA(new String[]{"a", "b"}, new String[]{"p0", "p1", "p2"}, new int[]{0, 1, 2}, transitions, finalStates, 0);
+    }
+}
@@ -0,0 +1,93 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.benchmark.RandomDFAGenerator;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelMooreMinimizerTest {
+
+    private static final int N = CompactDFA.NO_TRANSITION;
+
+    @AfterAll
+    static void shutdownPools() {
+        ParallelMooreMinimizer.shutdownPools();
+    }
+
+    @Test
+    void sameBlocksAsHopcroftOnRandomPartialAutomata() {
+        Random random = new Random(8);
+        RandomDFAGenerator generator = new RandomDFAGenerator(8);
+        for (int test = 0; test < 300; test++) {
+            CompactDFA dfa = createRandomDfa(generator, 1 + random.nextInt(40), 4);
+            int[] expectedBlocks = numberByFirstState(new HopcroftMinimizer().computeBlocks(dfa));
+
+            for (int threadCount = 1; threadCount <= 4; threadCount++) {
+                int[] blocks = new ParallelMooreMinimizer(threadCount).computeBlocks(dfa);
+                assertArrayEquals(expectedBlocks, blocks, "test " + test + ", " + threadCount + " threads");
+            }
+        }
+    }
+
+    @Test
+    void sameBlocksAsHopcroftOverSeveralChunks() {
+        //more states than one chunk of the parallel hashing, so the buckets of the workers are filled from several chunks
+        CompactDFA dfa = createRandomDfa(new RandomDFAGenerator(80), 50_000, 8);
+
+        assertArrayEquals(numberByFirstState(new HopcroftMinimizer().computeBlocks(dfa)), new ParallelMooreMinimizer(3).computeBlocks(dfa));
+    }
+
+    @Test
+    void sameGroupsAsTableFilling() {
+        Random random = new Random(800);
+        RandomDFAGenerator generator = new RandomDFAGenerator(800);
+        for (int test = 0; test < 100; test++) {
+            CompactDFA dfa = createRandomDfa(generator, 1 + random.nextInt(40), 4);
+            MinimizerProperties properties = new MinimizerProperties();
+            properties.setEngine(Minimizer.Engine.HOPCROFT);
+            properties.setParallelThreads(3);
+            properties.setParallelThreshold(1);
+
+            Minimizer tableFilling = new Minimizer(Minimizer.Engine.TABLE_FILLING);
+            tableFilling.minimize(dfa.toDFA());
+            Minimizer parallel = new Minimizer(properties);
+            parallel.minimize(dfa.toDFA());
+
+            assertEquals(tableFilling.getMinimalizedGroups().toString(), parallel.getMinimalizedGroups().toString(), "test " + test);
+        }
+    }
+
+    @Test
+    void chainNeedsARoundPerState() {
+        //q0 -a-> q1 -a-> ... -a-> q4 final, every state is distinguished by its distance from q4
+        int[] transitions = {1, 2, 3, 4, N};
+        BitSet finalStates = new BitSet();
+        finalStates.set(4);
+        CompactDFA dfa = new CompactDFA(new String[]{"a"}, new String[]{"q0", "q1", "q2", "q3", "q4"},
+                new int[]{0, 1, 2, 3, 4}, transitions, finalStates, 0);
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, new ParallelMooreMinimizer(2).computeBlocks(dfa));
+    }
+
+    private int[] numberByFirstState(int[] blocks) {
+        Map<Integer, Integer> newIds = new HashMap<>();
+        int[] numberedBlocks = new int[blocks.length];
+        for (int state = 0; state < blocks.length; state++) {
+            numberedBlocks[state] = newIds.computeIfAbsent(blocks[state], block -> newIds.size());
+        }
+        return numberedBlocks;
+    }
+
+    private CompactDFA createRandomDfa(RandomDFAGenerator generator, int stateCount, int classCount) {
+        //few distinct successors and final states, so many states are equivalent
+        return generator.generate(stateCount, "ab", 0.2, 1 / 3.0, classCount * 4);
+    }
+}
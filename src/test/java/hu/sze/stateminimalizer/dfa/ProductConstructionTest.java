@@ -0,0 +1,78 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.benchmark.RandomDFAGenerator;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductConstructionTest {
+
+    @Test
+    void allowedButNotBlocked() {
+        //words over a, b containing a; the blocked ones end with b
+        CompactDFA allowed = createDfa(new String[]{"a", "b"}, new int[]{1, 0, 1, 1}, 1);
+        CompactDFA blocked = createDfa(new String[]{"a", "b"}, new int[]{0, 1, 0, 1}, 1);
+
+        CompactDFA product = new ProductConstruction().product(allowed, blocked, ProductConstruction.Operation.DIFFERENCE);
+        TableMatcher matcher = TableMatcher.of(product);
+
+        assertEquals("(q0,q0)", product.getStateName(0));
+        assertTrue(matcher.matches("ba"));
+        assertFalse(matcher.matches("ab"));
+        assertFalse(matcher.matches("bb"));
+    }
+
+    @Test
+    void productAcceptsLikeTheOperation() {
+        Random random = new Random(13);
+        RandomDFAGenerator generator = new RandomDFAGenerator(13);
+        ProductConstruction productConstruction = new ProductConstruction();
+        for (int test = 0; test < 200; test++) {
+            CompactDFA first = generator.generate(1 + random.nextInt(6), "ab", 0.2, 0.5);
+            CompactDFA second = generator.generate(1 + random.nextInt(6), random.nextBoolean() ? "ab" : "bc", 0.2, 0.5);
+            TableMatcher firstMatcher = TableMatcher.of(first);
+            TableMatcher secondMatcher = TableMatcher.of(second);
+            for (ProductConstruction.Operation operation : ProductConstruction.Operation.values()) {
+                CompactDFA product = productConstruction.product(first, second, operation);
+                CompactDFA minimalProduct = productConstruction.productMinimal(first, second, operation);
+                TableMatcher productMatcher = TableMatcher.of(product);
+                for (int word = 0; word < 30; word++) {
+                    StringBuilder input = new StringBuilder();
+                    for (int i = random.nextInt(8); i > 0; i--) {
+                        input.append("abc".charAt(random.nextInt(3)));
+                    }
+                    assertEquals(operation.accepts(firstMatcher.matches(input), secondMatcher.matches(input)),
+                            productMatcher.matches(input), operation + " " + input);
+                }
+
+                Minimizer minimizer = new Minimizer(Minimizer.Engine.PARTIAL);
+                minimizer.minimize(product.toDFA());
+                assertEquals(minimizer.getMinimalizedGroups().size(), minimalProduct.getStateCount());
+                assertTrue(new EquivalenceChecker().check(product, minimalProduct).isEquivalent());
+            }
+        }
+    }
+
+    private CompactDFA createDfa(String[] symbols, int[] transitions, int finalState) {
+        BitSet finalStates = new BitSet();
+        finalStates.set(finalState);
+        return createDfa(symbols, transitions, finalStates);
+    }
+
+    private CompactDFA createDfa(String[] symbols, int[] transitions, BitSet finalStates) {
+        int stateCount = transitions.length / symbols.length;
+        String[] stateNames = new String[stateCount];
+        int[] stateIds = new int[stateCount];
+        for (int state = 0; state < stateCount; state++) {
+            stateNames[state] = "q" + state;
+            stateIds[state] = state;
+        }
+        return new CompactDFA(symbols, stateNames, stateIds, transitions, finalStates, 0);
+    }
+}
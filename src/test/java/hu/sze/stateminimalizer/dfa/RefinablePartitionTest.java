@@ -0,0 +1,75 @@
+package hu.sze.stateminimalizer.dfa;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RefinablePartitionTest {
+
+    @Test
+    void newSetGetsTheSmallerPart() {
+        RefinablePartition partition = new RefinablePartition(10);
+        List<Integer> newSets = new ArrayList<>();
+        partition.mark(3);
+        partition.mark(7);
+        partition.split(newSets::add);
+
+        //the marked part is smaller, it becomes the new set
+        assertEquals(2, partition.setCount());
+        assertEquals(List.of(1), newSets);
+        assertEquals(2, partition.size(1));
+        assertEquals(1, partition.setOf(3));
+        assertEquals(1, partition.setOf(7));
+        assertEquals(0, partition.setOf(0));
+
+        for (int element = 0; element < 10; element++) {
+            if (element != 3 && element != 7 && element != 9) {
+                partition.mark(element);
+            }
+        }
+        partition.split(newSets::add);
+
+        //7 of the 8 elements of set 0 are marked, the unmarked 9 becomes the new set
+        assertEquals(List.of(1, 2), newSets);
+        assertEquals(1, partition.size(2));
+        assertEquals(2, partition.setOf(9));
+        assertEquals(7, partition.size(0));
+    }
+
+    @Test
+    void markingAWholeSetDoesNotSplitIt() {
+        RefinablePartition partition = new RefinablePartition(4);
+        for (int element = 0; element < 4; element++) {
+            partition.mark(element);
+            partition.mark(element);
+        }
+        partition.split(newSet -> {
+            throw new AssertionError("no set should be created");
+        });
+
+        assertEquals(1, partition.setCount());
+        assertArrayEquals(new int[4], partition.toSetArray());
+    }
+
+    @Test
+    void elementsOfASetAreContiguous() {
+        RefinablePartition partition = new RefinablePartition(8);
+        for (int element = 0; element < 8; element += 2) {
+            partition.mark(element);
+        }
+        partition.split(null);
+
+        for (int set = 0; set < partition.setCount(); set++) {
+            for (int position = partition.first(set); position < partition.end(set); position++) {
+                assertEquals(set, partition.setOf(partition.element(position)));
+            }
+        }
+        assertEquals(4, partition.size(0));
+        assertEquals(4, partition.size(1));
+        partition.release();
+    }
+}
@@ -0,0 +1,114 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SymbolClassesTest {
+
+    @Test
+    void lettersAndDigitsAreCompressedToRanges() {
+        CompactDFA dfa = createIdentifierDfa();
+        SymbolClasses symbolClasses = SymbolClasses.of(dfa);
+        CompactDFA compressed = symbolClasses.compress(dfa);
+
+        assertEquals(3, symbolClasses.getClassCount());
+        assertEquals(Arrays.asList("[a-z]", "[0-9]", "_"),
+                Arrays.asList(compressed.getSymbol(0), compressed.getSymbol(1), compressed.getSymbol(2)));
+        assertTrue(new EquivalenceChecker().check(dfa, SymbolClasses.expand(compressed)).isEquivalent());
+    }
+
+    @Test
+    void labelsAreParsedBack() {
+        assertEquals(Arrays.asList("a", "b", "c", "x", "-", "]"), SymbolClasses.parseLabel("[a-cx\\-\\]]"));
+        assertEquals(Arrays.asList("ab", "cd"), SymbolClasses.parseLabel("ab|cd"));
+        assertEquals(Arrays.asList("|"), SymbolClasses.parseLabel("|"));
+        assertEquals(Arrays.asList("ab|cd"), SymbolClasses.parseLabel("ab\\|cd"));
+        assertEquals(Arrays.asList("[ab]", "\\"), SymbolClasses.parseLabel("\\[ab\\]|\\\\"));
+    }
+
+    @Test
+    void symbolsLookingLikeLabelsAreEscaped() {
+        //ab and cd form a class, the literal ab|cd and [ab] are classes of their own
+        int[] transitions = {1, 1, 0, CompactDFA.NO_TRANSITION, 1, 1, 1, 1};
+        CompactDFA dfa = new CompactDFA(new String[]{"ab", "cd", "ab|cd", "[ab]"}, new String[]{"q0", "q1"},
+                new int[]{0, 1}, transitions, new BitSet(), 0);
+        SymbolClasses symbolClasses = SymbolClasses.of(dfa);
+        CompactDFA compressed = symbolClasses.compress(dfa);
+
+        assertEquals(Arrays.asList("ab|cd", "ab\\|cd", "\\[ab\\]"),
+                Arrays.asList(compressed.getSymbol(0), compressed.getSymbol(1), compressed.getSymbol(2)));
+        CompactDFA expanded = SymbolClasses.expand(compressed);
+        assertEquals(4, expanded.getSymbolCount());
+        assertTrue(new EquivalenceChecker().check(dfa, expanded).isEquivalent());
+    }
+
+    @Test
+    void missingTransitionsSeparateTheClasses() {
+        int[] transitions = {1, 1, CompactDFA.NO_TRANSITION, 1, 1, 1};
+        CompactDFA dfa = new CompactDFA(new String[]{"a", "b", "c"}, new String[]{"q0", "q1"}, new int[]{0, 1},
+                transitions, new BitSet(), 0);
+
+        SymbolClasses symbolClasses = SymbolClasses.of(dfa);
+
+        assertEquals(2, symbolClasses.getClassCount());
+        assertEquals("[ab]", symbolClasses.getLabel(0));
+        assertEquals("c", symbolClasses.getLabel(1));
+    }
+
+    @Test
+    void minimizationIsTheSameOnTheCompressedAlphabet() throws IOException {
+        CompactDFA dfa = createIdentifierDfa();
+        CSVToDFAProcessor processor = new CSVToDFAProcessor();
+        processor.setCompressAlphabet(true);
+        CompactDFA compressed = processor.readCSVToCompactDfa(Channels.newChannel(
+                new ByteArrayInputStream(new CSVToDFAProcessor().writeCSV(dfa).readAllBytes())));
+
+        for (Minimizer.Engine engine : Minimizer.Engine.values()) {
+            Minimizer minimizer = new Minimizer(engine);
+            minimizer.minimize(dfa.toDFA());
+            Minimizer compressedMinimizer = new Minimizer(engine);
+            CompactDFA minimal = CompactDFA.fromDFA(compressedMinimizer.minimize(compressed.toDFA()));
+
+            assertEquals(3, compressed.getSymbolCount());
+            assertEquals(minimizer.getMinimalizedGroups().size(), minimal.getStateCount());
+            assertTrue(new EquivalenceChecker().check(dfa, SymbolClasses.expand(minimal)).isEquivalent());
+        }
+    }
+
+    /**
+     * [a-z][a-z0-9]*, the q2 copy of q1 is merged by the minimization, _ only has missing transitions
+     */
+    private CompactDFA createIdentifierDfa() {
+        String[] symbols = new String[37];
+        for (int i = 0; i < 26; i++) {
+            symbols[i] = String.valueOf((char) ('a' + i));
+        }
+        for (int i = 0; i < 10; i++) {
+            symbols[26 + i] = String.valueOf((char) ('0' + i));
+        }
+        symbols[36] = "_";
+        int[] transitions = new int[3 * symbols.length];
+        Arrays.fill(transitions, CompactDFA.NO_TRANSITION);
+        for (int symbol = 0; symbol < 26; symbol++) {
+            transitions[symbol] = 1;
+            transitions[symbols.length + symbol] = 2;
+            transitions[2 * symbols.length + symbol] = 1;
+        }
+        for (int symbol = 26; symbol < 36; symbol++) {
+            transitions[symbols.length + symbol] = 1;
+            transitions[2 * symbols.length + symbol] = 2;
+        }
+        BitSet finalStates = new BitSet();
+        finalStates.set(1, 3);
+        return new CompactDFA(symbols, new String[]{"q0", "q1", "q2"}, new int[]{0, 1, 2}, transitions, finalStates, 0);
+    }
+}
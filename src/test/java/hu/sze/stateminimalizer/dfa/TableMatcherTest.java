@@ -0,0 +1,118 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.benchmark.RandomDFAGenerator;
+import hu.sze.stateminimalizer.dfa.model.CompactDFA;
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import hu.sze.stateminimalizer.dfa.model.State;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableMatcherTest {
+
+    @Test
+    void rangeLabelledIdentifierIsMatched() {
+        TableMatcher matcher = TableMatcher.of(createIdentifierDfa());
+
+        assertEquals(2, matcher.getStateCount());
+        assertTrue(matcher.matches("x"));
+        assertTrue(matcher.matches("abc123"));
+        assertFalse(matcher.matches(""));
+        assertFalse(matcher.matches("1abc"));
+        assertFalse(matcher.matches("ab_c"));
+        assertFalse(matcher.matches("abcő"));
+        assertTrue(matcher.matches("abc123".getBytes(StandardCharsets.US_ASCII)));
+        assertFalse(matcher.matches("-abc-".getBytes(StandardCharsets.US_ASCII), 0, 4));
+        assertTrue(matcher.matches("-abc-".getBytes(StandardCharsets.US_ASCII), 1, 3));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+        buffer.put("1a2b".getBytes(StandardCharsets.US_ASCII)).flip();
+        assertFalse(matcher.matches(buffer));
+        buffer.position(1);
+        assertTrue(matcher.matches(buffer));
+        assertEquals(1, buffer.position());
+    }
+
+    @Test
+    void matchesLikeTheObjectModel() {
+        Random random = new Random(7);
+        RandomDFAGenerator generator = new RandomDFAGenerator(7);
+        for (int test = 0; test < 200; test++) {
+            DFA dfa = generator.generate(1 + random.nextInt(20), "abcd".substring(0, 1 + random.nextInt(4)), 0.2, 1 / 3.0).toDFA();
+            TableMatcher matcher = TableMatcher.of(dfa);
+            for (int word = 0; word < 50; word++) {
+                StringBuilder input = new StringBuilder();
+                for (int i = random.nextInt(12); i > 0; i--) {
+                    input.append((char) ('a' + random.nextInt(5)));
+                }
+                assertEquals(walk(dfa, input), matcher.matches(input), input.toString());
+                assertEquals(walk(dfa, input), matcher.matches(input.toString().getBytes(StandardCharsets.US_ASCII)));
+            }
+        }
+    }
+
+    @Test
+    void parallelBatchGivesTheSequentialResults() {
+        TableMatcher matcher = TableMatcher.of(createIdentifierDfa());
+        Random random = new Random(11);
+        String characters = "ab9_";
+        CharSequence[] inputs = new CharSequence[3 * DfaMatcher.PARALLEL_CHUNK_SIZE + 17];
+        for (int i = 0; i < inputs.length; i++) {
+            char[] word = new char[random.nextInt(6)];
+            for (int j = 0; j < word.length; j++) {
+                word[j] = characters.charAt(random.nextInt(characters.length()));
+            }
+            inputs[i] = new String(word);
+        }
+        boolean[] expected = new boolean[inputs.length];
+        boolean[] results = new boolean[inputs.length];
+
+        int accepted = matcher.matchAll(inputs, expected);
+
+        assertEquals(accepted, matcher.matchAllParallel(inputs, results, new ForkJoinPool(4)));
+        assertArrayEquals(expected, results);
+    }
+
+    @Test
+    void multiCharacterSymbolsAreRejected() {
+        CompactDFA dfa = new CompactDFA(new String[]{"ab"}, new String[]{"q0"}, new int[]{0}, new int[]{0}, new BitSet(), 0);
+
+        assertThrows(IllegalArgumentException.class, () -> TableMatcher.of(dfa));
+    }
+
+    @Test
+    void bracketedSymbolIsNotTakenForARange() {
+        CompactDFA dfa = new CompactDFA(new String[]{"[ab]"}, new String[]{"q0"}, new int[]{0}, new int[]{0}, new BitSet(), 0);
+
+        assertThrows(IllegalArgumentException.class, () -> TableMatcher.of(dfa));
+    }
+
+    private boolean walk(DFA dfa, CharSequence input) {
+        State state = dfa.getStates().get(0);
+        for (int i = 0; i < input.length() && state != null; i++) {
+            state = state.getTransitions().get(String.valueOf(input.charAt(i)));
+        }
+        return state != null && dfa.getFinalStateIds().contains(state.getId());
+    }
+
+    /**
+     * [a-z][a-z0-9]* on range labels, expanded to characters
+     */
+    private CompactDFA createIdentifierDfa() {
+        int[] transitions = {1, CompactDFA.NO_TRANSITION, 1, 1};
+        BitSet finalStates = new BitSet();
+        finalStates.set(1);
+        return SymbolClasses.expand(new CompactDFA(new String[]{"[a-z]", "[0-9]"}, new String[]{"q0", "q1"},
+                new int[]{0, 1}, transitions, finalStates, 0));
+    }
+}
@@ -0,0 +1,36 @@
+package hu.sze.stateminimalizer.dfa;
+
+import hu.sze.stateminimalizer.dfa.model.DFA;
+import hu.sze.stateminimalizer.dfa.model.State;
+
+/**
+ * Automata shared by the tests of the engines.
+ */
+final class TestAutomata {
+
+    private TestAutomata() {
+    }
+
+    /**
+     * q0 -a-> q1 -a-> ... -a-> q(n-1) -a-> q0, every state is also a b-loop, every period-th state is final
+     */
+    static DFA createCycle(int stateCount, int period) {
+        DFA dfa = new DFA();
+        dfa.getInputSymbols().add("a");
+        dfa.getInputSymbols().add("b");
+        for (int i = 0; i < stateCount; i++) {
+            State state = new State(i);
+            state.setName("q" + i);
+            dfa.getStates().add(state);
+            if (i % period == period - 1) {
+                dfa.getFinalStateIds().add(i);
+            }
+        }
+        for (int i = 0; i < stateCount; i++) {
+            State state = dfa.getStates().get(i);
+            state.getTransitions().put("a", dfa.getStates().get((i + 1) % stateCount));
+            state.getTransitions().put("b", state);
+        }
+        return dfa;
+    }
+}
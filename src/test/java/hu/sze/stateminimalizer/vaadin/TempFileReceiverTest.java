@@ -0,0 +1,54 @@
+package hu.sze.stateminimalizer.vaadin;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TempFileReceiverTest {
+
+    @Test
+    void uploadUpToTheLimitIsKept() throws IOException {
+        TempFileReceiver receiver = new TempFileReceiver(10);
+        try (OutputStream outputStream = receiver.receiveUpload("a.csv", "text/csv")) {
+            outputStream.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+            outputStream.write(10);
+        }
+        Path file = receiver.takeFile();
+        try {
+            assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, Files.readAllBytes(file));
+            assertNull(receiver.takeFile());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void largerUploadFailsAndItsFileIsDeleted() throws IOException {
+        TempFileReceiver receiver = new TempFileReceiver(10);
+        OutputStream outputStream = receiver.receiveUpload("a.csv", "text/csv");
+        outputStream.write(new byte[8]);
+
+        assertThrows(IOException.class, () -> outputStream.write(new byte[3]));
+        Path file = receiver.takeFile();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void singleBytesAreCountedToo() throws IOException {
+        TempFileReceiver receiver = new TempFileReceiver(2);
+        OutputStream outputStream = receiver.receiveUpload("a.csv", "text/csv");
+        outputStream.write(1);
+        outputStream.write(2);
+
+        assertThrows(IOException.class, () -> outputStream.write(3));
+        assertFalse(Files.exists(receiver.takeFile()));
+    }
+}